@@ -0,0 +1,66 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.analysis.flat.ConstantPool;
+import com.example.expressioneval.analysis.flat.FlatAst;
+import com.example.expressioneval.analysis.optimizer.AstOptimizer;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Retained heap of a large rule set per in-memory representation: the optimized {@link Parser.ASTNode} trees, the
+ * prepared predicates built from them and {@link FlatAst}s sharing one {@link ConstantPool}. Each is measured alone,
+ * as the heap in use after a full GC with the rules held minus the heap in use before building them.
+ * <p>
+ * Usage: {@code AstFootprint [rules] [comparisons per rule]}, 1000000 rules of 4 comparisons unless given. Run with
+ * enough heap for the object trees, e.g. {@code -Djmh.jvmArgs="-Xmx3g"}.
+ */
+public final class AstFootprint {
+
+    private AstFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int rules = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        List<String> expressions = Workloads.expressions(rules, size, 2, Workloads.Mix.MIXED, Workloads.Shape.NESTED, 20);
+        Tokenizer tokenizer = new Tokenizer();
+        Parser parser = new Parser();
+        AstOptimizer optimizer = new AstOptimizer();
+        Function<String, Parser.ASTNode> parse = expression -> optimizer.optimize(parser.parse(tokenizer.tokenize(expression)));
+
+        ExpressionPreparer preparer = new ExpressionPreparer();
+        ConstantPool pool = new ConstantPool();
+        System.out.printf("%d rules of %d comparisons%n", rules, size);
+        System.out.printf("%-12s %12s %12s%n", "", "bytes/rule", "MB");
+        measure("ast", expressions, parse);
+        measure("prepared", expressions, expression -> preparer.prepare(parse.apply(expression)));
+        measure("flat", expressions, expression -> FlatAst.encode(parse.apply(expression), pool));
+        System.out.printf("%d constants in the shared pool%n", pool.size());
+    }
+
+    private static void measure(String name, List<String> expressions, Function<String, ?> representation) {
+        long before = usedAfterGc();
+        Object[] held = new Object[expressions.size()];
+        for (int i = 0; i < held.length; i++) {
+            held[i] = representation.apply(expressions.get(i));
+        }
+        long retained = usedAfterGc() - before;
+        System.out.printf("%-12s %12.1f %12.1f%n", name, (double) retained / held.length, retained / 1e6);
+        // still reachable up to the measurement
+        held[0] = held[held.length - 1];
+    }
+
+    private static long usedAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
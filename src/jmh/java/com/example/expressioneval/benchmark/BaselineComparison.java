@@ -0,0 +1,139 @@
+package com.example.expressioneval.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files benchmark by benchmark: time and allocated bytes per operation. An allocation
+ * increase above the threshold (10% unless given) and more than a few bytes per operation is a regression. A slowdown
+ * above the threshold only counts when the confidence intervals of both scores do not overlap, otherwise it is
+ * reported as within the error. Exits with 1 if there is a regression.
+ * <p>
+ * Usage: {@code BaselineComparison <baseline.json> <results.json> [threshold percent]}, or
+ * {@code BaselineComparison --update <results.json> <baseline.json>} to write a results file as the new baseline,
+ * without raw data and machine specific fields.
+ */
+public final class BaselineComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    // non-allocating benchmarks report fractions of a byte, their relative changes are meaningless
+    private static final double MIN_ALLOCATION_CHANGE = 16;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--update")) {
+            update(new File(args[1]), new File(args[2]));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <results.json> [threshold percent]");
+            System.err.println("       BaselineComparison --update <results.json> <baseline.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> results = read(new File(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+        System.out.printf("%-90s %12s %12s %8s %10s %8s%n", "Benchmark", "Baseline", "Score", "Time", "B/op", "Alloc");
+        for (Map.Entry<String, JsonNode> entry : results.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            JsonNode after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %12s %12.1f%n", entry.getKey(), "-", score(after));
+                continue;
+            }
+            double timeChange = change(score(before), score(after));
+            boolean slower = timeChange > threshold && lower(after) > upper(before);
+            double allocationChange = change(allocation(before), allocation(after));
+            boolean allocates = allocationChange > threshold
+                    && allocation(after) - allocation(before) > MIN_ALLOCATION_CHANGE;
+            String verdict = "";
+            if (slower || allocates) {
+                regressions++;
+                verdict = "  REGRESSION";
+            } else if (timeChange > threshold) {
+                verdict = "  within error";
+            }
+            System.out.printf("%-90s %12.1f %12.1f %+7.1f%% %10.0f %+7.1f%%%s%n", entry.getKey(), score(before),
+                    score(after), timeChange, allocation(after), allocationChange, verdict);
+        }
+        System.out.printf("%d of %d benchmarks regressed by more than %.0f%%%n", regressions, results.size(), threshold);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void update(File results, File baseline) throws IOException {
+        ArrayNode entries = mapper.createArrayNode();
+        for (JsonNode result : mapper.readTree(results)) {
+            ObjectNode entry = entries.addObject();
+            for (String field : new String[]{"benchmark", "mode", "threads", "forks", "jdkVersion", "vmName",
+                    "warmupIterations", "warmupTime", "measurementIterations", "measurementTime", "params"}) {
+                if (result.has(field)) {
+                    entry.set(field, result.get(field));
+                }
+            }
+            entry.set("primaryMetric", metric(result.path("primaryMetric")));
+            if (result.path("secondaryMetrics").has(ALLOCATION)) {
+                entry.putObject("secondaryMetrics").set(ALLOCATION, metric(result.path("secondaryMetrics").path(ALLOCATION)));
+            }
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(baseline, entries);
+        System.out.printf("%d benchmarks written to %s%n", entries.size(), baseline);
+    }
+
+    private static ObjectNode metric(JsonNode metric) {
+        ObjectNode stripped = mapper.createObjectNode();
+        for (String field : new String[]{"score", "scoreError", "scoreConfidence", "scoreUnit"}) {
+            stripped.set(field, metric.get(field));
+        }
+        return stripped;
+    }
+
+    // keyed by benchmark name and parameters
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : mapper.readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String name = result.path("benchmark").asText().replace(BaselineComparison.class.getPackageName() + ".", "");
+            results.put(params.isEmpty() ? name : name + " " + params, result);
+        }
+        return results;
+    }
+
+    private static double score(JsonNode result) {
+        return result.path("primaryMetric").path("score").asDouble();
+    }
+
+    // the bounds of the 99.9% confidence interval JMH reports
+    private static double lower(JsonNode result) {
+        return result.path("primaryMetric").path("scoreConfidence").path(0).asDouble(score(result));
+    }
+
+    private static double upper(JsonNode result) {
+        return result.path("primaryMetric").path("scoreConfidence").path(1).asDouble(score(result));
+    }
+
+    private static double allocation(JsonNode result) {
+        return result.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble();
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.analysis.columnar.ColumnBatch;
+import com.example.expressioneval.analysis.columnar.ColumnarExpression;
+import com.example.expressioneval.analysis.columnar.ColumnarPreparer;
+import com.example.expressioneval.analysis.optimizer.AstOptimizer;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One expression over a batch of already parsed documents: row at a time with the prepared predicate, column by
+ * column over a decoded batch, and column by column including the decoding of the batch.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColumnarBenchmark extends BenchmarkDefaults {
+
+    // number of comparisons
+    @Param({"4", "32"})
+    public int size;
+
+    @Param({"1024", "16384"})
+    public int rows;
+
+    private List<JsonNode> documents;
+
+    private ExpressionPredicate prepared;
+
+    private ColumnarExpression columnar;
+
+    private ColumnBatch batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int fields = 20;
+        String expression = Workloads.expression(size, 3, Workloads.Mix.MIXED, Workloads.Shape.FLAT, fields);
+        Parser.ASTNode ast = new AstOptimizer().optimize(new Parser().parse(new Tokenizer().tokenize(expression)));
+        Evaluator evaluator = new Evaluator();
+        documents = Workloads.documents(Workloads.Shape.FLAT, fields, rows).stream()
+                .map(evaluator::readDocument)
+                .toList();
+        prepared = new ExpressionPreparer().prepare(ast);
+        columnar = new ColumnarPreparer().prepare(ast);
+        batch = decode();
+    }
+
+    private ColumnBatch decode() {
+        ColumnBatch.Builder builder = new ColumnBatch.Builder(columnar.paths(), documents.size());
+        documents.forEach(builder::add);
+        return builder.build();
+    }
+
+    @Benchmark
+    public int rowAtATime() {
+        int matches = 0;
+        for (JsonNode document : documents) {
+            if (prepared.test(document)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int columnar() {
+        return columnar.evaluate(batch).matchCount();
+    }
+
+    @Benchmark
+    public int decodeAndColumnar() {
+        return columnar.evaluate(decode()).matchCount();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.compiler.BytecodeCompiler;
+import com.example.expressioneval.analysis.document.DocumentReader;
+import com.example.expressioneval.analysis.document.ReferencedPaths;
+import com.example.expressioneval.analysis.document.SelectiveDocumentReader;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.serialize.BinaryAstCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * POST /evaluate without HTTP and the database: the JSON payload as a string in, the result out.
+ * {@code cached} is a cache hit, {@code uncached} a miss that decodes the stored AST and builds the predicate
+ * first. Mirrors what {@link com.example.expressioneval.service.ExpressionCache} builds per mode.
+ */
+@State(Scope.Benchmark)
+public class EndToEndBenchmark extends BenchmarkDefaults {
+
+    @Param({"INTERPRETED", "PREPARED", "STREAMING", "COMPILED"})
+    public EvaluationMode mode;
+
+    private final Evaluator evaluator = new Evaluator();
+
+    private final ExpressionPreparer expressionPreparer = new ExpressionPreparer();
+
+    private final BytecodeCompiler bytecodeCompiler = new BytecodeCompiler();
+
+    private byte[] astBinary;
+
+    private CompiledExpression compiled;
+
+    @Setup(Level.Trial)
+    public void setUp(EvaluationState state) {
+        astBinary = BinaryAstCodec.encode(state.ast);
+        compiled = compile(astBinary);
+    }
+
+    @Benchmark
+    public boolean cached(EvaluationState state) {
+        return compiled.evaluate(state.json);
+    }
+
+    @Benchmark
+    public boolean uncached(EvaluationState state) {
+        return compile(astBinary).evaluate(state.json);
+    }
+
+    private CompiledExpression compile(byte[] astBinary) {
+        Parser.ASTNode ast = BinaryAstCodec.decode(astBinary);
+        ExpressionPredicate predicate = switch (mode) {
+            case INTERPRETED -> root -> evaluator.evaluate(ast, root);
+            case COMPILED -> bytecodeCompiler.compile(ast);
+            default -> expressionPreparer.prepare(ast);
+        };
+        DocumentReader documentReader = mode == EvaluationMode.STREAMING
+                ? new SelectiveDocumentReader(ReferencedPaths.collect(ast))
+                : evaluator::readDocument;
+        return new CompiledExpression(null, null, ast, mode, predicate, documentReader);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * An expression and a matching document, for the evaluation benchmarks. The operator mix and nesting are fixed,
+ * the expression size and the payload size and shape vary.
+ */
+@State(Scope.Benchmark)
+public class EvaluationState {
+
+    // number of comparisons
+    @Param({"4", "32"})
+    public int size;
+
+    // fields in the document
+    @Param({"10", "200"})
+    public int fields;
+
+    @Param({"FLAT", "NESTED"})
+    public Workloads.Shape shape;
+
+    public String expression;
+
+    public Parser.ASTNode ast;
+
+    public String json;
+
+    public JsonNode document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expression = Workloads.expression(size, 3, Workloads.Mix.MIXED, shape, fields);
+        ast = new Parser().parse(new Tokenizer().tokenize(expression));
+        json = Workloads.document(shape, fields);
+        document = new Evaluator().readDocument(json);
+    }
+}
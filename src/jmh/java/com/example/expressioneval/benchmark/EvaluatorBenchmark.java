@@ -0,0 +1,55 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.compiler.BytecodeCompiler;
+import com.example.expressioneval.analysis.flat.ConstantPool;
+import com.example.expressioneval.analysis.flat.FlatAst;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Evaluation of an already parsed document, per evaluation strategy.
+ */
+@State(Scope.Benchmark)
+public class EvaluatorBenchmark extends BenchmarkDefaults {
+
+    private final Evaluator evaluator = new Evaluator();
+
+    private ExpressionPredicate prepared;
+
+    private ExpressionPredicate compiled;
+
+    private ExpressionPredicate flat;
+
+    @Setup(Level.Trial)
+    public void setUp(EvaluationState state) {
+        prepared = new ExpressionPreparer().prepare(state.ast);
+        compiled = new BytecodeCompiler().compile(state.ast);
+        flat = FlatAst.encode(state.ast, new ConstantPool());
+    }
+
+    @Benchmark
+    public boolean interpreted(EvaluationState state) {
+        return evaluator.evaluate(state.ast, state.document);
+    }
+
+    @Benchmark
+    public boolean prepared(EvaluationState state) {
+        return prepared.test(state.document);
+    }
+
+    @Benchmark
+    public boolean compiled(EvaluationState state) {
+        return compiled.test(state.document);
+    }
+
+    @Benchmark
+    public boolean flat(EvaluationState state) {
+        return flat.test(state.document);
+    }
+}
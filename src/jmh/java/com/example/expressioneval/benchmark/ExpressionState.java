@@ -0,0 +1,54 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.TokenStream;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.model.serialize.ASTSerializer;
+import com.example.expressioneval.model.serialize.BinaryAstCodec;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+/**
+ * An expression in every intermediate form, for the tokenizer, parser and serializer benchmarks.
+ */
+@State(Scope.Benchmark)
+public class ExpressionState {
+
+    // number of comparisons
+    @Param({"4", "32"})
+    public int size;
+
+    // levels of parentheses
+    @Param({"1", "3"})
+    public int depth;
+
+    @Param({"EQUALITY", "ORDERING", "MIXED"})
+    public Workloads.Mix mix;
+
+    public String expression;
+
+    public ArrayList<Tokenizer.Token> tokens;
+
+    public TokenStream tokenStream;
+
+    public Parser.ASTNode ast;
+
+    public String astJson;
+
+    public byte[] astBinary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        expression = Workloads.expression(size, depth, mix, Workloads.Shape.FLAT, 64);
+        tokens = new Tokenizer().tokenize(expression);
+        tokenStream = new Tokenizer().scan(expression);
+        ast = new Parser().parse(tokens);
+        astJson = ASTSerializer.serializeAST(ast);
+        astBinary = BinaryAstCodec.encode(ast);
+    }
+}
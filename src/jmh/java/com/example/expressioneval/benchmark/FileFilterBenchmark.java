@@ -0,0 +1,97 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.analysis.columnar.ColumnarPreparer;
+import com.example.expressioneval.analysis.document.ReferencedPaths;
+import com.example.expressioneval.analysis.document.SelectiveDocumentReader;
+import com.example.expressioneval.analysis.optimizer.AstOptimizer;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.service.BatchEvaluationService;
+import com.example.expressioneval.service.EvaluationExecutor;
+import com.example.expressioneval.service.FileFilterService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One expression over an NDJSON file on disk: memory-mapped and parsed from bytes by the {@link FileFilterService},
+ * and read line by line into strings by the {@link BatchEvaluationService}, each with {@code threads} workers.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileFilterBenchmark extends BenchmarkDefaults {
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    @Param({"100000"})
+    public int documents;
+
+    private Path directory;
+
+    private Path input;
+
+    private CompiledExpression compiled;
+
+    private EvaluationExecutor executor;
+
+    private FileFilterService fileFilterService;
+
+    private BatchEvaluationService batchEvaluationService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int fields = 20;
+        directory = Files.createTempDirectory("file-filter-benchmark");
+        input = directory.resolve("input.ndjson");
+        Files.write(input, Workloads.documents(Workloads.Shape.FLAT, fields, documents), StandardCharsets.UTF_8);
+        String expression = Workloads.expression(4, 3, Workloads.Mix.MIXED, Workloads.Shape.FLAT, fields);
+        Parser.ASTNode ast = new AstOptimizer().optimize(new Parser().parse(new Tokenizer().tokenize(expression)));
+        compiled = new CompiledExpression(null, expression, ast, EvaluationMode.STREAMING,
+                new ExpressionPreparer().prepare(ast), new SelectiveDocumentReader(ReferencedPaths.collect(ast)));
+        executor = new EvaluationExecutor(threads, false);
+        fileFilterService = new FileFilterService(executor, DataSize.ofMegabytes(8));
+        batchEvaluationService = new BatchEvaluationService(executor, new ColumnarPreparer(), 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileFilterService.shutdown();
+        executor.shutdown();
+        Files.deleteIfExists(directory.resolve("matches.ndjson"));
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Map<String, Object> mapped() throws IOException {
+        return fileFilterService.filter(compiled, input, directory.resolve("matches.ndjson"),
+                FileFilterService.Output.LINES);
+    }
+
+    @Benchmark
+    public void streamed() throws IOException {
+        try (InputStream in = Files.newInputStream(input)) {
+            batchEvaluationService.evaluate(compiled, in, OutputStream.nullOutputStream(),
+                    BatchEvaluationService.Output.MATCHES);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.columnar.Kernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * A range comparison of a numeric column with a literal into a bitmap, scalar and with the kernels the columnar
+ * engine selects. Those are the Vector API kernels only when built and run with the {@code vector} profile
+ * ({@code mvn -Pjmh,vector test-compile exec:exec}), otherwise both measure the scalar loops.
+ */
+@State(Scope.Benchmark)
+public class KernelBenchmark extends BenchmarkDefaults {
+
+    @Param({"64", "1024", "16384", "262144"})
+    public int rows;
+
+    private final Kernels selected = Kernels.get();
+
+    private final Parser.NumberNode literal = new Parser.NumberNode(100);
+
+    private double[] doubles;
+
+    private long[] longs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        doubles = new double[rows];
+        longs = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            doubles[i] = random.nextDouble() * 200;
+            longs[i] = random.nextInt(200);
+        }
+        System.out.println("kernels: " + selected.name());
+    }
+
+    @Benchmark
+    public long[] scalarDoubles() {
+        return Kernels.scalar().compare(doubles, Operator.GT, literal);
+    }
+
+    @Benchmark
+    public long[] selectedDoubles() {
+        return selected.compare(doubles, Operator.GT, literal);
+    }
+
+    @Benchmark
+    public long[] scalarLongs() {
+        return Kernels.scalar().compare(longs, Operator.LEQ, literal);
+    }
+
+    @Benchmark
+    public long[] selectedLongs() {
+        return selected.compare(longs, Operator.LEQ, literal);
+    }
+}
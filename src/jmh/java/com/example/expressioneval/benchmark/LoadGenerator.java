@@ -0,0 +1,126 @@
+package com.example.expressioneval.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load against a running server: stores a set of expressions, then every client sends
+ * {@code POST /evaluate} for a random one of them as soon as its previous response arrived. Prints the throughput and
+ * latency percentiles of the requests completed in the measured window, which starts after the warm-up.
+ * <p>
+ * Usage: {@code LoadGenerator <base url> [clients] [expressions] [warm-up seconds] [measured seconds]}, 256 clients
+ * over 100 expressions with 5 s of warm-up and 30 s measured unless given. Run it on other cores or another machine
+ * than the server, otherwise it competes with the server for CPU.
+ */
+public final class LoadGenerator {
+
+    private static final String DOCUMENT = "{\"customer\": {\"age\": 30, \"address\": {\"city\": \"Seattle\"}}}";
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI base = URI.create(args[0].endsWith("/") ? args[0] : args[0] + "/");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int expressions = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        long warmUp = TimeUnit.SECONDS.toNanos(args.length > 3 ? Long.parseLong(args[3]) : 5);
+        long measured = TimeUnit.SECONDS.toNanos(args.length > 4 ? Long.parseLong(args[4]) : 30);
+
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long[] ids = store(http, base, expressions);
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmUp;
+        long end = measureFrom + measured;
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            long[][] recorded = {new long[1024]};
+            int[] count = {0};
+            Thread thread = new Thread(() -> {
+                while (true) {
+                    long id = ids[(int) (Math.random() * ids.length)];
+                    HttpRequest request = HttpRequest.newBuilder(base.resolve("evaluate?id=" + id))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(DOCUMENT))
+                            .build();
+                    long sent = System.nanoTime();
+                    boolean ok;
+                    try {
+                        ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                    } catch (IOException | InterruptedException e) {
+                        ok = false;
+                    }
+                    long received = System.nanoTime();
+                    if (received >= end) {
+                        break;
+                    }
+                    if (sent < measureFrom) {
+                        continue;
+                    }
+                    if (!ok) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count[0] == recorded[0].length) {
+                        recorded[0] = Arrays.copyOf(recorded[0], count[0] * 2);
+                    }
+                    recorded[0][count[0]++] = received - sent;
+                }
+                synchronized (latencies) {
+                    latencies.add(Arrays.copyOf(recorded[0], count[0]));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        double seconds = measured / 1e9;
+        System.out.printf("%d clients, %d expressions, %.0f s measured%n", clients, expressions, seconds);
+        System.out.printf("throughput %.0f/s, errors %d%n", all.length / seconds, errors.get());
+        if (all.length > 0) {
+            System.out.printf("p50 %.1f ms, p99 %.1f ms, max %.1f ms%n", percentile(all, 0.50) / 1e6,
+                    percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+        }
+    }
+
+    private static long[] store(HttpClient http, URI base, int expressions) throws IOException, InterruptedException {
+        ObjectMapper mapper = new ObjectMapper();
+        long[] ids = new long[expressions];
+        for (int i = 0; i < expressions; i++) {
+            String value = "customer.age > " + (i % 60) + " AND customer.address.city == \"Seattle\"";
+            HttpRequest request = HttpRequest.newBuilder(base.resolve("expression?name=load-" + i
+                            + "&value=" + URLEncoder.encode(value, StandardCharsets.UTF_8)))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Storing an expression failed with " + response.statusCode() + ": "
+                        + response.body());
+            }
+            ids[i] = mapper.readTree(response.body()).get("id").asLong();
+        }
+        return ids;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.analysis.optimizer.AstOptimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class ParserBenchmark extends BenchmarkDefaults {
+
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    private final Parser parser = new Parser();
+
+    private final AstOptimizer astOptimizer = new AstOptimizer();
+
+    @Benchmark
+    public Parser.ASTNode parse(ExpressionState state) {
+        return parser.parse(state.tokens);
+    }
+
+    @Benchmark
+    public Parser.ASTNode parseTokenStream(ExpressionState state) {
+        return parser.parse(state.tokenStream);
+    }
+
+    // what POST /expression does before storing: tokenize, parse and optimize
+    @Benchmark
+    public Parser.ASTNode tokenizeParseOptimize(ExpressionState state) {
+        return astOptimizer.optimize(parser.parse(tokenizer.scan(state.expression)));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.serialize.ASTSerializer;
+import com.example.expressioneval.model.serialize.BinaryAstCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * The JSON format of {@link ASTSerializer} (legacy rows) next to the binary format rows are stored in now.
+ */
+public class SerializerBenchmark extends BenchmarkDefaults {
+
+    @Benchmark
+    public String jsonSerialize(ExpressionState state) throws Exception {
+        return ASTSerializer.serializeAST(state.ast);
+    }
+
+    @Benchmark
+    public Parser.ASTNode jsonDeserialize(ExpressionState state) throws Exception {
+        return ASTSerializer.deserializeAST(state.astJson);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode(ExpressionState state) {
+        return BinaryAstCodec.encode(state.ast);
+    }
+
+    @Benchmark
+    public Parser.ASTNode binaryDecode(ExpressionState state) {
+        return BinaryAstCodec.decode(state.astBinary);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.expressioneval.benchmark;
+
+import com.example.expressioneval.analysis.Tokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+@State(Scope.Benchmark)
+public class TokenizerBenchmark extends BenchmarkDefaults {
+
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    @Benchmark
+    public ArrayList<Tokenizer.Token> tokenize(ExpressionState state) {
+        return tokenizer.tokenize(state.expression);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.expressioneval.benchmark;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic expressions and documents for the benchmarks, so two runs (and the committed baseline) measure the
+ * same inputs.
+ * <p>
+ * A document has {@code fields} fields {@code f0, f1, ...}: even ones hold numbers, odd ones short strings. With the
+ * {@link Shape#NESTED} shape every field sits two objects deep ({@code n1.m2.f5}). An expression has {@code size}
+ * comparisons on randomly picked fields of such a document, joined by randomly picked AND/OR and grouped in
+ * parentheses {@code depth} levels deep.
+ */
+public final class Workloads {
+
+    public enum Mix {
+        // == and != on numbers and strings
+        EQUALITY,
+        // <, <=, >, >= on numbers
+        ORDERING,
+        // both, alternating
+        MIXED
+    }
+
+    public enum Shape {
+        FLAT,
+        NESTED
+    }
+
+    private static final long SEED = 42;
+
+    private static final String[] EQUALITY_OPERATORS = {"==", "!="};
+
+    private static final String[] ORDERING_OPERATORS = {"<", "<=", ">", ">="};
+
+    private Workloads() {
+    }
+
+    public static String expression(int size, int depth, Mix mix, Shape shape, int fields) {
+        Random random = new Random(SEED);
+        List<String> comparisons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            boolean ordering = mix == Mix.ORDERING || (mix == Mix.MIXED && i % 2 == 1);
+            comparisons.add(comparison(random, ordering, shape, fields));
+        }
+        return group(comparisons, depth, random);
+    }
+
+    /**
+     * {@code count} expressions like {@link #expression}, drawn one after another from the same seed, so they differ
+     * in their fields, operators and literals.
+     */
+    public static List<String> expressions(int count, int size, int depth, Mix mix, Shape shape, int fields) {
+        Random random = new Random(SEED);
+        List<String> expressions = new ArrayList<>(count);
+        for (int e = 0; e < count; e++) {
+            List<String> comparisons = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                boolean ordering = mix == Mix.ORDERING || (mix == Mix.MIXED && i % 2 == 1);
+                comparisons.add(comparison(random, ordering, shape, fields));
+            }
+            expressions.add(group(comparisons, depth, random));
+        }
+        return expressions;
+    }
+
+    public static String document(Shape shape, int fields) {
+        ObjectNode root = JsonNodeFactory.instance.objectNode();
+        for (int i = 0; i < fields; i++) {
+            ObjectNode parent = shape == Shape.NESTED ? child(child(root, "n" + i % 4), "m" + i % 3) : root;
+            if (i % 2 == 0) {
+                parent.put("f" + i, numberValue(i));
+            } else {
+                parent.put("f" + i, stringValue(i));
+            }
+        }
+        return root.toString();
+    }
+
+    /**
+     * {@code count} documents shaped like {@link #document(Shape, int)}, whose numbers vary around the literals of
+     * {@link #expression} and whose strings match them about half of the time, so every comparison is true for some
+     * rows and false for others.
+     */
+    public static List<String> documents(Shape shape, int fields, int count) {
+        Random random = new Random(SEED);
+        List<String> documents = new ArrayList<>(count);
+        for (int d = 0; d < count; d++) {
+            ObjectNode root = JsonNodeFactory.instance.objectNode();
+            for (int i = 0; i < fields; i++) {
+                ObjectNode parent = shape == Shape.NESTED ? child(child(root, "n" + i % 4), "m" + i % 3) : root;
+                if (i % 2 == 0) {
+                    parent.put("f" + i, numberValue(i) + random.nextInt(21) - 10);
+                } else {
+                    parent.put("f" + i, stringValue(random.nextBoolean() ? i : i + 1));
+                }
+            }
+            documents.add(root.toString());
+        }
+        return documents;
+    }
+
+    private static ObjectNode child(ObjectNode parent, String name) {
+        ObjectNode child = (ObjectNode) parent.get(name);
+        return child != null ? child : parent.putObject(name);
+    }
+
+    private static String comparison(Random random, boolean ordering, Shape shape, int fields) {
+        // ordering comparisons only pick number fields
+        int field = ordering ? 2 * random.nextInt((fields + 1) / 2) : random.nextInt(fields);
+        String path = path(field, shape);
+        if (ordering) {
+            String op = ORDERING_OPERATORS[random.nextInt(ORDERING_OPERATORS.length)];
+            // the tokenizer has no negative numbers
+            return path + " " + op + " " + Math.max(0, numberValue(field) + random.nextInt(21) - 10);
+        }
+        String op = EQUALITY_OPERATORS[random.nextInt(EQUALITY_OPERATORS.length)];
+        // a literal that matches half of the time
+        if (field % 2 == 0) {
+            return path + " " + op + " " + (random.nextBoolean() ? numberValue(field) : numberValue(field) + 1);
+        }
+        return path + " " + op + " \"" + (random.nextBoolean() ? stringValue(field) : stringValue(field + 1)) + "\"";
+    }
+
+    private static String group(List<String> comparisons, int depth, Random random) {
+        if (depth <= 1 || comparisons.size() < 2) {
+            StringBuilder builder = new StringBuilder(comparisons.get(0));
+            for (int i = 1; i < comparisons.size(); i++) {
+                builder.append(random.nextBoolean() ? " AND " : " OR ").append(comparisons.get(i));
+            }
+            return builder.toString();
+        }
+        int half = comparisons.size() / 2;
+        return "(" + group(comparisons.subList(0, half), depth - 1, random) + ")"
+                + (random.nextBoolean() ? " AND " : " OR ")
+                + "(" + group(comparisons.subList(half, comparisons.size()), depth - 1, random) + ")";
+    }
+
+    private static String path(int field, Shape shape) {
+        return shape == Shape.NESTED ? "n" + field % 4 + ".m" + field % 3 + ".f" + field : "f" + field;
+    }
+
+    private static int numberValue(int field) {
+        return field * 7 % 100;
+    }
+
+    private static String stringValue(int field) {
+        return "v" + field % 5;
+    }
+}
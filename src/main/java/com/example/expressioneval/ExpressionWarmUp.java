@@ -0,0 +1,305 @@
+package com.example.expressioneval;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.value.Values;
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.AstStore;
+import com.example.expressioneval.service.EvaluationExecutor;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.RuleEvaluationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional warm-up after a restart, so the first requests do not pay for cold caches and an unwarmed JIT.
+ * <p>
+ * Runs on {@link ApplicationReadyEvent}. The listener runs synchronously and Spring Boot only switches the readiness
+ * state to {@code ACCEPTING_TRAFFIC} after all ready listeners have returned, so {@code /actuator/health/readiness}
+ * reports the application as out of service until the warm-up is done. Stored expressions are read in id order, page
+ * by page; compiling them into the {@link ExpressionCache} and the synthetic evaluations run in parallel on the
+ * {@link EvaluationExecutor}. The shared ASTs of a page are read with one query before it is handed out, and
+ * expressions sharing an interned predicate are only evaluated once. The rule set of the {@link RuleEvaluationService}
+ * is built at the end. A failing expression is counted and skipped. Progress and timings are exposed on
+ * {@code /actuator/warmup} and as the {@code expression.warmup} timer.
+ */
+@Component
+@Endpoint(id = "warmup")
+public class ExpressionWarmUp {
+
+    public enum State {
+        DISABLED, RUNNING, COMPLETED, FAILED
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ExpressionWarmUp.class);
+
+    private final LogicalExpressionRepository repository;
+
+    private final ExpressionCache expressionCache;
+
+    private final AstStore astStore;
+
+    private final RuleEvaluationService ruleEvaluationService;
+
+    private final EvaluationExecutor evaluationExecutor;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+
+    private final int pageSize;
+
+    private final int evaluations;
+
+    private volatile Stats stats = new Stats(State.DISABLED, 0, 0, 0, 0, 0, 0);
+
+    public ExpressionWarmUp(LogicalExpressionRepository repository, ExpressionCache expressionCache,
+                            AstStore astStore, RuleEvaluationService ruleEvaluationService, EvaluationExecutor evaluationExecutor,
+                            MeterRegistry meterRegistry,
+                            @Value("${expression.warmup.enabled:false}") boolean enabled,
+                            @Value("${expression.warmup.page-size:500}") int pageSize,
+                            @Value("${expression.warmup.evaluations:20}") int evaluations) {
+        this.repository = repository;
+        this.expressionCache = expressionCache;
+        this.astStore = astStore;
+        this.ruleEvaluationService = ruleEvaluationService;
+        this.evaluationExecutor = evaluationExecutor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.pageSize = Math.max(1, pageSize);
+        this.evaluations = Math.max(0, evaluations);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Stats current = stats;
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("state", current.state);
+        response.put("expressions", current.expressions);
+        response.put("failed", current.failed);
+        response.put("evaluations", current.evaluations);
+        response.put("prepareMillis", TimeUnit.NANOSECONDS.toMillis(current.prepareNanos));
+        response.put("evaluateMillis", TimeUnit.NANOSECONDS.toMillis(current.evaluateNanos));
+        response.put("totalMillis", TimeUnit.NANOSECONDS.toMillis(current.totalNanos));
+        return response;
+    }
+
+    /**
+     * Compiles every stored expression into the cache and runs the synthetic evaluations.
+     *
+     * @return the same statistics as {@link #stats()}
+     */
+    public Map<String, Object> warmUp() {
+        stats = new Stats(State.RUNNING, 0, 0, 0, 0, 0, 0);
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        Set<ExpressionPredicate> evaluated = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        Deque<Future<Progress>> inFlight = new ArrayDeque<>();
+        try {
+            int maxInFlight = evaluationExecutor.parallelism() * 2;
+            long lastId = Long.MIN_VALUE;
+            while (true) {
+                List<LogicalExpression> page = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastId = page.get(page.size() - 1).getId();
+                astStore.preload(page);
+                inFlight.add(evaluationExecutor.executor().submit(() -> warmUp(page, evaluated)));
+                if (inFlight.size() >= maxInFlight) {
+                    progress.add(await(inFlight.poll()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                progress.add(await(inFlight.poll()));
+            }
+            long rulesStart = System.nanoTime();
+            try {
+                ruleEvaluationService.stats();
+            } catch (RuntimeException e) {
+                // rule evaluation reports the broken row itself, the cache is warm regardless
+                log.warn("Could not build the rule set: {}", e.getMessage());
+            }
+            progress.prepareNanos += System.nanoTime() - rulesStart;
+        } catch (RuntimeException e) {
+            stats = progress.toStats(State.FAILED, System.nanoTime() - start);
+            log.error("Warm-up failed after {} expressions", progress.expressions, e);
+            return stats();
+        } finally {
+            // only left over if the warm-up failed, its remaining pages are not compiled
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        stats = progress.toStats(State.COMPLETED, System.nanoTime() - start);
+        record(stats);
+        log.info("Warm-up compiled {} expressions ({} failed) and ran {} evaluations in {} ms",
+                progress.expressions, progress.failed, progress.evaluations, TimeUnit.NANOSECONDS.toMillis(stats.totalNanos));
+        return stats();
+    }
+
+    private Progress warmUp(List<LogicalExpression> page, Set<ExpressionPredicate> evaluated) {
+        Progress progress = new Progress();
+        for (LogicalExpression expr : page) {
+            long prepareStart = System.nanoTime();
+            CompiledExpression compiled;
+            try {
+                compiled = expressionCache.preload(expr);
+                progress.expressions++;
+            } catch (RuntimeException e) {
+                progress.failed++;
+                log.warn("Could not warm up expression {}: {}", expr.getId(), e.getMessage());
+                continue;
+            } finally {
+                progress.prepareNanos += System.nanoTime() - prepareStart;
+            }
+            // sampling would skew the plan of an adaptive expression towards the synthetic documents
+            if (compiled.getEvaluationMode() != EvaluationMode.ADAPTIVE && evaluations > 0
+                    && evaluated.add(compiled.getPredicate())) {
+                long evaluateStart = System.nanoTime();
+                String[] documents = syntheticDocuments(compiled.getAst());
+                for (int i = 0; i < evaluations; i++) {
+                    try {
+                        compiled.getPredicate().test(compiled.getDocumentReader().read(documents[i % documents.length]));
+                    } catch (RuntimeException e) {
+                        // type mismatches are expected on synthetic documents, the error path is warmed up as well
+                    }
+                }
+                progress.evaluations += evaluations;
+                progress.evaluateNanos += System.nanoTime() - evaluateStart;
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * An empty document, where every path is missing, and one where each field compared with a literal holds that
+     * literal, so both branches of the comparisons get executed.
+     */
+    static String[] syntheticDocuments(Parser.ASTNode ast) {
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        fill(ast, document);
+        return new String[]{document.toString(), "{}"};
+    }
+
+    private static void fill(Parser.ASTNode node, ObjectNode document) {
+        if (node instanceof Parser.NaryOpNode naryNode) {
+            for (Parser.ASTNode operand : naryNode.getOperands()) {
+                fill(operand, document);
+            }
+        } else if (node instanceof Parser.BinaryOpNode binaryNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            if (operator != null && operator.isLogical()) {
+                fill(binaryNode.getLeft(), document);
+                fill(binaryNode.getRight(), document);
+            } else if (binaryNode.getLeft() instanceof Parser.ValueNode valueNode
+                    && Parser.ASTNode.isLiteral(binaryNode.getRight())) {
+                put(document, valueNode.getValue(), Values.literal(binaryNode.getRight()));
+            } else if (binaryNode.getRight() instanceof Parser.ValueNode valueNode
+                    && Parser.ASTNode.isLiteral(binaryNode.getLeft())) {
+                put(document, valueNode.getValue(), Values.literal(binaryNode.getLeft()));
+            }
+        } else if (node instanceof Parser.ValueNode valueNode) {
+            put(document, valueNode.getValue(), JsonNodeFactory.instance.booleanNode(true));
+        }
+    }
+
+    // a.b.c becomes {"a": {"b": {"c": value}}}, the first value for a path wins
+    private static void put(ObjectNode document, String path, JsonNode value) {
+        String[] names = path.split("\\.");
+        ObjectNode parent = document;
+        for (int i = 0; i < names.length - 1; i++) {
+            JsonNode child = parent.get(names[i]);
+            if (child == null) {
+                parent = parent.putObject(names[i]);
+            } else if (child instanceof ObjectNode objectNode) {
+                parent = objectNode;
+            } else {
+                return;
+            }
+        }
+        if (!parent.has(names[names.length - 1])) {
+            parent.set(names[names.length - 1], value);
+        }
+    }
+
+    private void record(Stats stats) {
+        Timer.builder("expression.warmup").tag("phase", "prepare").register(meterRegistry)
+                .record(stats.prepareNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("expression.warmup").tag("phase", "evaluate").register(meterRegistry)
+                .record(stats.evaluateNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("expression.warmup").tag("phase", "total").register(meterRegistry)
+                .record(stats.totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Progress await(Future<Progress> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Warm-up was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new EvaluationException("Warm-up failed", e.getCause());
+        }
+    }
+
+    private record Stats(State state, long expressions, long failed, long evaluations,
+                         long prepareNanos, long evaluateNanos, long totalNanos) {
+    }
+
+    // prepare and evaluate times are summed over the worker threads
+    private static class Progress {
+        long expressions;
+        long failed;
+        long evaluations;
+        long prepareNanos;
+        long evaluateNanos;
+
+        void add(Progress other) {
+            expressions += other.expressions;
+            failed += other.failed;
+            evaluations += other.evaluations;
+            prepareNanos += other.prepareNanos;
+            evaluateNanos += other.evaluateNanos;
+        }
+
+        Stats toStats(State state, long totalNanos) {
+            return new Stats(state, expressions, failed, evaluations, prepareNanos, evaluateNanos, totalNanos);
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.example.expressioneval.analysis;
 
+import com.example.expressioneval.analysis.value.Values;
 import com.example.expressioneval.exception.exceptions.EvaluationException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Component;
 
-import java.util.Objects;
+import java.io.IOException;
 
 @Component
 public class Evaluator {
@@ -14,14 +15,29 @@ public class Evaluator {
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public boolean evaluate(Parser.ASTNode node, String json) {
+        return evaluateNode(node, readDocument(json));
+    }
+
+    public boolean evaluate(Parser.ASTNode node, JsonNode rootNode) {
+        return evaluateNode(node, rootNode);
+    }
+
+    public JsonNode readDocument(String json) {
         try {
-            JsonNode rootNode = objectMapper.readTree(json);
-            return evaluateNode(node, rootNode);
+            return objectMapper.readTree(json);
         } catch (JsonProcessingException e) {
             throw new EvaluationException("Failed to parse JSON", e);
         }
     }
 
+    public JsonNode readDocument(byte[] json, int offset, int length) {
+        try {
+            return objectMapper.readTree(json, offset, length);
+        } catch (IOException e) {
+            throw new EvaluationException("Failed to parse JSON", e);
+        }
+    }
+
     private boolean evaluateNode(Parser.ASTNode node, JsonNode jsonNode) {
         if (node instanceof Parser.BinaryOpNode binaryNode) {
             return switch (binaryNode.getOp()) {
@@ -31,72 +47,60 @@ public class Evaluator {
                 case "OR" ->
                         evaluateNode(binaryNode.getLeft(), jsonNode) || evaluateNode(binaryNode.getRight(), jsonNode);
 
-                // // for equality and inequality checks, fetch and compare the values
+                // for the comparisons, fetch both values and compare them by type (see Values)
                 case "==" ->
-                        Objects.equals(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
+                        Values.equal(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
                 case "!=" ->
-                        !Objects.equals(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
-
-                // for the cases below, we compare numbers only
+                        !Values.equal(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
                 case "<" ->
-                        getNumericValue(binaryNode.getLeft(), jsonNode) < getNumericValue(binaryNode.getRight(), jsonNode);
+                        Values.lessThan(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
                 case "<=" ->
-                        getNumericValue(binaryNode.getLeft(), jsonNode) <= getNumericValue(binaryNode.getRight(), jsonNode);
+                        Values.lessOrEqual(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
                 case ">" ->
-                        getNumericValue(binaryNode.getLeft(), jsonNode) > getNumericValue(binaryNode.getRight(), jsonNode);
+                        Values.greaterThan(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
                 case ">=" ->
-                        getNumericValue(binaryNode.getLeft(), jsonNode) >= getNumericValue(binaryNode.getRight(), jsonNode);
+                        Values.greaterOrEqual(getValueFromNode(binaryNode.getLeft(), jsonNode), getValueFromNode(binaryNode.getRight(), jsonNode));
                 default -> throw new EvaluationException("Unknown operator: " + binaryNode.getOp());
             };
+        } else if (node instanceof Parser.NaryOpNode naryNode) {
+            return switch (naryNode.getOp()) {
+                case "AND" -> allOf(naryNode, jsonNode);
+                case "OR" -> anyOf(naryNode, jsonNode);
+                default -> throw new EvaluationException("Unknown operator: " + naryNode.getOp());
+            };
         } else {
             // for cases like stand-alone true or false
-            return Objects.requireNonNull(getValueFromNode(node, jsonNode), "Node value is null").equalsIgnoreCase("true");
+            return Values.truthy(getValueFromNode(node, jsonNode));
         }
     }
 
-    private String getValueFromNode(Parser.ASTNode node, JsonNode jsonNode) {
-        try {
-            if (node instanceof Parser.ValueNode valueNode) {
-                // fetch data from JSON
-                JsonNode targetNode = jsonNode.at("/" + valueNode.getValue().replace('.', '/'));
-                if (targetNode.isNull() || targetNode.isMissingNode()) {
-                    return null;
-                }
-                return targetNode.asText();
-
-            }
-            // get the string value
-            else if (node instanceof Parser.StringNode) {
-                return ((Parser.StringNode) node).getValue();
-            }
-            // get number value as string
-            else if (node instanceof Parser.NumberNode) {
-                return String.valueOf(((Parser.NumberNode) node).getValue());
-            }
-            // get null
-            else if (node instanceof Parser.NullNode) {
-                return null;
-            }
-            // get boolean value as string
-            else if (node instanceof Parser.BooleanNode) {
-                return String.valueOf(((Parser.BooleanNode) node).getValue());
+    private boolean allOf(Parser.NaryOpNode naryNode, JsonNode jsonNode) {
+        for (Parser.ASTNode operand : naryNode.getOperands()) {
+            if (!evaluateNode(operand, jsonNode)) {
+                return false;
             }
-            throw new EvaluationException("Unknown node type for fetching value: " + node.getClass());
-        } catch (Exception e) {
-            throw new EvaluationException("Error fetching value from node", e);
         }
+        return true;
     }
 
-    private double getNumericValue(Parser.ASTNode node, JsonNode jsonNode) {
-        try {
-            // get the value like before but transform it to a number
-            String value = getValueFromNode(node, jsonNode);
-            if (value == null) {
-                throw new EvaluationException("Numeric value is null");
+    private boolean anyOf(Parser.NaryOpNode naryNode, JsonNode jsonNode) {
+        for (Parser.ASTNode operand : naryNode.getOperands()) {
+            if (evaluateNode(operand, jsonNode)) {
+                return true;
             }
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            throw new EvaluationException("Failed to convert string to number", e);
         }
+        return false;
+    }
+
+    private JsonNode getValueFromNode(Parser.ASTNode node, JsonNode jsonNode) {
+        if (node instanceof Parser.ValueNode valueNode) {
+            // fetch data from JSON, a missing path gives a MissingNode
+            return jsonNode.at("/" + valueNode.getValue().replace('.', '/'));
+        }
+        if (node instanceof Parser.BinaryOpNode || node instanceof Parser.NaryOpNode) {
+            return Values.unsupportedOperand(String.valueOf(node.getClass()));
+        }
+        // literals (string, number, boolean, null)
+        return Values.literal(node);
     }
 }
@@ -0,0 +1,12 @@
+package com.example.expressioneval.analysis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Executable form of a parsed expression, evaluated against an already parsed JSON document.
+ * Implementations must be stateless so one instance can be shared by concurrent requests.
+ */
+@FunctionalInterface
+public interface ExpressionPredicate {
+    boolean test(JsonNode root);
+}
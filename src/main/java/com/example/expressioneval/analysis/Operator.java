@@ -0,0 +1,54 @@
+package com.example.expressioneval.analysis;
+
+/**
+ * Operators of {@link Parser.BinaryOpNode}, resolved once instead of switching on the operator string per evaluation.
+ */
+public enum Operator {
+    AND("AND"),
+    OR("OR"),
+    EQ("=="),
+    NEQ("!="),
+    LT("<"),
+    LEQ("<="),
+    GT(">"),
+    GEQ(">=");
+
+    private final String symbol;
+
+    Operator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public boolean isLogical() {
+        return this == AND || this == OR;
+    }
+
+    /**
+     * @return the operator giving the same result with both operands swapped, e.g. {@code >} for {@code <}
+     */
+    public Operator flipped() {
+        return switch (this) {
+            case LT -> GT;
+            case LEQ -> GEQ;
+            case GT -> LT;
+            case GEQ -> LEQ;
+            default -> this;
+        };
+    }
+
+    /**
+     * @return the operator for the given symbol, or null if the symbol is unknown
+     */
+    public static Operator fromSymbol(String symbol) {
+        for (Operator operator : values()) {
+            if (operator.symbol.equals(symbol)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+}
@@ -1,147 +1,175 @@
 package com.example.expressioneval.analysis;
 
 import com.example.expressioneval.exception.exceptions.ParseException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.math.BigInteger;
 import java.util.*;
 
 
-// note: comments are a bit verbose, but I kept them as this can be complex to go over
+/**
+ * Builds the AST from the tokenizer output.
+ * <p>
+ * OR binds weakest, then AND, then the comparisons; all of them are left associative and a comparison operand is
+ * either a value or a parenthesized expression. Parsing uses precedence climbing with explicit operand and operator
+ * stacks instead of recursion, so deeply nested parentheses cannot overflow the thread stack, and all state is local
+ * to a call, so one instance is shared by all requests.
+ * <p>
+ * Operands are validated at the same points a recursive descent parser would reach them: the left operand of AND/OR
+ * when the operator is consumed, the right operand of an operator when it is reduced, which happens as soon as the
+ * token after the operand is seen. That keeps the messages and indexes of {@link ParseException} stable.
+ */
 @Component
-@Scope("prototype")
 public class Parser {
 
-    private ArrayList<Tokenizer.Token> tokens;
-    private int index = 0;
+    private static final Tokenizer.TokenType[] TYPES = Tokenizer.TokenType.values();
 
-    public ASTNode parse(ArrayList<Tokenizer.Token> tokens) {
-        this.tokens = tokens;
-        this.index = 0;
+    private static final int T_LPAREN = Tokenizer.TokenType.T_LPAREN.ordinal();
+    private static final int T_RPAREN = Tokenizer.TokenType.T_RPAREN.ordinal();
 
-        ASTNode result = expression();
-        if (peek() != null) {
-            throw new ParseException("Unexpected token " + peek().type.name() + " at index " + index, index);
-        }
-        return result;
+    // marks an open parenthesis on the operator stack
+    private static final int OPEN_PAREN = -1;
+
+    private static final int PRECEDENCE_OR = 1;
+    private static final int PRECEDENCE_AND = 2;
+    private static final int PRECEDENCE_COMPARISON = 3;
+
+    // by token type ordinal, tokens that are no binary operator have precedence 0
+    private static final int[] PRECEDENCE = new int[TYPES.length];
+    private static final String[] OPERATOR = new String[TYPES.length];
+
+    static {
+        operator(Tokenizer.TokenType.T_OR, "OR", PRECEDENCE_OR);
+        operator(Tokenizer.TokenType.T_AND, "AND", PRECEDENCE_AND);
+        operator(Tokenizer.TokenType.T_EQ, "==", PRECEDENCE_COMPARISON);
+        operator(Tokenizer.TokenType.T_NEQ, "!=", PRECEDENCE_COMPARISON);
+        operator(Tokenizer.TokenType.T_LT, "<", PRECEDENCE_COMPARISON);
+        operator(Tokenizer.TokenType.T_LEQ, "<=", PRECEDENCE_COMPARISON);
+        operator(Tokenizer.TokenType.T_GT, ">", PRECEDENCE_COMPARISON);
+        operator(Tokenizer.TokenType.T_GEQ, ">=", PRECEDENCE_COMPARISON);
     }
 
-    private ASTNode expression() {
-        return binaryOperation(this::term, Tokenizer.TokenType.T_OR, "OR"); // expression (OR) dissolves into term (AND)
+    private static void operator(Tokenizer.TokenType type, String op, int precedence) {
+        OPERATOR[type.ordinal()] = op;
+        PRECEDENCE[type.ordinal()] = precedence;
     }
 
-    private ASTNode term() {
-        return binaryOperation(this::comparison, Tokenizer.TokenType.T_AND, "AND"); // term (AND) dissolves into comparison (==, !=, ...)
+    public ASTNode parse(TokenStream tokens) {
+        return parse(new StreamTokens(tokens));
     }
 
-    private ASTNode binaryOperation(ParserFunction nextFunction, Tokenizer.TokenType tokenType, String operand) {
-        ASTNode node = nextFunction.invoke(); // either call term() or comparison()
-        while (consume(tokenType) != null) {
-            validateOperand(node, operand); // validate the operation
-            ASTNode rightNode = nextFunction.invoke(); // left operand is obtained, now find the right node
-            validateOperand(rightNode, operand); // validate the operation
-            node = new BinaryOpNode(operand, node, rightNode); // we have left and right node, continue if tokenType is still equal
-            // to the provided one
-        }
-        return node;
+    public ASTNode parse(List<Tokenizer.Token> tokens) {
+        return parse(new ListTokens(tokens));
     }
 
-    private ASTNode comparison() {
-        ASTNode node = primary(); // comparison can be done only on primaries (expressions (with parentheses) and basic values)
+    private ASTNode parse(Tokens tokens) {
+        int size = tokens.size();
+        Stacks stacks = new Stacks();
+        int index = 0;
+
         while (true) {
-            Tokenizer.TokenType nextOp = peekType(); // check next operator
-            if (nextOp == null) { // we are done
-                return node;
+            // an operand is expected: any number of open parentheses followed by a value
+            while (index < size && tokens.typeCode(index) == T_LPAREN) {
+                stacks.pushOperator(OPEN_PAREN);
+                index++;
             }
-            switch (nextOp) { // try to match the nextOp with available operators
-                case T_EQ:
-                    node = binaryOpNode("==", node);
-                    break;
-                case T_NEQ:
-                    node = binaryOpNode("!=", node);
-                    break;
-                case T_LT:
-                    node = binaryOpNode("<", node);
-                    break;
-                case T_LEQ:
-                    node = binaryOpNode("<=", node);
-                    break;
-                case T_GT:
-                    node = binaryOpNode(">", node);
-                    break;
-                case T_GEQ:
-                    node = binaryOpNode(">=", node);
-                    break;
-                default:
-                    return node; // if there isn't any operators (==, !=, ...), exit the loop
+            stacks.pushOperand(value(tokens, index));
+            index++;
+            ASTNode operand = stacks.peekOperand();
+            // this is to not allow single instances of strings, numbers and nulls
+            if ((operand instanceof StringNode || operand instanceof NumberNode || operand instanceof NullNode)
+                    && index == 1 && size == 1) {
+                throw new ParseException("Unexpected token type at index " + index, index);
             }
-        }
-    }
-
 
-    private ASTNode binaryOpNode(String op, ASTNode left) {
-        consume(peekType()); // consume the operator (==, != ...)
-        ASTNode right = primary(); // right operator is primary (either (...) or a plain value)
-        if (!areCompatibleForComparison(left, right)) { // compare operands ( e.g. number cant be equal to string)
-            throw new ParseException("Incompatible types for comparison at index " + index, index);
+            // an operand was read: reduce what binds at least as tight as the next operator, then shift the operator
+            while (true) {
+                int type = index < size ? tokens.typeCode(index) : -1;
+                int precedence = type >= 0 ? PRECEDENCE[type] : 0;
+                while (stacks.operatorCount > 0 && stacks.peekOperator() != OPEN_PAREN
+                        && PRECEDENCE[stacks.peekOperator()] >= precedence) {
+                    reduce(stacks, index);
+                }
+                if (precedence > 0) {
+                    index++;
+                    if (precedence != PRECEDENCE_COMPARISON) {
+                        validateOperand(stacks.peekOperand(), OPERATOR[type], index);
+                    }
+                    stacks.pushOperator(type);
+                    break;
+                }
+                // no operator: either a parenthesized expression or the whole input is complete
+                if (stacks.operatorCount > 0) {
+                    if (type != T_RPAREN) {
+                        throw new ParseException("Expected token of type T_RPAREN but found " + (type >= 0 ? TYPES[type] : null), index);
+                    }
+                    stacks.operatorCount--;
+                    index++;
+                    continue;
+                }
+                if (index < size) {
+                    throw new ParseException("Unexpected token " + TYPES[type].name() + " at index " + index, index);
+                }
+                return stacks.peekOperand();
+            }
         }
-        return new BinaryOpNode(op, left, right);
     }
 
-    private ASTNode primary() {
-        // primary can either be another expression in ()
-        if (consume(Tokenizer.TokenType.T_LPAREN) != null) {
-            ASTNode node = expression();
-            expect(Tokenizer.TokenType.T_RPAREN);
-            return node;
-        }
-
-        // or primary can be a simple value
-        ASTNode toReturn = value();
-        // this is to not allow single instances of strings, numbers and nulls
-        if ((toReturn instanceof StringNode || toReturn instanceof NumberNode || toReturn instanceof NullNode)
-                && index == 1 && tokens.size() == 1) {
-            throw new ParseException("Unexpected token type at index " + index, index);
+    private void reduce(Stacks stacks, int index) {
+        int type = stacks.operators[--stacks.operatorCount];
+        ASTNode right = stacks.operands[--stacks.operandCount];
+        ASTNode left = stacks.operands[--stacks.operandCount];
+        String op = OPERATOR[type];
+        if (PRECEDENCE[type] == PRECEDENCE_COMPARISON) {
+            if (!areCompatibleForComparison(left, right)) { // compare operands ( e.g. number cant be equal to string)
+                throw new ParseException("Incompatible types for comparison at index " + index, index);
+            }
+        } else {
+            validateOperand(right, op, index);
         }
-        return toReturn;
+        stacks.pushOperand(new BinaryOpNode(op, left, right));
     }
 
-    private ASTNode value() {
+    private ASTNode value(Tokens tokens, int index) {
         // value cant be dissolved further, return a basic node (variable, boolean, string, number or null)
-
-        Tokenizer.Token t = consume(Tokenizer.TokenType.T_VAR);
-        if (t != null) {
-            return new ValueNode(t.data);
-        }
-
-        if (consume(Tokenizer.TokenType.T_TRUE) != null) {
-            return new BooleanNode(true);
-        }
-
-        if (consume(Tokenizer.TokenType.T_FALSE) != null) {
-            return new BooleanNode(false);
-        }
-
-        t = consume(Tokenizer.TokenType.T_STRING);
-        if (t != null) {
-            return new StringNode(t.data);
+        Tokenizer.TokenType type = index < tokens.size() ? TYPES[tokens.typeCode(index)] : null;
+        if (type != null) {
+            switch (type) {
+                case T_VAR:
+                    return new ValueNode(tokens.text(index));
+                case T_TRUE:
+                    return new BooleanNode(true);
+                case T_FALSE:
+                    return new BooleanNode(false);
+                case T_STRING:
+                    return new StringNode(tokens.text(index));
+                case T_NUM:
+                    return number(tokens.text(index), index + 1);
+                case T_NULL:
+                    return new NullNode();
+                default:
+                    break;
+            }
         }
+        throw new ParseException("Unexpected token type at index " + index, index);
+    }
 
-        t = consume(Tokenizer.TokenType.T_NUM);
-        if (t != null) {
-            return new NumberNode(Integer.parseInt(t.data));
+    private NumberNode number(String data, int index) {
+        // decimals become doubles, everything else must fit into a long
+        if (data.indexOf('.') >= 0) {
+            return new NumberNode(Double.parseDouble(data));
         }
-
-        if (consume(Tokenizer.TokenType.T_NULL) != null) {
-            return new NullNode();
+        try {
+            return new NumberNode(Long.parseLong(data));
+        } catch (NumberFormatException e) {
+            throw new ParseException("Number out of range at index " + index, index);
         }
-
-        throw new ParseException("Unexpected token type at index " + index, index);
     }
 
-    private void validateOperand(ASTNode node, String op) {
+    private void validateOperand(ASTNode node, String op, int index) {
         if (isNotValidLogicalOperand(node)) {
             throw new ParseException("Invalid operand for " + op + " at index " + index, index);
         }
@@ -159,30 +187,81 @@ public class Parser {
                 || (left instanceof NullNode && right instanceof NullNode);
     }
 
-    private Tokenizer.Token peek() {
-        return index < tokens.size() ? tokens.get(index) : null;
-    }
+    /**
+     * Operand and operator stacks of one parse, growing on the heap with the nesting depth.
+     */
+    private static final class Stacks {
+        ASTNode[] operands = new ASTNode[8];
+        int operandCount;
+        int[] operators = new int[8];
+        int operatorCount;
+
+        void pushOperand(ASTNode node) {
+            if (operandCount == operands.length) {
+                operands = Arrays.copyOf(operands, operandCount * 2);
+            }
+            operands[operandCount++] = node;
+        }
 
-    private Tokenizer.Token consume(Tokenizer.TokenType tt) {
-        if (index < tokens.size() && tokens.get(index).type == tt) {
-            return tokens.get(index++);
+        ASTNode peekOperand() {
+            return operands[operandCount - 1];
         }
-        return null;
-    }
 
-    private void expect(Tokenizer.TokenType tt) {
-        if (consume(tt) == null) {
-            throw new ParseException("Expected token of type " + tt.name() + " but found " + peekType(), index);
+        void pushOperator(int type) {
+            if (operatorCount == operators.length) {
+                operators = Arrays.copyOf(operators, operatorCount * 2);
+            }
+            operators[operatorCount++] = type;
+        }
+
+        int peekOperator() {
+            return operators[operatorCount - 1];
         }
     }
 
-    private Tokenizer.TokenType peekType() {
-        return index < tokens.size() ? tokens.get(index).type : null;
+    /**
+     * Read access to either form of the tokenizer output.
+     */
+    private interface Tokens {
+        int size();
+
+        int typeCode(int index);
+
+        String text(int index);
     }
 
-    @FunctionalInterface
-    private interface ParserFunction {
-        ASTNode invoke();
+    private record StreamTokens(TokenStream stream) implements Tokens {
+        @Override
+        public int size() {
+            return stream.size();
+        }
+
+        @Override
+        public int typeCode(int index) {
+            return stream.typeCode(index);
+        }
+
+        @Override
+        public String text(int index) {
+            return stream.text(index);
+        }
+    }
+
+    private record ListTokens(List<Tokenizer.Token> list) implements Tokens {
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public int typeCode(int index) {
+            return list.get(index).type.ordinal();
+        }
+
+        @Override
+        public String text(int index) {
+            return list.get(index).data;
+        }
     }
 
 
@@ -194,6 +273,7 @@ public class Parser {
     )
     @JsonSubTypes({
             @JsonSubTypes.Type(value = BinaryOpNode.class, name = "binaryOp"),
+            @JsonSubTypes.Type(value = NaryOpNode.class, name = "naryOp"),
             @JsonSubTypes.Type(value = ValueNode.class, name = "value"),
             @JsonSubTypes.Type(value = StringNode.class, name = "string"),
             @JsonSubTypes.Type(value = NumberNode.class, name = "number"),
@@ -201,6 +281,21 @@ public class Parser {
             @JsonSubTypes.Type(value = BooleanNode.class, name = "booleanNode")
     })
     public static abstract class ASTNode {
+
+        // a number, string, boolean or null written in the expression
+        public static boolean isLiteral(ASTNode node) {
+            return node instanceof NumberNode || node instanceof StringNode
+                    || node instanceof BooleanNode || node instanceof NullNode;
+        }
+    }
+
+    // operands that are AND/OR themselves are wrapped in parentheses
+    private static String operandText(ASTNode operand) {
+        if (operand instanceof NaryOpNode
+                || operand instanceof BinaryOpNode binaryNode && ("AND".equals(binaryNode.op) || "OR".equals(binaryNode.op))) {
+            return "(" + operand + ")";
+        }
+        return String.valueOf(operand);
     }
 
     public static class BinaryOpNode extends ASTNode {
@@ -239,6 +334,53 @@ public class Parser {
         public void setRight(ASTNode right) {
             this.right = right;
         }
+
+        @Override
+        public String toString() {
+            return operandText(left) + " " + op + " " + operandText(right);
+        }
+    }
+
+    /**
+     * AND or OR over more than two operands, evaluated left to right with short-circuiting.
+     * Only produced by the {@link com.example.expressioneval.analysis.optimizer.AstOptimizer}.
+     */
+    public static class NaryOpNode extends ASTNode {
+        String op;
+        List<ASTNode> operands;
+
+        public NaryOpNode(String op, List<ASTNode> operands) {
+            this.op = op;
+            this.operands = operands;
+        }
+
+        public NaryOpNode() {
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public void setOp(String op) {
+            this.op = op;
+        }
+
+        public List<ASTNode> getOperands() {
+            return operands;
+        }
+
+        public void setOperands(List<ASTNode> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(" " + op + " ");
+            for (ASTNode operand : operands) {
+                joiner.add(operandText(operand));
+            }
+            return joiner.toString();
+        }
     }
 
     public static class ValueNode extends ASTNode {
@@ -258,6 +400,11 @@ public class Parser {
         public void setValue(String value) {
             this.value = value;
         }
+
+        @Override
+        public String toString() {
+            return value;
+        }
     }
 
 
@@ -278,30 +425,64 @@ public class Parser {
         public void setValue(String value) {
             this.value = value;
         }
+
+        @Override
+        public String toString() {
+            return value == null ? "null" : "\"" + value + "\"";
+        }
     }
 
     public static class NumberNode extends ASTNode {
-        int value;
+        // either a Long or a Double
+        Number value;
 
-        public NumberNode(int value) {
+        public NumberNode(long value) {
+            this.value = value;
+        }
+
+        public NumberNode(double value) {
             this.value = value;
         }
 
         public NumberNode() {
         }
 
-        public int getValue() {
+        public Number getValue() {
             return value;
         }
 
-        public void setValue(int value) {
-            this.value = value;
+        public void setValue(Number value) {
+            // older ASTs were stored with int values, Jackson hands those over as Integer
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                this.value = value.longValue();
+            } else if (value instanceof BigInteger bigInteger && bigInteger.bitLength() < Long.SIZE) {
+                this.value = bigInteger.longValue();
+            } else if (value != null && !(value instanceof Long)) {
+                this.value = value.doubleValue();
+            } else {
+                this.value = value;
+            }
+        }
+
+        @JsonIgnore
+        public boolean isIntegral() {
+            return value instanceof Long;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
         }
     }
 
     public static class NullNode extends ASTNode {
         public NullNode() {
         }
+
+        @Override
+        public String toString() {
+            return "null";
+        }
     }
 
     public static class BooleanNode extends ASTNode {
@@ -321,6 +502,11 @@ public class Parser {
         public void setValue(boolean value) {
             this.value = value;
         }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
     }
 
 }
@@ -0,0 +1,83 @@
+package com.example.expressioneval.analysis;
+
+import java.util.Arrays;
+
+/**
+ * Compact tokenizer output: one type code plus start/end offsets into the source per token.
+ * Token text is only materialized on request, so scanning allocates a few int arrays instead of
+ * a {@link Tokenizer.Token} and a substring per token.
+ */
+public final class TokenStream {
+
+    private static final Tokenizer.TokenType[] TYPES = Tokenizer.TokenType.values();
+
+    private final String source;
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    TokenStream(String source) {
+        this.source = source;
+        int capacity = Math.max(8, source.length() / 4);
+        this.types = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+    }
+
+    void add(Tokenizer.TokenType type, int start, int end) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the {@link Tokenizer.TokenType} ordinal of the token at the given index
+     */
+    public int typeCode(int index) {
+        return types[index];
+    }
+
+    public Tokenizer.TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * @return offset of the first character of the token in the source, including the opening quote of strings
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @return offset just past the last character of the token in the source
+     */
+    public int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * @return the token data, string literals without their quotes
+     */
+    public String text(int index) {
+        if (types[index] == Tokenizer.TokenType.T_STRING.ordinal()) {
+            return source.substring(starts[index] + 1, ends[index] - 1);
+        }
+        return source.substring(starts[index], ends[index]);
+    }
+}
@@ -4,7 +4,6 @@ import com.example.expressioneval.exception.exceptions.TokenizerException;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.regex.*;
 
 @Component
 public class Tokenizer {
@@ -12,60 +11,165 @@ public class Tokenizer {
     public Tokenizer() {}
 
     public enum TokenType {
-        T_AND("\\bAND\\b"),
-        T_OR("\\bOR\\b"),
-        T_NULL("\\bnull\\b"),
-        T_TRUE("\\btrue\\b"),
-        T_FALSE("\\bfalse\\b"),
-        T_VAR("[a-zA-Z_][a-zA-Z0-9_]*(\\.[a-zA-Z_][a-zA-Z0-9_]*)*"),
-        T_LPAREN("\\("),
-        T_RPAREN("\\)"),
-        T_EQ("=="),
-        T_LEQ("<="),
-        T_GEQ(">="),
-        T_NEQ("!="),
-        T_LT("<"),
-        T_GT(">"),
-        T_STRING("\"[^\"]*\""),
-        T_NUM("\\d+"),
-        T_WHITESPACE("\\s+");
-
-        public final Pattern pattern;
-
-        TokenType(String regex) {
-            this.pattern = Pattern.compile("^" + regex);
-        }
+        T_AND,
+        T_OR,
+        T_NULL,
+        T_TRUE,
+        T_FALSE,
+        T_VAR,
+        T_LPAREN,
+        T_RPAREN,
+        T_EQ,
+        T_LEQ,
+        T_GEQ,
+        T_NEQ,
+        T_LT,
+        T_GT,
+        T_STRING,
+        T_NUM,
+        T_WHITESPACE
     }
 
 
     public ArrayList<Token> tokenize(String inputString) {
-        ArrayList<Token> tokens = new ArrayList<>();
-        String s = inputString;
-        int currentPosition = 0;
-
-        while (!s.isEmpty()) {
-            boolean match = false;
-
-            for (TokenType tt : TokenType.values()) {
-                Matcher m = tt.pattern.matcher(s);
-                if (m.find()) {
-                    match = true;
-                    String tok = m.group().trim();
-                    if(tt != TokenType.T_WHITESPACE) { // Ignore whitespace
-                        tokens.add(new Token(tt, tok));
-                    }
-                    s = m.replaceFirst("");
-                    break;
+        TokenStream stream = scan(inputString);
+        ArrayList<Token> tokens = new ArrayList<>(stream.size());
+        for (int i = 0; i < stream.size(); i++) {
+            // Token strips the quotes of string literals itself
+            tokens.add(new Token(stream.type(i), inputString.substring(stream.start(i), stream.end(i))));
+        }
+        return tokens;
+    }
+
+    /**
+     * Scans the input in a single pass, working on offsets into the original string.
+     * Keywords and variables follow the former regex rules: a keyword must be a whole word
+     * ("ANDD" or "true_x" are variables), variables are dot separated identifiers and numbers are digits with an optional decimal part.
+     * Whitespace is skipped and "&&"/"||" are read as AND/OR.
+     */
+    public TokenStream scan(String input) {
+        TokenStream stream = new TokenStream(input);
+        int length = input.length();
+        int position = 0;
+
+        while (position < length) {
+            char c = input.charAt(position);
+            int start = position;
+
+            if (isWhitespace(c)) {
+                position++;
+                continue;
+            }
+
+            if (isIdentifierStart(c)) {
+                position = wordEnd(input, position);
+                TokenType keyword = keyword(input, start, position);
+                if (keyword != null) {
+                    stream.add(keyword, start, position);
+                    continue;
                 }
+                // continue with ".segment" parts as long as a segment starts right after the dot
+                while (position + 1 < length && input.charAt(position) == '.' && isIdentifierStart(input.charAt(position + 1))) {
+                    position = wordEnd(input, position + 1);
+                }
+                stream.add(TokenType.T_VAR, start, position);
+                continue;
             }
 
-            if (!match) {
-                throw new TokenizerException("Unexpected character sequence in input starting at position: " + currentPosition);
+            if (isDigit(c)) {
+                position = digitsEnd(input, position);
+                // decimal part, only if a digit follows the dot
+                if (position + 1 < length && input.charAt(position) == '.' && isDigit(input.charAt(position + 1))) {
+                    position = digitsEnd(input, position + 1);
+                }
+                stream.add(TokenType.T_NUM, start, position);
+                continue;
+            }
+
+            char next = position + 1 < length ? input.charAt(position + 1) : 0;
+            switch (c) {
+                case '(' -> stream.add(TokenType.T_LPAREN, start, ++position);
+                case ')' -> stream.add(TokenType.T_RPAREN, start, ++position);
+                case '<' -> position = operator(stream, next == '=' ? TokenType.T_LEQ : TokenType.T_LT, start, next == '=');
+                case '>' -> position = operator(stream, next == '=' ? TokenType.T_GEQ : TokenType.T_GT, start, next == '=');
+                case '=' -> position = requireSecond(stream, TokenType.T_EQ, start, next, '=');
+                case '!' -> position = requireSecond(stream, TokenType.T_NEQ, start, next, '=');
+                case '&' -> position = requireSecond(stream, TokenType.T_AND, start, next, '&');
+                case '|' -> position = requireSecond(stream, TokenType.T_OR, start, next, '|');
+                case '"' -> {
+                    int close = input.indexOf('"', start + 1);
+                    if (close < 0) {
+                        throw unexpected(start);
+                    }
+                    position = close + 1;
+                    stream.add(TokenType.T_STRING, start, position);
+                }
+                default -> throw unexpected(start);
             }
-            currentPosition += s.length();
         }
 
-        return tokens;
+        return stream;
+    }
+
+    private static int operator(TokenStream stream, TokenType type, int start, boolean twoCharacters) {
+        int end = start + (twoCharacters ? 2 : 1);
+        stream.add(type, start, end);
+        return end;
+    }
+
+    private static int requireSecond(TokenStream stream, TokenType type, int start, char next, char expected) {
+        if (next != expected) {
+            throw unexpected(start);
+        }
+        return operator(stream, type, start, true);
+    }
+
+    private static TokenType keyword(String input, int start, int end) {
+        return switch (end - start) {
+            case 2 -> input.startsWith("OR", start) ? TokenType.T_OR : null;
+            case 3 -> input.startsWith("AND", start) ? TokenType.T_AND : null;
+            case 4 -> input.startsWith("null", start) ? TokenType.T_NULL
+                    : input.startsWith("true", start) ? TokenType.T_TRUE : null;
+            case 5 -> input.startsWith("false", start) ? TokenType.T_FALSE : null;
+            default -> null;
+        };
+    }
+
+    private static int wordEnd(String input, int position) {
+        int length = input.length();
+        while (position < length && isWordCharacter(input.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int digitsEnd(String input, int position) {
+        int length = input.length();
+        while (position < length && isDigit(input.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // same set as the regex \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static TokenizerException unexpected(int position) {
+        return new TokenizerException("Unexpected character sequence in input starting at position: " + position);
     }
 
     public static class Token {
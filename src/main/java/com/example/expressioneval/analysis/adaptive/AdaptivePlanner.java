@@ -0,0 +1,74 @@
+package com.example.expressioneval.analysis.adaptive;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.optimizer.AstOptimizer;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds {@link AdaptivePredicate}s: AND/OR chains are flattened into groups whose operand order can change,
+ * every other node becomes a prepared leaf.
+ */
+@Component
+public class AdaptivePlanner {
+
+    private final ExpressionPreparer expressionPreparer;
+
+    private final int sampleRate;
+
+    private final int replanInterval;
+
+    public AdaptivePlanner(ExpressionPreparer expressionPreparer,
+                           @Value("${expression.adaptive.sample-rate:64}") int sampleRate,
+                           @Value("${expression.adaptive.replan-interval:256}") int replanInterval) {
+        this.expressionPreparer = expressionPreparer;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.replanInterval = Math.max(1, replanInterval);
+    }
+
+    public AdaptivePredicate plan(Parser.ASTNode ast) {
+        List<AdaptivePredicate.Group> groups = new ArrayList<>();
+        AdaptivePredicate.Node root = node(ast, groups);
+        return new AdaptivePredicate(root, groups, sampleRate, replanInterval);
+    }
+
+    private AdaptivePredicate.Node node(Parser.ASTNode ast, List<AdaptivePredicate.Group> groups) {
+        Operator operator = null;
+        if (ast instanceof Parser.BinaryOpNode binaryNode) {
+            operator = Operator.fromSymbol(binaryNode.getOp());
+        } else if (ast instanceof Parser.NaryOpNode naryNode) {
+            operator = Operator.fromSymbol(naryNode.getOp());
+        }
+        if (operator != null && operator.isLogical()) {
+            List<Parser.ASTNode> chain = new ArrayList<>();
+            flatten(ast, operator, chain);
+            List<AdaptivePredicate.Node> operands = new ArrayList<>(chain.size());
+            for (Parser.ASTNode operand : chain) {
+                operands.add(node(operand, groups));
+            }
+            AdaptivePredicate.Group group = new AdaptivePredicate.Group(groups.size(), operator == Operator.AND, operands);
+            groups.add(group);
+            return group;
+        }
+        return new AdaptivePredicate.Leaf(expressionPreparer.prepare(ast), ast.toString(), AstOptimizer.canFail(ast));
+    }
+
+    // a AND (b AND c) evaluates exactly like a AND b AND c
+    private static void flatten(Parser.ASTNode ast, Operator operator, List<Parser.ASTNode> chain) {
+        if (ast instanceof Parser.BinaryOpNode binaryNode && operator.getSymbol().equals(binaryNode.getOp())) {
+            flatten(binaryNode.getLeft(), operator, chain);
+            flatten(binaryNode.getRight(), operator, chain);
+        } else if (ast instanceof Parser.NaryOpNode naryNode && operator.getSymbol().equals(naryNode.getOp())) {
+            for (Parser.ASTNode operand : naryNode.getOperands()) {
+                flatten(operand, operator, chain);
+            }
+        } else {
+            chain.add(ast);
+        }
+    }
+}
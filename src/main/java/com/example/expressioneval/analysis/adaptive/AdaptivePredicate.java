@@ -0,0 +1,260 @@
+package com.example.expressioneval.analysis.adaptive;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Predicate that reorders the operands of its AND/OR chains by observed selectivity and cost.
+ * <p>
+ * A sample of the evaluations records, for every operand, whether it was true and how long it took. Every
+ * {@code replanInterval} samples the operands are re-ranked (ascending {@code cost / P(false)} for AND,
+ * {@code cost / P(true)} for OR, the order minimizing the expected cost of independent operands) and the new
+ * plan replaces the old one with a single volatile write.
+ * <p>
+ * Only operands that can never fail are moved, and never across an operand that can: skipping a failing operand
+ * by short-circuiting earlier, or reaching one the original order would have short-circuited, would change the
+ * result. Equality comparisons of fields and literals never fail, ordering comparisons and stand-alone values do
+ * (e.g. on a missing field), so those stay where they were written and split the chain into independently
+ * ordered segments.
+ */
+public class AdaptivePredicate implements ExpressionPredicate {
+
+    private final Group[] groups;
+
+    private final Node root;
+
+    private final int sampleRate;
+
+    private final int replanInterval;
+
+    // operand order per group, swapped as a whole
+    private volatile int[][] plan;
+
+    private final LongAdder evaluations = new LongAdder();
+
+    private final AtomicLong samples = new AtomicLong();
+
+    private final AtomicLong replans = new AtomicLong();
+
+    AdaptivePredicate(Node root, List<Group> groups, int sampleRate, int replanInterval) {
+        this.root = root;
+        this.groups = groups.toArray(new Group[0]);
+        this.sampleRate = sampleRate;
+        this.replanInterval = replanInterval;
+        int[][] initial = new int[this.groups.length][];
+        for (Group group : this.groups) {
+            initial[group.id] = identity(group.operands.length);
+        }
+        this.plan = initial;
+    }
+
+    @Override
+    public boolean test(JsonNode document) {
+        evaluations.increment();
+        int[][] current = plan;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return root.test(document, current);
+        }
+        boolean result = root.sample(document, current);
+        if (samples.incrementAndGet() % replanInterval == 0) {
+            replan();
+        }
+        return result;
+    }
+
+    /**
+     * @return the evaluation, sample and re-plan counters and the current plan with per-operand statistics
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("evaluations", evaluations.sum());
+        description.put("samples", samples.get());
+        description.put("replans", replans.get());
+        description.put("plan", root.describe(plan));
+        return description;
+    }
+
+    private synchronized void replan() {
+        int[][] next = new int[groups.length][];
+        for (Group group : groups) {
+            next[group.id] = group.order();
+        }
+        plan = next;
+        replans.incrementAndGet();
+    }
+
+    private static int[] identity(int length) {
+        int[] order = new int[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    interface Node {
+        boolean test(JsonNode document, int[][] plan);
+
+        // evaluates like test() and records operand statistics
+        boolean sample(JsonNode document, int[][] plan);
+
+        boolean canFail();
+
+        Object describe(int[][] plan);
+    }
+
+    record Leaf(ExpressionPredicate predicate, String text, boolean canFail) implements Node {
+        @Override
+        public boolean test(JsonNode document, int[][] plan) {
+            return predicate.test(document);
+        }
+
+        @Override
+        public boolean sample(JsonNode document, int[][] plan) {
+            return predicate.test(document);
+        }
+
+        @Override
+        public Object describe(int[][] plan) {
+            return text;
+        }
+    }
+
+    static class Group implements Node {
+        private final int id;
+        private final boolean and;
+        private final Node[] operands;
+        private final OperandStats[] stats;
+
+        Group(int id, boolean and, List<Node> operands) {
+            this.id = id;
+            this.and = and;
+            this.operands = operands.toArray(new Node[0]);
+            this.stats = new OperandStats[this.operands.length];
+            for (int i = 0; i < stats.length; i++) {
+                stats[i] = new OperandStats();
+            }
+        }
+
+        @Override
+        public boolean test(JsonNode document, int[][] plan) {
+            for (int i : plan[id]) {
+                if (operands[i].test(document, plan) != and) {
+                    return !and;
+                }
+            }
+            return and;
+        }
+
+        @Override
+        public boolean sample(JsonNode document, int[][] plan) {
+            boolean decided = false;
+            for (int i : plan[id]) {
+                // once decided, operands that cannot fail are still evaluated for their statistics
+                if (decided && operands[i].canFail()) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                boolean value = operands[i].sample(document, plan);
+                stats[i].record(value, System.nanoTime() - start);
+                if (value != and) {
+                    decided = true;
+                }
+            }
+            return decided != and;
+        }
+
+        @Override
+        public boolean canFail() {
+            for (Node operand : operands) {
+                if (operand.canFail()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int[] order() {
+            List<Integer> order = new ArrayList<>(operands.length);
+            List<Integer> segment = new ArrayList<>();
+            for (int i = 0; i < operands.length; i++) {
+                if (operands[i].canFail()) {
+                    order.addAll(ranked(segment));
+                    segment.clear();
+                    order.add(i);
+                } else {
+                    segment.add(i);
+                }
+            }
+            order.addAll(ranked(segment));
+            return order.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private List<Integer> ranked(List<Integer> segment) {
+            List<Integer> ranked = new ArrayList<>(segment);
+            ranked.sort(Comparator.comparingDouble(i -> stats[i].rank(and)));
+            return ranked;
+        }
+
+        @Override
+        public Object describe(int[][] plan) {
+            List<Object> described = new ArrayList<>(operands.length);
+            for (int i = 0; i < operands.length; i++) {
+                Map<String, Object> operand = new LinkedHashMap<>();
+                operand.put("operand", operands[i].describe(plan));
+                operand.put("reorderable", !operands[i].canFail());
+                operand.putAll(stats[i].describe());
+                described.add(operand);
+            }
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("op", and ? "AND" : "OR");
+            description.put("order", Arrays.stream(plan[id]).boxed().toList());
+            description.put("operands", described);
+            return description;
+        }
+    }
+
+    private static class OperandStats {
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder trues = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(boolean value, long elapsed) {
+            samples.increment();
+            if (value) {
+                trues.increment();
+            }
+            nanos.add(elapsed);
+        }
+
+        // expected cost per short-circuit, lower runs first; unsampled operands keep their place at the end
+        double rank(boolean and) {
+            long count = samples.sum();
+            if (count == 0) {
+                return Double.MAX_VALUE;
+            }
+            double trueRate = (double) trues.sum() / count;
+            double decisive = and ? 1 - trueRate : trueRate;
+            double cost = Math.max(1.0, (double) nanos.sum() / count);
+            return decisive == 0 ? Double.MAX_VALUE : cost / decisive;
+        }
+
+        Map<String, Object> describe() {
+            long count = samples.sum();
+            Map<String, Object> description = new LinkedHashMap<>();
+            description.put("samples", count);
+            description.put("trueRate", count == 0 ? null : (double) trues.sum() / count);
+            description.put("averageNanos", count == 0 ? null : nanos.sum() / count);
+            return description;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.expressioneval.analysis.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Row sets of a {@link ColumnBatch} as {@code long[]} words, bit {@code i % 64} of word {@code i / 64} is row
+ * {@code i}. Bits past the row count are always clear.
+ */
+public final class Bitmap {
+
+    private Bitmap() {
+    }
+
+    public static long[] empty(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    public static long[] all(int size) {
+        long[] bits = empty(size);
+        Arrays.fill(bits, -1L);
+        if ((size & 63) != 0) {
+            bits[bits.length - 1] = (1L << size) - 1;
+        }
+        return bits;
+    }
+
+    public static boolean get(long[] bits, int row) {
+        return (bits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public static void set(long[] bits, int row) {
+        bits[row >>> 6] |= 1L << row;
+    }
+
+    public static void and(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= other[i];
+        }
+    }
+
+    public static void or(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= other[i];
+        }
+    }
+
+    public static void andNot(long[] target, long[] other) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= ~other[i];
+        }
+    }
+
+    public static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int cardinality(long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return the set rows in ascending order
+     */
+    public static int[] rows(long[] bits) {
+        int[] rows = new int[cardinality(bits)];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                rows[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.example.expressioneval.analysis.value.ValueType;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.util.Arrays;
+
+/**
+ * The values of one JSON path over all rows of a {@link ColumnBatch}, decoded into typed arrays.
+ * <p>
+ * Every row has a {@link ValueType}. Integral numbers are stored in {@link #longs} and, converted, in
+ * {@link #doubles}, decimals only in {@link #doubles}, booleans as 0/1 in {@link #longs}. Strings, decimals and
+ * objects/arrays keep their JSON node, so comparisons the kernels do not cover can fall back to {@link Values} with
+ * exactly the node the row-at-a-time evaluation would see. Rows of each type are also kept as bitmaps.
+ */
+public final class Column {
+
+    private static final ValueType[] TYPES = ValueType.values();
+
+    final int size;
+    final byte[] types;
+    final long[] longs;
+    final double[] doubles;
+    final JsonNode[] nodes;
+
+    final long[] longRows;
+    final long[] numericRows;
+    final long[] booleanRows;
+    final long[] stringRows;
+    final long[] absentRows;
+
+    Column(int size, byte[] types, long[] longs, double[] doubles, JsonNode[] nodes) {
+        this.size = size;
+        this.types = types;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.nodes = nodes;
+        this.longRows = Bitmap.empty(size);
+        this.numericRows = Bitmap.empty(size);
+        this.booleanRows = Bitmap.empty(size);
+        this.stringRows = Bitmap.empty(size);
+        this.absentRows = Bitmap.empty(size);
+        for (int i = 0; i < size; i++) {
+            switch (TYPES[types[i]]) {
+                case LONG -> {
+                    Bitmap.set(longRows, i);
+                    Bitmap.set(numericRows, i);
+                }
+                case DOUBLE -> Bitmap.set(numericRows, i);
+                case BOOLEAN -> Bitmap.set(booleanRows, i);
+                case STRING -> Bitmap.set(stringRows, i);
+                case NULL, MISSING -> Bitmap.set(absentRows, i);
+                default -> {
+                }
+            }
+        }
+    }
+
+    public static Column ofLongs(long[] values) {
+        int size = values.length;
+        byte[] types = new byte[size];
+        Arrays.fill(types, (byte) ValueType.LONG.ordinal());
+        double[] doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = values[i];
+        }
+        return new Column(size, types, values.clone(), doubles, new JsonNode[size]);
+    }
+
+    public static Column ofDoubles(double[] values) {
+        Builder builder = new Builder(values.length);
+        for (double value : values) {
+            builder.add(DoubleNode.valueOf(value));
+        }
+        return builder.build();
+    }
+
+    public static Column ofBooleans(boolean[] values) {
+        Builder builder = new Builder(values.length);
+        for (boolean value : values) {
+            builder.add(BooleanNode.valueOf(value));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param values the strings, {@code null} for a JSON null
+     */
+    public static Column ofStrings(String[] values) {
+        Builder builder = new Builder(values.length);
+        for (String value : values) {
+            builder.add(value == null ? NullNode.getInstance() : TextNode.valueOf(value));
+        }
+        return builder.build();
+    }
+
+    /**
+     * A column of {@code size} missing values, for a path no document of the batch has.
+     */
+    static Column missing(int size) {
+        byte[] types = new byte[size];
+        Arrays.fill(types, (byte) ValueType.MISSING.ordinal());
+        return new Column(size, types, new long[size], new double[size], new JsonNode[size]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ValueType type(int row) {
+        return TYPES[types[row]];
+    }
+
+    /**
+     * @return the value of a row as the JSON node {@link Values} compares
+     */
+    public JsonNode node(int row) {
+        return switch (TYPES[types[row]]) {
+            case LONG -> LongNode.valueOf(longs[row]);
+            case BOOLEAN -> BooleanNode.valueOf(longs[row] != 0);
+            case NULL -> NullNode.getInstance();
+            case MISSING -> MissingNode.getInstance();
+            default -> nodes[row];
+        };
+    }
+
+    /**
+     * Appends rows one JSON value at a time.
+     */
+    public static class Builder {
+        private int size;
+        private byte[] types;
+        private long[] longs;
+        private double[] doubles;
+        private JsonNode[] nodes;
+
+        public Builder(int capacity) {
+            capacity = Math.max(1, capacity);
+            this.types = new byte[capacity];
+            this.longs = new long[capacity];
+            this.doubles = new double[capacity];
+            this.nodes = new JsonNode[capacity];
+        }
+
+        public void add(JsonNode value) {
+            if (size == types.length) {
+                int capacity = size * 2;
+                types = Arrays.copyOf(types, capacity);
+                longs = Arrays.copyOf(longs, capacity);
+                doubles = Arrays.copyOf(doubles, capacity);
+                nodes = Arrays.copyOf(nodes, capacity);
+            }
+            ValueType type = Values.typeOf(value);
+            types[size] = (byte) type.ordinal();
+            switch (type) {
+                case LONG -> {
+                    longs[size] = value.longValue();
+                    doubles[size] = value.doubleValue();
+                }
+                case DOUBLE -> {
+                    doubles[size] = value.doubleValue();
+                    nodes[size] = value;
+                }
+                case BOOLEAN -> longs[size] = value.booleanValue() ? 1 : 0;
+                case STRING, OTHER -> nodes[size] = value;
+                default -> {
+                }
+            }
+            size++;
+        }
+
+        public Column build() {
+            return new Column(size, types, longs, doubles, nodes);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A batch of rows decoded into one {@link Column} per JSON path, the input of {@link ColumnarExpression}.
+ * <p>
+ * A row whose document could not be read has no values; its read error is reported as the row's result.
+ */
+public final class ColumnBatch {
+
+    private final int size;
+
+    private final Map<String, Column> columns;
+
+    private final long[] readErrors;
+
+    private final String[] readErrorMessages;
+
+    private Column missing;
+
+    /**
+     * @param columns the columns by path, each with {@code size} rows; paths without a column are missing in every row
+     */
+    public ColumnBatch(int size, Map<String, Column> columns) {
+        this(size, columns, Bitmap.empty(size), new String[size]);
+    }
+
+    private ColumnBatch(int size, Map<String, Column> columns, long[] readErrors, String[] readErrorMessages) {
+        for (Map.Entry<String, Column> entry : columns.entrySet()) {
+            if (entry.getValue().size() != size) {
+                throw new IllegalArgumentException("Column " + entry.getKey() + " has " + entry.getValue().size()
+                        + " rows instead of " + size);
+            }
+        }
+        this.size = size;
+        this.columns = new HashMap<>(columns);
+        this.readErrors = readErrors;
+        this.readErrorMessages = readErrorMessages;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Column column(String path) {
+        Column column = columns.get(path);
+        if (column != null) {
+            return column;
+        }
+        if (missing == null) {
+            missing = Column.missing(size);
+        }
+        return missing;
+    }
+
+    long[] readErrors() {
+        return readErrors;
+    }
+
+    String readError(int row) {
+        return readErrorMessages[row];
+    }
+
+    /**
+     * Decodes parsed documents row by row into the columns of a fixed set of paths.
+     */
+    public static class Builder {
+        private final Map<String, JsonPointer> pointers = new LinkedHashMap<>();
+        private final Map<String, Column.Builder> columns = new LinkedHashMap<>();
+        private long[] readErrors;
+        private String[] readErrorMessages;
+        private int size;
+
+        public Builder(Collection<String> paths, int capacity) {
+            for (String path : paths) {
+                pointers.put(path, JsonPointer.compile("/" + path.replace('.', '/')));
+                columns.put(path, new Column.Builder(capacity));
+            }
+            this.readErrors = Bitmap.empty(Math.max(1, capacity));
+            this.readErrorMessages = new String[Math.max(1, capacity)];
+        }
+
+        public void add(JsonNode document) {
+            for (Map.Entry<String, JsonPointer> entry : pointers.entrySet()) {
+                columns.get(entry.getKey()).add(document.at(entry.getValue()));
+            }
+            size++;
+        }
+
+        /**
+         * Adds a row for a document that could not be read, evaluating it results in the given error.
+         */
+        public void addError(String message) {
+            int row = size;
+            add(MissingNode.getInstance());
+            if (row >= readErrorMessages.length) {
+                readErrorMessages = Arrays.copyOf(readErrorMessages, Math.max(size, readErrorMessages.length * 2));
+                readErrors = Arrays.copyOf(readErrors, (readErrorMessages.length + 63) >>> 6);
+            }
+            Bitmap.set(readErrors, row);
+            readErrorMessages[row] = message;
+        }
+
+        public ColumnBatch build() {
+            Map<String, Column> built = new HashMap<>();
+            columns.forEach((path, builder) -> built.put(path, builder.build()));
+            long[] errors = Bitmap.empty(size);
+            System.arraycopy(readErrors, 0, errors, 0, Math.min(errors.length, readErrors.length));
+            String[] messages = new String[size];
+            System.arraycopy(readErrorMessages, 0, messages, 0, Math.min(size, readErrorMessages.length));
+            return new ColumnBatch(size, built, errors, messages);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.value.ValueType;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Set;
+
+/**
+ * An expression prepared by {@link ColumnarPreparer} for evaluation over whole {@link ColumnBatch}es.
+ * <p>
+ * Every node takes the bitmap of the rows it is evaluated for and returns the bitmap of the rows it is true for.
+ * AND passes on only the rows its operands so far were true for, OR only those they were false for, and a row that
+ * fails is recorded once and dropped from everything evaluated after it. That is exactly the short-circuiting of the
+ * row-at-a-time evaluation, so a row gets the same result, or the same error, in both.
+ * <p>
+ * Comparisons of a column with a literal run the dense {@link Kernels} over the rows of matching type; rows of other
+ * types, comparisons of two columns and stand-alone values fall back to {@link Values} row by row.
+ */
+public final class ColumnarExpression {
+
+    private static final Kernels KERNELS = Kernels.get();
+
+    private final Node root;
+
+    private final Set<String> paths;
+
+    ColumnarExpression(Node root, Set<String> paths) {
+        this.root = root;
+        this.paths = paths;
+    }
+
+    /**
+     * @return the JSON paths the expression reads, the columns a batch needs
+     */
+    public Set<String> paths() {
+        return paths;
+    }
+
+    public ColumnarResult evaluate(ColumnBatch batch) {
+        int size = batch.size();
+        Errors errors = new Errors(size);
+        long[] active = Bitmap.all(size);
+        long[] readErrors = batch.readErrors();
+        for (int w = 0; w < readErrors.length; w++) {
+            long word = readErrors[w];
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                errors.add(row, batch.readError(row));
+            }
+        }
+        Bitmap.andNot(active, readErrors);
+        long[] matches = root.evaluate(batch, active, errors);
+        return new ColumnarResult(size, matches, errors.rows, errors.messages);
+    }
+
+    /**
+     * Rows that failed, with their error messages.
+     */
+    static final class Errors {
+        final long[] rows;
+        final String[] messages;
+
+        Errors(int size) {
+            this.rows = Bitmap.empty(size);
+            this.messages = new String[size];
+        }
+
+        void add(int row, String message) {
+            Bitmap.set(rows, row);
+            messages[row] = message;
+        }
+
+        /**
+         * Records the same error for every active row.
+         */
+        void addAll(long[] active, String message) {
+            for (int w = 0; w < active.length; w++) {
+                long word = active[w];
+                while (word != 0) {
+                    add((w << 6) + Long.numberOfTrailingZeros(word), message);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    interface Node {
+        /**
+         * @param active the rows to evaluate, never modified
+         * @return the active rows the node is true for, failed rows are added to {@code errors} instead
+         */
+        long[] evaluate(ColumnBatch batch, long[] active, Errors errors);
+    }
+
+    record AllOf(Node[] operands) implements Node {
+        @Override
+        public long[] evaluate(ColumnBatch batch, long[] active, Errors errors) {
+            long[] remaining = active;
+            for (Node operand : operands) {
+                if (Bitmap.isEmpty(remaining)) {
+                    break;
+                }
+                remaining = operand.evaluate(batch, remaining, errors);
+            }
+            return remaining;
+        }
+    }
+
+    record AnyOf(Node[] operands) implements Node {
+        @Override
+        public long[] evaluate(ColumnBatch batch, long[] active, Errors errors) {
+            long[] matched = Bitmap.empty(batch.size());
+            long[] remaining = active.clone();
+            for (Node operand : operands) {
+                if (Bitmap.isEmpty(remaining)) {
+                    break;
+                }
+                long[] result = operand.evaluate(batch, remaining, errors);
+                Bitmap.or(matched, result);
+                Bitmap.andNot(remaining, result);
+                Bitmap.andNot(remaining, errors.rows);
+            }
+            return matched;
+        }
+    }
+
+    /**
+     * A node with the same outcome for every row, e.g. a boolean literal or a comparison that can never be evaluated.
+     *
+     * @param error the error of every row, null if the node does not fail
+     */
+    record Constant(boolean value, String error) implements Node {
+        @Override
+        public long[] evaluate(ColumnBatch batch, long[] active, Errors errors) {
+            if (error != null) {
+                errors.addAll(active, error);
+                return Bitmap.empty(batch.size());
+            }
+            return value ? active.clone() : Bitmap.empty(batch.size());
+        }
+    }
+
+    /**
+     * {@code path op constant}, or {@code constant op path} if {@code constantOnLeft}; {@code op} is the operator as
+     * written, the kernels use it {@link Operator#flipped() flipped} when the constant is on the left.
+     */
+    record CompareConstant(String path, Operator op, JsonNode constant, boolean constantOnLeft) implements Node {
+        @Override
+        public long[] evaluate(ColumnBatch batch, long[] active, Errors errors) {
+            Column column = batch.column(path);
+            int size = batch.size();
+            Operator columnOp = constantOnLeft ? op.flipped() : op;
+            ValueType constantType = Values.typeOf(constant);
+            long[] result = Bitmap.empty(size);
+            long[] fallback = active.clone();
+
+            if (op == Operator.EQ || op == Operator.NEQ) {
+                // equality never fails: compute the rows equal to the constant, NEQ is the complement
+                long[] equal = Bitmap.empty(size);
+                if (constantType.isAbsent()) {
+                    Bitmap.or(equal, column.absentRows);
+                    fallback = Bitmap.empty(size);
+                } else if (constantType.isNumeric()) {
+                    numeric(column, Operator.EQ, constant, constantType, equal);
+                    Bitmap.andNot(fallback, column.numericRows);
+                } else if (constantType == ValueType.BOOLEAN) {
+                    long[] booleans = Bitmap.empty(size);
+                    KERNELS.compare(column.longs, size, Operator.EQ, constant.booleanValue() ? 1 : 0, booleans);
+                    Bitmap.and(booleans, column.booleanRows);
+                    Bitmap.or(equal, booleans);
+                    Bitmap.andNot(fallback, column.booleanRows);
+                } else if (constantType == ValueType.STRING) {
+                    long[] strings = column.stringRows.clone();
+                    Bitmap.and(strings, active);
+                    String text = constant.textValue();
+                    forEach(strings, row -> {
+                        if (text.equals(column.nodes[row].textValue())) {
+                            Bitmap.set(equal, row);
+                        }
+                    });
+                    Bitmap.andNot(fallback, column.stringRows);
+                }
+                // absent values only equal absent constants
+                Bitmap.andNot(fallback, column.absentRows);
+                Bitmap.and(equal, active);
+                forEach(fallback, row -> {
+                    if (Values.equal(column.node(row), constant)) {
+                        Bitmap.set(equal, row);
+                    }
+                });
+                if (op == Operator.EQ) {
+                    return equal;
+                }
+                Bitmap.or(result, active);
+                Bitmap.andNot(result, equal);
+                return result;
+            }
+
+            if (constantType.isNumeric()) {
+                numeric(column, columnOp, constant, constantType, result);
+                Bitmap.and(result, active);
+                Bitmap.andNot(fallback, column.numericRows);
+                long[] absent = column.absentRows.clone();
+                Bitmap.and(absent, active);
+                errors.addAll(absent, "Numeric value is null");
+                Bitmap.andNot(fallback, column.absentRows);
+            }
+            forEach(fallback, row -> {
+                try {
+                    if (compare(row, column)) {
+                        Bitmap.set(result, row);
+                    }
+                } catch (RuntimeException e) {
+                    errors.add(row, e.getMessage());
+                }
+            });
+            return result;
+        }
+
+        /**
+         * Sets the numeric rows for which {@code value op constant} holds: longs are compared with a long constant
+         * exactly, everything else as doubles, like {@link Values}.
+         */
+        private static void numeric(Column column, Operator op, JsonNode constant, ValueType constantType, long[] out) {
+            int size = column.size;
+            long[] decimals = column.numericRows.clone();
+            if (constantType == ValueType.LONG) {
+                long[] longs = Bitmap.empty(size);
+                KERNELS.compare(column.longs, size, op, constant.longValue(), longs);
+                Bitmap.and(longs, column.longRows);
+                Bitmap.or(out, longs);
+                Bitmap.andNot(decimals, column.longRows);
+            }
+            long[] doubles = Bitmap.empty(size);
+            KERNELS.compare(column.doubles, size, op, constant.doubleValue(), doubles);
+            Bitmap.and(doubles, decimals);
+            Bitmap.or(out, doubles);
+        }
+
+        private boolean compare(int row, Column column) {
+            JsonNode value = column.node(row);
+            return constantOnLeft ? ColumnarExpression.compare(op, constant, value) : ColumnarExpression.compare(op, value, constant);
+        }
+    }
+
+    record CompareColumns(String leftPath, Operator op, String rightPath) implements Node {
+        @Override
+        public long[] evaluate(ColumnBatch batch, long[] active, Errors errors) {
+            Column left = batch.column(leftPath);
+            Column right = batch.column(rightPath);
+            long[] result = Bitmap.empty(batch.size());
+            forEach(active, row -> {
+                try {
+                    if (compare(op, left.node(row), right.node(row))) {
+                        Bitmap.set(result, row);
+                    }
+                } catch (RuntimeException e) {
+                    errors.add(row, e.getMessage());
+                }
+            });
+            return result;
+        }
+    }
+
+    /**
+     * A stand-alone path used as a condition.
+     */
+    record Truthy(String path) implements Node {
+        @Override
+        public long[] evaluate(ColumnBatch batch, long[] active, Errors errors) {
+            Column column = batch.column(path);
+            int size = batch.size();
+            long[] result = Bitmap.empty(size);
+            KERNELS.compare(column.longs, size, Operator.EQ, 1, result);
+            Bitmap.and(result, column.booleanRows);
+            Bitmap.and(result, active);
+            long[] absent = column.absentRows.clone();
+            Bitmap.and(absent, active);
+            errors.addAll(absent, "Node value is null");
+            long[] fallback = active.clone();
+            Bitmap.andNot(fallback, column.booleanRows);
+            Bitmap.andNot(fallback, column.absentRows);
+            forEach(fallback, row -> {
+                try {
+                    if (Values.truthy(column.node(row))) {
+                        Bitmap.set(result, row);
+                    }
+                } catch (RuntimeException e) {
+                    errors.add(row, e.getMessage());
+                }
+            });
+            return result;
+        }
+    }
+
+    static boolean compare(Operator op, JsonNode left, JsonNode right) {
+        return switch (op) {
+            case EQ -> Values.equal(left, right);
+            case NEQ -> !Values.equal(left, right);
+            case LT -> Values.lessThan(left, right);
+            case LEQ -> Values.lessOrEqual(left, right);
+            case GT -> Values.greaterThan(left, right);
+            case GEQ -> Values.greaterOrEqual(left, right);
+            default -> Values.unknownOperator(op.getSymbol());
+        };
+    }
+
+    private interface RowAction {
+        void accept(int row);
+    }
+
+    private static void forEach(long[] rows, RowAction action) {
+        for (int w = 0; w < rows.length; w++) {
+            long word = rows[w];
+            while (word != 0) {
+                action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+}
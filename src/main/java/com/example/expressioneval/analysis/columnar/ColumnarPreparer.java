@@ -0,0 +1,97 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.document.ReferencedPaths;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts a parsed AST into a {@link ColumnarExpression}.
+ * <p>
+ * Operators are resolved and literals converted once, like in the
+ * {@link com.example.expressioneval.analysis.prepared.ExpressionPreparer}. Parts whose outcome does not depend on the
+ * document, such as a comparison of two literals or an operand that is itself a comparison, are evaluated here and
+ * become a constant result or a constant error for every row.
+ */
+@Component
+public class ColumnarPreparer {
+
+    public ColumnarExpression prepare(Parser.ASTNode node) {
+        return new ColumnarExpression(condition(node), ReferencedPaths.collect(node));
+    }
+
+    private ColumnarExpression.Node condition(Parser.ASTNode node) {
+        if (node instanceof Parser.BinaryOpNode binaryNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            if (operator == null) {
+                return constant(() -> Values.unknownOperator(binaryNode.getOp()));
+            }
+            Parser.ASTNode left = binaryNode.getLeft();
+            Parser.ASTNode right = binaryNode.getRight();
+            return switch (operator) {
+                case AND -> new ColumnarExpression.AllOf(new ColumnarExpression.Node[]{condition(left), condition(right)});
+                case OR -> new ColumnarExpression.AnyOf(new ColumnarExpression.Node[]{condition(left), condition(right)});
+                default -> comparison(operator, left, right);
+            };
+        }
+        if (node instanceof Parser.NaryOpNode naryNode) {
+            ColumnarExpression.Node[] operands = naryNode.getOperands().stream()
+                    .map(this::condition)
+                    .toArray(ColumnarExpression.Node[]::new);
+            return switch (String.valueOf(naryNode.getOp())) {
+                case "AND" -> new ColumnarExpression.AllOf(operands);
+                case "OR" -> new ColumnarExpression.AnyOf(operands);
+                default -> constant(() -> Values.unknownOperator(naryNode.getOp()));
+            };
+        }
+        if (node instanceof Parser.ValueNode valueNode) {
+            return new ColumnarExpression.Truthy(valueNode.getValue());
+        }
+        // a stand-alone literal
+        return constant(() -> Values.truthy(Values.literal(node)));
+    }
+
+    private ColumnarExpression.Node comparison(Operator operator, Parser.ASTNode left, Parser.ASTNode right) {
+        // like the interpreter, an operand that is itself an expression fails as soon as it is fetched
+        if (isExpression(left) || isExpression(right)) {
+            String nodeType = String.valueOf((isExpression(left) ? left : right).getClass());
+            return constant(() -> {
+                Values.unsupportedOperand(nodeType);
+                return false;
+            });
+        }
+        if (left instanceof Parser.ValueNode leftValue && right instanceof Parser.ValueNode rightValue) {
+            return new ColumnarExpression.CompareColumns(leftValue.getValue(), operator, rightValue.getValue());
+        }
+        if (left instanceof Parser.ValueNode leftValue) {
+            return new ColumnarExpression.CompareConstant(leftValue.getValue(), operator, Values.literal(right), false);
+        }
+        if (right instanceof Parser.ValueNode rightValue) {
+            return new ColumnarExpression.CompareConstant(rightValue.getValue(), operator, Values.literal(left), true);
+        }
+        JsonNode leftLiteral = Values.literal(left);
+        JsonNode rightLiteral = Values.literal(right);
+        return constant(() -> ColumnarExpression.compare(operator, leftLiteral, rightLiteral));
+    }
+
+    private static boolean isExpression(Parser.ASTNode node) {
+        return node instanceof Parser.BinaryOpNode || node instanceof Parser.NaryOpNode;
+    }
+
+    private interface Outcome {
+        boolean evaluate();
+    }
+
+    /**
+     * @return a node with the outcome of a document independent evaluation, its result or its error
+     */
+    private static ColumnarExpression.Node constant(Outcome outcome) {
+        try {
+            return new ColumnarExpression.Constant(outcome.evaluate(), null);
+        } catch (RuntimeException e) {
+            return new ColumnarExpression.Constant(false, e.getMessage());
+        }
+    }
+}
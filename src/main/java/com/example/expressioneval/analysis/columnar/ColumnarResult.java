@@ -0,0 +1,64 @@
+package com.example.expressioneval.analysis.columnar;
+
+/**
+ * Outcome of evaluating a {@link ColumnarExpression} over a {@link ColumnBatch}: every row either matches, does not
+ * match or failed with the error the row-at-a-time evaluation would have thrown.
+ */
+public final class ColumnarResult {
+
+    private final int size;
+
+    private final long[] matches;
+
+    private final long[] errors;
+
+    private final String[] errorMessages;
+
+    ColumnarResult(int size, long[] matches, long[] errors, String[] errorMessages) {
+        this.size = size;
+        this.matches = matches;
+        this.errors = errors;
+        this.errorMessages = errorMessages;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean matches(int row) {
+        return Bitmap.get(matches, row);
+    }
+
+    public boolean failed(int row) {
+        return Bitmap.get(errors, row);
+    }
+
+    /**
+     * @return the error message of a failed row, null if the row did not fail
+     */
+    public String error(int row) {
+        return Bitmap.get(errors, row) ? errorMessages[row] : null;
+    }
+
+    public int matchCount() {
+        return Bitmap.cardinality(matches);
+    }
+
+    public int errorCount() {
+        return Bitmap.cardinality(errors);
+    }
+
+    /**
+     * @return the indexes of the matching rows in ascending order
+     */
+    public int[] matchingRows() {
+        return Bitmap.rows(matches);
+    }
+
+    /**
+     * @return a copy of the matching rows as bitmap words, see {@link Bitmap}
+     */
+    public long[] matchBitmap() {
+        return matches.clone();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+
+/**
+ * Dense comparison kernels: compare every value of a column with a constant and set the bit of each row where the
+ * comparison holds in a {@link Bitmap}. They run over all rows regardless of type or activity, the caller masks the
+ * result.
+ * <p>
+ * Two implementations give identical bitmaps for every input, NaN and signed zeros included, since both compare
+ * with Java's primitive semantics: {@link ScalarKernels} and, only when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector} and the application was built with the {@code vector} profile,
+ * {@code VectorKernels} on the incubating Vector API. {@link #get()} picks the latter whenever it is available.
+ */
+public abstract class Kernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final Kernels SCALAR = new ScalarKernels();
+
+    private static final Kernels SELECTED = select();
+
+    Kernels() {
+    }
+
+    /**
+     * @return the kernels used by the columnar engine
+     */
+    public static Kernels get() {
+        return SELECTED;
+    }
+
+    /**
+     * @return the scalar kernels, regardless of the Vector API being available
+     */
+    public static Kernels scalar() {
+        return SCALAR;
+    }
+
+    private static Kernels select() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return (Kernels) Class.forName(Kernels.class.getPackageName() + ".VectorKernels")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // built without the vector profile
+            return SCALAR;
+        }
+    }
+
+    public abstract String name();
+
+    /**
+     * Compares a column of longs with a number literal, integral literals exactly and decimal ones as doubles,
+     * like {@link com.example.expressioneval.analysis.value.Values}.
+     *
+     * @return the rows where {@code column[row] op literal} holds
+     */
+    public long[] compare(long[] column, Operator op, Parser.NumberNode literal) {
+        long[] out = Bitmap.empty(column.length);
+        if (literal.isIntegral()) {
+            compare(column, column.length, op, literal.getValue().longValue(), out);
+        } else {
+            compareAsDouble(column, column.length, op, literal.getValue().doubleValue(), out);
+        }
+        return out;
+    }
+
+    /**
+     * @return the rows where {@code column[row] op literal} holds
+     */
+    public long[] compare(double[] column, Operator op, Parser.NumberNode literal) {
+        long[] out = Bitmap.empty(column.length);
+        compare(column, column.length, op, literal.getValue().doubleValue(), out);
+        return out;
+    }
+
+    /**
+     * Sets the bits of the first {@code size} rows where {@code values[row] op constant} holds, {@code out} must
+     * not have other bits set in their words.
+     */
+    abstract void compare(long[] values, int size, Operator op, long constant, long[] out);
+
+    abstract void compare(double[] values, int size, Operator op, double constant, long[] out);
+
+    /**
+     * Same as {@link #compare(double[], int, Operator, double, long[])} with every value converted to a double.
+     */
+    abstract void compareAsDouble(long[] values, int size, Operator op, double constant, long[] out);
+}
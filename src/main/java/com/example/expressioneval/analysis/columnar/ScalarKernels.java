@@ -0,0 +1,125 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.example.expressioneval.analysis.Operator;
+
+/**
+ * Plain Java loops, the kernels used when the Vector API is not available. Each loop is free of branches on the
+ * value, so the JIT can unroll it and may auto-vectorize the comparison.
+ */
+final class ScalarKernels extends Kernels {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    void compare(long[] values, int size, Operator op, long constant, long[] out) {
+        switch (op) {
+            case EQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] == constant ? 1L : 0L) << i;
+                }
+            }
+            case NEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] != constant ? 1L : 0L) << i;
+                }
+            }
+            case LT -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] < constant ? 1L : 0L) << i;
+                }
+            }
+            case LEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] <= constant ? 1L : 0L) << i;
+                }
+            }
+            case GT -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] > constant ? 1L : 0L) << i;
+                }
+            }
+            case GEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] >= constant ? 1L : 0L) << i;
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        }
+    }
+
+    @Override
+    void compare(double[] values, int size, Operator op, double constant, long[] out) {
+        switch (op) {
+            case EQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] == constant ? 1L : 0L) << i;
+                }
+            }
+            case NEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] != constant ? 1L : 0L) << i;
+                }
+            }
+            case LT -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] < constant ? 1L : 0L) << i;
+                }
+            }
+            case LEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] <= constant ? 1L : 0L) << i;
+                }
+            }
+            case GT -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] > constant ? 1L : 0L) << i;
+                }
+            }
+            case GEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= (values[i] >= constant ? 1L : 0L) << i;
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        }
+    }
+    @Override
+    void compareAsDouble(long[] values, int size, Operator op, double constant, long[] out) {
+        switch (op) {
+            case EQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= ((double) values[i] == constant ? 1L : 0L) << i;
+                }
+            }
+            case NEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= ((double) values[i] != constant ? 1L : 0L) << i;
+                }
+            }
+            case LT -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= ((double) values[i] < constant ? 1L : 0L) << i;
+                }
+            }
+            case LEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= ((double) values[i] <= constant ? 1L : 0L) << i;
+                }
+            }
+            case GT -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= ((double) values[i] > constant ? 1L : 0L) << i;
+                }
+            }
+            case GEQ -> {
+                for (int i = 0; i < size; i++) {
+                    out[i >>> 6] |= ((double) values[i] >= constant ? 1L : 0L) << i;
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.expressioneval.analysis.compiler;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.value.Values;
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a parsed AST into a hidden class implementing {@link ExpressionPredicate}.
+ * <p>
+ * Every JSON path and literal becomes a final field holding a {@link JsonPointer} or a typed runtime value
+ * (hidden classes have trusted finals, so the JIT treats them as constants) and AND/OR are lowered to
+ * conditional jumps, so a whole rule ends up as one straight-line method the JIT can inline.
+ * Comparisons go through {@link Values} to stay in line with the interpreter.
+ */
+@Component
+public class BytecodeCompiler {
+
+    private static final String CLASS_NAME = "com/example/expressioneval/analysis/compiler/CompiledPredicate";
+    private static final String VALUES = Type.getInternalName(Values.class);
+    private static final String JSON_NODE = Type.getDescriptor(JsonNode.class);
+    private static final String JSON_POINTER = Type.getDescriptor(JsonPointer.class);
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    public ExpressionPredicate compile(Parser.ASTNode root) {
+        Generator generator = new Generator();
+        byte[] bytes = generator.generate(root);
+        try {
+            Class<?> type = lookup.defineHiddenClass(bytes, true).lookupClass();
+            return (ExpressionPredicate) lookup.findConstructor(type, MethodType.methodType(void.class, Object[].class))
+                    .invoke(generator.constants.toArray());
+        } catch (Throwable e) {
+            throw new EvaluationException("Failed to compile expression", e);
+        }
+    }
+
+    private static class Generator {
+        private final Map<String, Integer> pointerIndexes = new LinkedHashMap<>();
+        private final List<Object> constants = new ArrayList<>();
+        private final List<String> descriptors = new ArrayList<>();
+        private MethodVisitor mv;
+
+        byte[] generate(Parser.ASTNode root) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, CLASS_NAME, null,
+                    "java/lang/Object", new String[]{Type.getInternalName(ExpressionPredicate.class)});
+
+            // test() first, it registers the constants the constructor has to initialize
+            mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "test", "(" + JSON_NODE + ")Z", null, null);
+            mv.visitCode();
+            Label whenFalse = new Label();
+            condition(root, whenFalse, false);
+            mv.visitInsn(Opcodes.ICONST_1);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitLabel(whenFalse);
+            mv.visitInsn(Opcodes.ICONST_0);
+            mv.visitInsn(Opcodes.IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            for (int i = 0; i < constants.size(); i++) {
+                cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "c" + i, descriptors.get(i), null, null).visitEnd();
+            }
+            constructor(cw);
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        private void constructor(ClassWriter cw) {
+            MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+            init.visitCode();
+            init.visitVarInsn(Opcodes.ALOAD, 0);
+            init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+            for (int i = 0; i < constants.size(); i++) {
+                init.visitVarInsn(Opcodes.ALOAD, 0);
+                init.visitVarInsn(Opcodes.ALOAD, 1);
+                init.visitLdcInsn(i);
+                init.visitInsn(Opcodes.AALOAD);
+                init.visitTypeInsn(Opcodes.CHECKCAST, Type.getType(descriptors.get(i)).getInternalName());
+                init.visitFieldInsn(Opcodes.PUTFIELD, CLASS_NAME, "c" + i, descriptors.get(i));
+            }
+            init.visitInsn(Opcodes.RETURN);
+            init.visitMaxs(0, 0);
+            init.visitEnd();
+        }
+
+        // emits code that jumps to target when the node evaluates to jumpWhen, and falls through otherwise
+        private void condition(Parser.ASTNode node, Label target, boolean jumpWhen) {
+            if (node instanceof Parser.BinaryOpNode binaryNode) {
+                Parser.ASTNode left = binaryNode.getLeft();
+                Parser.ASTNode right = binaryNode.getRight();
+                switch (binaryNode.getOp()) {
+                    case "AND" -> {
+                        if (jumpWhen) {
+                            Label skip = new Label();
+                            condition(left, skip, false);
+                            condition(right, target, true);
+                            mv.visitLabel(skip);
+                        } else {
+                            condition(left, target, false);
+                            condition(right, target, false);
+                        }
+                    }
+                    case "OR" -> {
+                        if (jumpWhen) {
+                            condition(left, target, true);
+                            condition(right, target, true);
+                        } else {
+                            Label skip = new Label();
+                            condition(left, skip, true);
+                            condition(right, target, false);
+                            mv.visitLabel(skip);
+                        }
+                    }
+                    case "==" -> comparison(left, right, "equal", jumpWhen, target);
+                    case "!=" -> comparison(left, right, "equal", !jumpWhen, target);
+                    case "<" -> comparison(left, right, "lessThan", jumpWhen, target);
+                    case "<=" -> comparison(left, right, "lessOrEqual", jumpWhen, target);
+                    case ">" -> comparison(left, right, "greaterThan", jumpWhen, target);
+                    case ">=" -> comparison(left, right, "greaterOrEqual", jumpWhen, target);
+                    default -> {
+                        mv.visitLdcInsn(String.valueOf(binaryNode.getOp()));
+                        mv.visitMethodInsn(Opcodes.INVOKESTATIC, VALUES, "unknownOperator", "(Ljava/lang/String;)Z", false);
+                        mv.visitJumpInsn(jumpWhen ? Opcodes.IFNE : Opcodes.IFEQ, target);
+                    }
+                }
+            } else if (node instanceof Parser.NaryOpNode naryNode) {
+                List<Parser.ASTNode> operands = naryNode.getOperands();
+                boolean and = "AND".equals(naryNode.getOp());
+                if (!and && !"OR".equals(naryNode.getOp())) {
+                    mv.visitLdcInsn(String.valueOf(naryNode.getOp()));
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, VALUES, "unknownOperator", "(Ljava/lang/String;)Z", false);
+                    mv.visitJumpInsn(jumpWhen ? Opcodes.IFNE : Opcodes.IFEQ, target);
+                } else if (jumpWhen != and) {
+                    // AND jumping when false, OR jumping when true: any deciding operand jumps
+                    for (Parser.ASTNode operand : operands) {
+                        condition(operand, target, jumpWhen);
+                    }
+                } else {
+                    // all but the last operand skip ahead when they decide the chain, the last one decides the jump
+                    Label skip = new Label();
+                    for (int i = 0; i < operands.size() - 1; i++) {
+                        condition(operands.get(i), skip, !and);
+                    }
+                    condition(operands.get(operands.size() - 1), target, jumpWhen);
+                    mv.visitLabel(skip);
+                }
+            } else if (node instanceof Parser.BooleanNode booleanNode) {
+                // stand-alone literal, decided at compile time
+                if (booleanNode.getValue() == jumpWhen) {
+                    mv.visitJumpInsn(Opcodes.GOTO, target);
+                }
+            } else {
+                // stand-alone value like a boolean JSON field
+                value(node);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, VALUES, "truthy", "(" + JSON_NODE + ")Z", false);
+                mv.visitJumpInsn(jumpWhen ? Opcodes.IFNE : Opcodes.IFEQ, target);
+            }
+        }
+
+        private void comparison(Parser.ASTNode left, Parser.ASTNode right, String method, boolean jumpWhen, Label target) {
+            value(left);
+            value(right);
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, VALUES, method, "(" + JSON_NODE + JSON_NODE + ")Z", false);
+            mv.visitJumpInsn(jumpWhen ? Opcodes.IFNE : Opcodes.IFEQ, target);
+        }
+
+        // pushes the runtime value of an operand
+        private void value(Parser.ASTNode node) {
+            if (node instanceof Parser.ValueNode valueNode) {
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                loadConstant(pointer(valueNode.getValue()));
+                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(JsonNode.class), "at",
+                        "(" + JSON_POINTER + ")" + JSON_NODE, false);
+            } else if (node instanceof Parser.BinaryOpNode || node instanceof Parser.NaryOpNode) {
+                mv.visitLdcInsn(String.valueOf(node.getClass()));
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, VALUES, "unsupportedOperand", "(Ljava/lang/String;)" + JSON_NODE, false);
+            } else {
+                loadConstant(addConstant(Values.literal(node), JSON_NODE));
+            }
+        }
+
+        private void loadConstant(int index) {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETFIELD, CLASS_NAME, "c" + index, descriptors.get(index));
+        }
+
+        private int addConstant(Object constant, String descriptor) {
+            constants.add(constant);
+            descriptors.add(descriptor);
+            return constants.size() - 1;
+        }
+
+        private int pointer(String path) {
+            return pointerIndexes.computeIfAbsent(path,
+                    p -> addConstant(JsonPointer.compile("/" + p.replace('.', '/')), JSON_POINTER));
+        }
+    }
+}
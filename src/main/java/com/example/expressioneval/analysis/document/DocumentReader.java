@@ -0,0 +1,21 @@
+package com.example.expressioneval.analysis.document;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns the raw JSON payload of an evaluation request into the tree the predicates run against.
+ */
+@FunctionalInterface
+public interface DocumentReader {
+    JsonNode read(String json);
+
+    /**
+     * Reads a UTF-8 encoded document, for callers that hold raw bytes. Readers that can parse bytes directly
+     * override this to skip decoding into a {@link String}.
+     */
+    default JsonNode read(byte[] json, int offset, int length) {
+        return read(new String(json, offset, length, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.expressioneval.analysis.document;
+
+import com.example.expressioneval.analysis.Parser;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the JSON paths (the {@link Parser.ValueNode} values) an expression reads.
+ */
+public final class ReferencedPaths {
+
+    private ReferencedPaths() {
+    }
+
+    public static Set<String> collect(Parser.ASTNode node) {
+        Set<String> paths = new LinkedHashSet<>();
+        collect(node, paths);
+        return paths;
+    }
+
+    public static void collect(Parser.ASTNode node, Set<String> paths) {
+        if (node instanceof Parser.BinaryOpNode binaryNode) {
+            collect(binaryNode.getLeft(), paths);
+            collect(binaryNode.getRight(), paths);
+        } else if (node instanceof Parser.NaryOpNode naryNode) {
+            for (Parser.ASTNode operand : naryNode.getOperands()) {
+                collect(operand, paths);
+            }
+        } else if (node instanceof Parser.ValueNode valueNode) {
+            paths.add(valueNode.getValue());
+        }
+    }
+}
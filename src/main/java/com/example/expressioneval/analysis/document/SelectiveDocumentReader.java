@@ -0,0 +1,171 @@
+package com.example.expressioneval.analysis.document;
+
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads only the parts of a JSON document that a known set of paths refers to.
+ * <p>
+ * The paths are arranged in a trie. The document is scanned with Jackson's streaming parser: subtrees no path
+ * goes through are skipped with {@link JsonParser#skipChildren()}, only values at the end of a path are
+ * materialized, and scanning stops as soon as every path has been resolved. The result is a sparse tree that
+ * answers {@link JsonNode#at} for those paths exactly like the fully parsed document would.
+ * <p>
+ * Since the rest of the document is never read, malformed content after the last needed value is not
+ * reported, and for duplicate keys the first occurrence wins.
+ */
+public class SelectiveDocumentReader implements DocumentReader {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TrieNode root = new TrieNode();
+    private final int terminalCount;
+
+    public SelectiveDocumentReader(Collection<String> paths) {
+        List<TrieNode> terminals = new ArrayList<>();
+        for (String path : paths) {
+            TrieNode node = root;
+            for (String segment : path.split("\\.")) {
+                node = node.children.computeIfAbsent(segment, s -> new TrieNode());
+            }
+            if (node.terminalId < 0) {
+                node.terminalId = terminals.size();
+                terminals.add(node);
+            }
+        }
+        this.terminalCount = terminals.size();
+        root.collectTerminals();
+    }
+
+    @Override
+    public JsonNode read(String json) {
+        if (terminalCount == 0) {
+            return objectMapper.createObjectNode();
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new EvaluationException("Failed to parse JSON", e);
+        }
+    }
+
+    @Override
+    public JsonNode read(byte[] json, int offset, int length) {
+        if (terminalCount == 0) {
+            return objectMapper.createObjectNode();
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json, offset, length)) {
+            return read(parser);
+        } catch (IOException e) {
+            throw new EvaluationException("Failed to parse JSON", e);
+        }
+    }
+
+    private ObjectNode read(JsonParser parser) throws IOException {
+        ObjectNode result = objectMapper.createObjectNode();
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            readObject(parser, root, result, new ReadState(terminalCount));
+        }
+        // any other root has no fields, so every path resolves to a missing node
+        return result;
+    }
+
+    /**
+     * @return true once every path is resolved and scanning can stop
+     */
+    private boolean readObject(JsonParser parser, TrieNode node, ObjectNode target, ReadState state) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            TrieNode child = node.children.get(parser.currentName());
+            JsonToken valueToken = parser.nextToken();
+            if (child == null || state.isResolved(child)) {
+                parser.skipChildren();
+                continue;
+            }
+            String name = parser.currentName();
+            if (child.terminalId >= 0) {
+                // end of a path, keep the whole value (it also covers longer paths through it)
+                target.set(name, objectMapper.readTree(parser));
+                state.resolve(child);
+            } else if (valueToken == JsonToken.START_OBJECT) {
+                ObjectNode childTarget = target.get(name) instanceof ObjectNode existing ? existing : target.putObject(name);
+                if (readObject(parser, child, childTarget, state)) {
+                    return true;
+                }
+            } else {
+                // paths can only continue through objects, everything below this field is missing
+                parser.skipChildren();
+                state.resolve(child);
+            }
+            if (state.remaining == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class TrieNode {
+        final Map<String, TrieNode> children = new HashMap<>();
+        int terminalId = -1;
+        // ids of all terminals in this subtree, including this node
+        int[] terminalsBelow;
+
+        int[] collectTerminals() {
+            List<int[]> parts = new ArrayList<>();
+            int size = terminalId >= 0 ? 1 : 0;
+            for (TrieNode child : children.values()) {
+                int[] part = child.collectTerminals();
+                parts.add(part);
+                size += part.length;
+            }
+            terminalsBelow = new int[size];
+            int i = 0;
+            if (terminalId >= 0) {
+                terminalsBelow[i++] = terminalId;
+            }
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, terminalsBelow, i, part.length);
+                i += part.length;
+            }
+            return terminalsBelow;
+        }
+    }
+
+    private static class ReadState {
+        final boolean[] resolved;
+        int remaining;
+
+        ReadState(int terminalCount) {
+            this.resolved = new boolean[terminalCount];
+            this.remaining = terminalCount;
+        }
+
+        boolean isResolved(TrieNode node) {
+            for (int id : node.terminalsBelow) {
+                if (!resolved[id]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void resolve(TrieNode node) {
+            for (int id : node.terminalsBelow) {
+                if (!resolved[id]) {
+                    resolved[id] = true;
+                    remaining--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.expressioneval.analysis.flat;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paths, literals and unknown operator symbols of {@link FlatAst}s, each stored once and referenced by its index.
+ * <p>
+ * One pool is shared by many encodings, so a path or literal used by a million rules exists once. A path is kept with
+ * its compiled {@link JsonPointer}, a literal as the runtime value {@link com.example.expressioneval.analysis.value.Values}
+ * compares. Entries are never removed, the pool grows with the distinct constants of the rules encoded into it; an
+ * owner whose rules come and go replaces it with a new pool holding only the constants still in use, see
+ * {@link FlatAst#withPool}. Interning is thread-safe and lookups by index are lock-free.
+ */
+public final class ConstantPool {
+
+    // an index has to fit next to the opcode into one int of the encoding
+    static final int MAX_SIZE = 1 << 26;
+
+    private final Map<Key, Integer> indexes = new ConcurrentHashMap<>();
+
+    // written under the lock, the volatile write publishes the new entry to readers of an index handed out after it
+    private volatile Object[] entries = new Object[64];
+
+    private int size;
+
+    int path(String path) {
+        return intern(new Key(Kind.PATH, path));
+    }
+
+    int literal(JsonNode value) {
+        return intern(new Key(Kind.LITERAL, value));
+    }
+
+    int symbol(String symbol) {
+        return intern(new Key(Kind.SYMBOL, symbol));
+    }
+
+    JsonPointer pointer(int index) {
+        return ((Path) entries[index]).pointer();
+    }
+
+    String pathName(int index) {
+        return ((Path) entries[index]).name();
+    }
+
+    JsonNode literal(int index) {
+        return (JsonNode) entries[index];
+    }
+
+    String symbol(int index) {
+        return (String) entries[index];
+    }
+
+    public int size() {
+        return indexes.size();
+    }
+
+    private int intern(Key key) {
+        Integer index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            if (size == MAX_SIZE) {
+                throw new IllegalStateException("Constant pool is full with " + MAX_SIZE + " entries");
+            }
+            Object[] current = entries;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, Math.min(current.length * 2, MAX_SIZE));
+            }
+            current[size] = key.kind == Kind.PATH
+                    ? new Path((String) key.value, JsonPointer.compile("/" + ((String) key.value).replace('.', '/')))
+                    : key.value;
+            entries = current;
+            indexes.put(key, size);
+            return size++;
+        }
+    }
+
+    private enum Kind {
+        PATH, LITERAL, SYMBOL
+    }
+
+    // literals are Jackson nodes, whose equality keeps 1 and 1.0 apart
+    private record Key(Kind kind, Object value) {
+    }
+
+    private record Path(String name, JsonPointer pointer) {
+    }
+}
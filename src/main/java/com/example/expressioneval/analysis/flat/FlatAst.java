@@ -0,0 +1,277 @@
+package com.example.expressioneval.analysis.flat;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable AST packed into one {@code int[]}, evaluated without going back to {@link Parser.ASTNode} objects.
+ * <p>
+ * Nodes are laid out in preorder. Every node starts with a word holding the opcode in its low 6 bits and an operand
+ * in the upper 26: the index of a path or literal in the shared {@link ConstantPool} for leaves, the operand count for
+ * AND/OR lists. A binary node is followed by the index of its right operand, its left operand comes right after. An
+ * operand list is followed by the index of each operand (an unknown operator by its symbol's pool index first).
+ * Booleans, null and a null string need no constant. A rule of a few comparisons takes a few dozen bytes instead of
+ * a tree of node, list and string objects, and evaluating it reads one array front to back.
+ * <p>
+ * {@link #test} gives the same results and errors as {@link com.example.expressioneval.analysis.Evaluator}, and
+ * {@link #toAst()} returns an AST equal to the encoded one.
+ */
+public final class FlatAst implements ExpressionPredicate {
+
+    private static final int OPCODE_BITS = 6;
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    private static final int ABSENT = 0x00;
+    private static final int VALUE = 0x01;
+    private static final int LITERAL = 0x02;
+    private static final int STRING_NULL = 0x03;
+    private static final int NULL = 0x04;
+    private static final int TRUE = 0x05;
+    private static final int FALSE = 0x06;
+    private static final int BINARY_OTHER = 0x0F;
+    // + Operator.ordinal(), spelled out below so they can be switched on
+    private static final int BINARY = 0x10;
+    private static final int AND = 0x10;
+    private static final int OR = 0x11;
+    private static final int EQ = 0x12;
+    private static final int NEQ = 0x13;
+    private static final int LT = 0x14;
+    private static final int LEQ = 0x15;
+    private static final int GT = 0x16;
+    private static final int GEQ = 0x17;
+    private static final int NARY = 0x20;
+    private static final int ALL_OF = 0x20;
+    private static final int ANY_OF = 0x21;
+    private static final int NARY_OTHER = 0x2F;
+
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private final int[] code;
+
+    private final ConstantPool pool;
+
+    private FlatAst(int[] code, ConstantPool pool) {
+        this.code = code;
+        this.pool = pool;
+    }
+
+    public static FlatAst encode(Parser.ASTNode ast, ConstantPool pool) {
+        Encoder encoder = new Encoder(pool);
+        encoder.node(ast);
+        return new FlatAst(Arrays.copyOf(encoder.code, encoder.length), pool);
+    }
+
+    public Parser.ASTNode toAst() {
+        return node(0);
+    }
+
+    /**
+     * @return this expression encoded with the constants of {@code pool}, this if it already uses that pool
+     */
+    public FlatAst withPool(ConstantPool pool) {
+        return pool == this.pool ? this : encode(toAst(), pool);
+    }
+
+    public boolean uses(ConstantPool pool) {
+        return this.pool == pool;
+    }
+
+    /**
+     * @return the number of ints of the encoding
+     */
+    public int length() {
+        return code.length;
+    }
+
+    @Override
+    public boolean test(JsonNode root) {
+        return condition(0, root);
+    }
+
+    private boolean condition(int pc, JsonNode root) {
+        int word = code[pc];
+        return switch (word & OPCODE_MASK) {
+            case AND -> condition(pc + 2, root) && condition(code[pc + 1], root);
+            case OR -> condition(pc + 2, root) || condition(code[pc + 1], root);
+            case EQ -> Values.equal(value(pc + 2, root), value(code[pc + 1], root));
+            case NEQ -> !Values.equal(value(pc + 2, root), value(code[pc + 1], root));
+            case LT -> Values.lessThan(value(pc + 2, root), value(code[pc + 1], root));
+            case LEQ -> Values.lessOrEqual(value(pc + 2, root), value(code[pc + 1], root));
+            case GT -> Values.greaterThan(value(pc + 2, root), value(code[pc + 1], root));
+            case GEQ -> Values.greaterOrEqual(value(pc + 2, root), value(code[pc + 1], root));
+            case BINARY_OTHER -> Values.unknownOperator(pool.symbol(word >>> OPCODE_BITS));
+            case ALL_OF -> allOf(pc, word >>> OPCODE_BITS, root);
+            case ANY_OF -> anyOf(pc, word >>> OPCODE_BITS, root);
+            case NARY_OTHER -> Values.unknownOperator(pool.symbol(code[pc + 1]));
+            default -> isNary(word & OPCODE_MASK)
+                    ? Values.unknownOperator(OPERATORS[(word & OPCODE_MASK) - NARY].getSymbol())
+                    // for cases like stand-alone true or false
+                    : Values.truthy(value(pc, root));
+        };
+    }
+
+    private boolean allOf(int pc, int count, JsonNode root) {
+        for (int i = 1; i <= count; i++) {
+            if (!condition(code[pc + i], root)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean anyOf(int pc, int count, JsonNode root) {
+        for (int i = 1; i <= count; i++) {
+            if (condition(code[pc + i], root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private JsonNode value(int pc, JsonNode root) {
+        int word = code[pc];
+        int opcode = word & OPCODE_MASK;
+        return switch (opcode) {
+            case VALUE -> root.at(pool.pointer(word >>> OPCODE_BITS));
+            case LITERAL -> pool.literal(word >>> OPCODE_BITS);
+            case STRING_NULL, NULL -> NullNode.getInstance();
+            case TRUE -> BooleanNode.TRUE;
+            case FALSE -> BooleanNode.FALSE;
+            // a missing operand fails like in the interpreter
+            case ABSENT -> Values.literal(null);
+            default -> Values.unsupportedOperand(String.valueOf(isNary(opcode)
+                    ? Parser.NaryOpNode.class : Parser.BinaryOpNode.class));
+        };
+    }
+
+    private static boolean isNary(int opcode) {
+        return opcode >= NARY && opcode <= NARY_OTHER;
+    }
+
+    private Parser.ASTNode node(int pc) {
+        int word = code[pc];
+        int opcode = word & OPCODE_MASK;
+        int operand = word >>> OPCODE_BITS;
+        if (opcode >= BINARY && opcode < BINARY + OPERATORS.length) {
+            return new Parser.BinaryOpNode(OPERATORS[opcode - BINARY].getSymbol(), node(pc + 2), node(code[pc + 1]));
+        }
+        if (opcode >= NARY && opcode < NARY + OPERATORS.length) {
+            return nary(OPERATORS[opcode - NARY].getSymbol(), pc + 1, operand);
+        }
+        return switch (opcode) {
+            case BINARY_OTHER -> new Parser.BinaryOpNode(pool.symbol(operand), node(pc + 2), node(code[pc + 1]));
+            case NARY_OTHER -> nary(pool.symbol(code[pc + 1]), pc + 2, operand);
+            case VALUE -> new Parser.ValueNode(pool.pathName(operand));
+            case LITERAL -> {
+                JsonNode literal = pool.literal(operand);
+                if (literal.isTextual()) {
+                    yield new Parser.StringNode(literal.textValue());
+                }
+                yield literal.isIntegralNumber()
+                        ? new Parser.NumberNode(literal.longValue())
+                        : new Parser.NumberNode(literal.doubleValue());
+            }
+            case STRING_NULL -> new Parser.StringNode(null);
+            case NULL -> new Parser.NullNode();
+            case TRUE -> new Parser.BooleanNode(true);
+            case FALSE -> new Parser.BooleanNode(false);
+            case ABSENT -> null;
+            default -> throw new IllegalStateException("Unknown opcode " + opcode + " at " + pc);
+        };
+    }
+
+    private Parser.ASTNode nary(String op, int offsets, int count) {
+        List<Parser.ASTNode> operands = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            operands.add(node(code[offsets + i]));
+        }
+        return new Parser.NaryOpNode(op, operands);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(toAst());
+    }
+
+    private static class Encoder {
+        private final ConstantPool pool;
+        private int[] code = new int[16];
+        private int length;
+
+        Encoder(ConstantPool pool) {
+            this.pool = pool;
+        }
+
+        void node(Parser.ASTNode node) {
+            if (node instanceof Parser.BinaryOpNode binaryNode) {
+                Operator operator = Operator.fromSymbol(binaryNode.getOp());
+                int at = reserve(2);
+                code[at] = operator != null ? BINARY + operator.ordinal() : word(BINARY_OTHER, pool.symbol(binaryNode.getOp()));
+                node(binaryNode.getLeft());
+                code[at + 1] = length;
+                node(binaryNode.getRight());
+            } else if (node instanceof Parser.NaryOpNode naryNode) {
+                Operator operator = Operator.fromSymbol(naryNode.getOp());
+                List<Parser.ASTNode> operands = naryNode.getOperands();
+                int at = reserve(operator != null ? 1 + operands.size() : 2 + operands.size());
+                int offsets = at + 1;
+                if (operator != null) {
+                    code[at] = word(NARY + operator.ordinal(), operands.size());
+                } else {
+                    code[at] = word(NARY_OTHER, operands.size());
+                    code[offsets++] = pool.symbol(naryNode.getOp());
+                }
+                for (int i = 0; i < operands.size(); i++) {
+                    code[offsets + i] = length;
+                    node(operands.get(i));
+                }
+            } else {
+                int at = reserve(1);
+                code[at] = leaf(node);
+            }
+        }
+
+        private int leaf(Parser.ASTNode node) {
+            if (node instanceof Parser.ValueNode valueNode) {
+                return word(VALUE, pool.path(valueNode.getValue()));
+            } else if (node instanceof Parser.StringNode stringNode && stringNode.getValue() == null) {
+                return STRING_NULL;
+            } else if (node instanceof Parser.StringNode || node instanceof Parser.NumberNode) {
+                return word(LITERAL, pool.literal(Values.literal(node)));
+            } else if (node instanceof Parser.BooleanNode booleanNode) {
+                return booleanNode.getValue() ? TRUE : FALSE;
+            } else if (node instanceof Parser.NullNode) {
+                return NULL;
+            } else if (node == null) {
+                return ABSENT;
+            }
+            throw new IllegalArgumentException("Unknown AST node type: " + node.getClass());
+        }
+
+        private static int word(int opcode, int operand) {
+            if (operand >= ConstantPool.MAX_SIZE) {
+                throw new IllegalArgumentException("Operand " + operand + " does not fit into an encoded AST");
+            }
+            return opcode | operand << OPCODE_BITS;
+        }
+
+        // the index of the first of n new ints, called before any store since it may replace the array
+        private int reserve(int n) {
+            if (length + n > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, length + n));
+            }
+            int at = length;
+            length += n;
+            return at;
+        }
+    }
+}
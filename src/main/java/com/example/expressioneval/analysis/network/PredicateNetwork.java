@@ -0,0 +1,243 @@
+package com.example.expressioneval.analysis.network;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares leaf comparisons between many expressions, in the spirit of a Rete network.
+ * <p>
+ * Every comparison (and stand-alone value) of an added expression is interned as a leaf: {@code country == "DE"}
+ * in ten rules is one leaf, and so is {@code 100 < amount} next to {@code amount > 100}. Each expression keeps
+ * only its AND/OR structure over leaf indexes. A {@link Session} evaluates a leaf at most once per document and
+ * feeds the memoized result (or exception) to every expression that reaches it, so the work per document scales
+ * with the distinct predicates rather than with the number of expressions. Leaves are only evaluated when an
+ * expression's short-circuit order reaches them, so every expression still sees exactly the result and error it
+ * would get on its own.
+ * <p>
+ * The network is append-only: {@link #add(Parser.ASTNode)} may be called at any time, sessions only see the leaves
+ * of the {@link #leaves()} snapshot they were created from.
+ */
+public class PredicateNetwork {
+
+    private final ExpressionPreparer expressionPreparer;
+
+    private final Map<LeafKey, Integer> leafIndexes = new HashMap<>();
+
+    private final List<ExpressionPredicate> leaves = new ArrayList<>();
+
+    private int references;
+
+    public PredicateNetwork(ExpressionPreparer expressionPreparer) {
+        this.expressionPreparer = expressionPreparer;
+    }
+
+    /**
+     * Interns the leaves of an expression.
+     *
+     * @return the boolean structure of the expression over the network's leaves
+     */
+    public synchronized Node add(Parser.ASTNode ast) {
+        return node(ast);
+    }
+
+    public synchronized ExpressionPredicate[] leaves() {
+        return leaves.toArray(new ExpressionPredicate[0]);
+    }
+
+    /**
+     * @return the number of distinct leaves
+     */
+    public synchronized int size() {
+        return leaves.size();
+    }
+
+    /**
+     * @return the number of leaves over all added expressions, before sharing
+     */
+    public synchronized int references() {
+        return references;
+    }
+
+    private Node node(Parser.ASTNode ast) {
+        if (ast instanceof Parser.BinaryOpNode binaryNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            if (operator == Operator.AND) {
+                return new AllOf(node(binaryNode.getLeft()), node(binaryNode.getRight()));
+            }
+            if (operator == Operator.OR) {
+                return new AnyOf(node(binaryNode.getLeft()), node(binaryNode.getRight()));
+            }
+        } else if (ast instanceof Parser.NaryOpNode naryNode) {
+            Operator operator = Operator.fromSymbol(naryNode.getOp());
+            if (operator == Operator.AND || operator == Operator.OR) {
+                Node result = null;
+                for (Parser.ASTNode operand : naryNode.getOperands()) {
+                    Node next = node(operand);
+                    result = result == null ? next : operator == Operator.AND ? new AllOf(result, next) : new AnyOf(result, next);
+                }
+                return result;
+            }
+        } else if (ast instanceof Parser.BooleanNode booleanNode) {
+            return new Constant(booleanNode.getValue());
+        }
+        references++;
+        Parser.ASTNode leaf = canonical(ast);
+        LeafKey key = key(leaf);
+        if (key == null) {
+            // not worth sharing (unknown operator, nested operand), always fails the same way
+            return new Leaf(addLeaf(leaf));
+        }
+        return new Leaf(leafIndexes.computeIfAbsent(key, k -> addLeaf(leaf)));
+    }
+
+    private int addLeaf(Parser.ASTNode leaf) {
+        leaves.add(expressionPreparer.prepare(leaf));
+        return leaves.size() - 1;
+    }
+
+    // moves the field to the left of a comparison with a literal, as long as that cannot change which error is raised
+    private static Parser.ASTNode canonical(Parser.ASTNode ast) {
+        if (ast instanceof Parser.BinaryOpNode binaryNode
+                && !(binaryNode.getLeft() instanceof Parser.ValueNode)
+                && binaryNode.getRight() instanceof Parser.ValueNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            Parser.ASTNode literal = binaryNode.getLeft();
+            boolean symmetric = operator == Operator.EQ || operator == Operator.NEQ;
+            // ordering operators read the left operand first, only a number literal is sure not to fail
+            if (Parser.ASTNode.isLiteral(literal) && (symmetric || (operator != null && literal instanceof Parser.NumberNode))) {
+                return new Parser.BinaryOpNode(operator.flipped().getSymbol(), binaryNode.getRight(), literal);
+            }
+        }
+        return ast;
+    }
+
+    private static LeafKey key(Parser.ASTNode leaf) {
+        if (leaf instanceof Parser.BinaryOpNode binaryNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            Object left = operandKey(binaryNode.getLeft());
+            Object right = operandKey(binaryNode.getRight());
+            if (operator == null || left == null || right == null) {
+                return null;
+            }
+            return new LeafKey(operator.getSymbol(), left, right);
+        }
+        Object operand = operandKey(leaf);
+        return operand == null ? null : new LeafKey(null, operand, null);
+    }
+
+    private static Object operandKey(Parser.ASTNode operand) {
+        if (operand instanceof Parser.ValueNode valueNode) {
+            return new PathKey(valueNode.getValue());
+        }
+        if (Parser.ASTNode.isLiteral(operand)) {
+            return Values.literal(operand);
+        }
+        return null;
+    }
+
+    // a null operator stands for a stand-alone value
+    private record LeafKey(String operator, Object left, Object right) {
+    }
+
+    private record PathKey(String path) {
+    }
+
+    /**
+     * Boolean structure of one expression.
+     */
+    public interface Node {
+        boolean test(Session session);
+    }
+
+    private record AllOf(Node left, Node right) implements Node {
+        @Override
+        public boolean test(Session session) {
+            return left.test(session) && right.test(session);
+        }
+    }
+
+    private record AnyOf(Node left, Node right) implements Node {
+        @Override
+        public boolean test(Session session) {
+            return left.test(session) || right.test(session);
+        }
+    }
+
+    private record Constant(boolean value) implements Node {
+        @Override
+        public boolean test(Session session) {
+            return value;
+        }
+    }
+
+    private record Leaf(int index) implements Node {
+        @Override
+        public boolean test(Session session) {
+            return session.leaf(index);
+        }
+    }
+
+    /**
+     * Leaf results for one document. Not thread-safe, create one per document.
+     */
+    public static class Session {
+        private static final byte UNKNOWN = 0;
+        private static final byte FALSE = 1;
+        private static final byte TRUE = 2;
+        private static final byte FAILED = 3;
+
+        private final ExpressionPredicate[] leaves;
+        private final JsonNode root;
+        private final byte[] results;
+        private RuntimeException[] errors;
+        private int evaluated;
+
+        public Session(ExpressionPredicate[] leaves, JsonNode root) {
+            this.leaves = leaves;
+            this.root = root;
+            this.results = new byte[leaves.length];
+        }
+
+        /**
+         * @return the number of leaves evaluated so far
+         */
+        public int evaluated() {
+            return evaluated;
+        }
+
+        boolean leaf(int index) {
+            switch (results[index]) {
+                case TRUE:
+                    return true;
+                case FALSE:
+                    return false;
+                case FAILED:
+                    throw errors[index];
+                default:
+                    break;
+            }
+            evaluated++;
+            try {
+                boolean result = leaves[index].test(root);
+                results[index] = result ? TRUE : FALSE;
+                return result;
+            } catch (RuntimeException e) {
+                if (errors == null) {
+                    errors = new RuntimeException[leaves.length];
+                }
+                errors[index] = e;
+                results[index] = FAILED;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.expressioneval.analysis.optimizer;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Simplifies a parsed AST before it is stored.
+ * <p>
+ * <ul>
+ *     <li>comparisons of two literals are folded into a boolean, e.g. {@code 5 == 5} or {@code null == null}</li>
+ *     <li>a literal compared with a field is moved to the right, e.g. {@code 100 < amount} becomes {@code amount > 100}</li>
+ *     <li>nested AND (or OR) chains are flattened into one {@link Parser.NaryOpNode}</li>
+ *     <li>boolean identities are removed ({@code true AND x} is {@code x}, {@code false OR x} is {@code x}) and
+ *     operands after a deciding literal are dropped ({@code false AND x} is {@code false})</li>
+ *     <li>repeated operands of a chain are dropped, e.g. {@code a AND b AND a} is {@code a AND b}</li>
+ *     <li>operands are put into a canonical (textual) order</li>
+ * </ul>
+ * The optimized AST evaluates to the same result or error for every document: nothing that can fail is folded,
+ * and operands are only dropped or reordered where short-circuiting cannot skip or newly reach an operand that
+ * can fail (see {@link #canFail(Parser.ASTNode)}).
+ */
+@Component
+public class AstOptimizer {
+
+    public Parser.ASTNode optimize(Parser.ASTNode node) {
+        if (node instanceof Parser.NaryOpNode naryNode) {
+            Operator operator = Operator.fromSymbol(naryNode.getOp());
+            return operator != null && operator.isLogical() ? chain(operator, naryNode.getOperands()) : node;
+        }
+        if (!(node instanceof Parser.BinaryOpNode binaryNode)) {
+            return node;
+        }
+        Operator operator = Operator.fromSymbol(binaryNode.getOp());
+        if (operator == null) {
+            return node;
+        }
+        if (operator.isLogical()) {
+            return chain(operator, List.of(binaryNode.getLeft(), binaryNode.getRight()));
+        }
+        return comparison(operator, binaryNode);
+    }
+
+    /**
+     * @return false if evaluating the node can never throw: boolean literals, equality between fields and literals
+     * and AND/OR over such nodes; ordering comparisons and stand-alone values fail on missing or non-numeric fields
+     */
+    public static boolean canFail(Parser.ASTNode node) {
+        if (node instanceof Parser.BooleanNode) {
+            return false;
+        }
+        if (node instanceof Parser.NaryOpNode naryNode) {
+            Operator operator = Operator.fromSymbol(naryNode.getOp());
+            return operator == null || !operator.isLogical() || naryNode.getOperands().stream().anyMatch(AstOptimizer::canFail);
+        }
+        if (node instanceof Parser.BinaryOpNode binaryNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            if (operator == Operator.AND || operator == Operator.OR) {
+                return canFail(binaryNode.getLeft()) || canFail(binaryNode.getRight());
+            }
+            return !(operator == Operator.EQ || operator == Operator.NEQ)
+                    || !isOperand(binaryNode.getLeft()) || !isOperand(binaryNode.getRight());
+        }
+        return true;
+    }
+
+    private Parser.ASTNode chain(Operator operator, List<Parser.ASTNode> operands) {
+        boolean identity = operator == Operator.AND;
+        List<Parser.ASTNode> flattened = new ArrayList<>();
+        for (Parser.ASTNode operand : operands) {
+            Parser.ASTNode optimized = optimize(operand);
+            if (isChain(optimized, operator)) {
+                flattened.addAll(operands(optimized));
+            } else {
+                flattened.add(optimized);
+            }
+        }
+
+        List<Parser.ASTNode> kept = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Parser.ASTNode operand : flattened) {
+            if (operand instanceof Parser.BooleanNode booleanNode) {
+                if (booleanNode.getValue() == identity) {
+                    continue;
+                }
+                // decides the chain, later operands are never evaluated
+                if (kept.stream().noneMatch(AstOptimizer::canFail)) {
+                    return new Parser.BooleanNode(!identity);
+                }
+                kept.add(operand);
+                break;
+            }
+            // a repeated operand evaluates to what it did the first time
+            if (seen.add(operand.toString())) {
+                kept.add(operand);
+            }
+        }
+
+        List<Parser.ASTNode> ordered = canonicalOrder(kept);
+        if (ordered.isEmpty()) {
+            return new Parser.BooleanNode(identity);
+        }
+        if (ordered.size() == 1) {
+            return ordered.get(0);
+        }
+        if (ordered.size() == 2) {
+            return new Parser.BinaryOpNode(operator.getSymbol(), ordered.get(0), ordered.get(1));
+        }
+        return new Parser.NaryOpNode(operator.getSymbol(), ordered);
+    }
+
+    // sorts runs of operands that cannot fail, operands that can fail stay in place
+    private static List<Parser.ASTNode> canonicalOrder(List<Parser.ASTNode> operands) {
+        List<Parser.ASTNode> ordered = new ArrayList<>(operands.size());
+        List<Parser.ASTNode> run = new ArrayList<>();
+        for (Parser.ASTNode operand : operands) {
+            if (canFail(operand)) {
+                run.sort(Comparator.comparing(Parser.ASTNode::toString));
+                ordered.addAll(run);
+                run.clear();
+                ordered.add(operand);
+            } else {
+                run.add(operand);
+            }
+        }
+        run.sort(Comparator.comparing(Parser.ASTNode::toString));
+        ordered.addAll(run);
+        return ordered;
+    }
+
+    private static Parser.ASTNode comparison(Operator operator, Parser.BinaryOpNode node) {
+        Parser.ASTNode left = node.getLeft();
+        Parser.ASTNode right = node.getRight();
+        if (Parser.ASTNode.isLiteral(left) && Parser.ASTNode.isLiteral(right)) {
+            try {
+                return new Parser.BooleanNode(compare(operator, Values.literal(left), Values.literal(right)));
+            } catch (RuntimeException e) {
+                // fails on every evaluation, keep it for the error
+                return node;
+            }
+        }
+        // ordering comparisons convert the left operand first, only a number literal is sure not to fail there
+        if (Parser.ASTNode.isLiteral(left) && right instanceof Parser.ValueNode
+                && (operator == Operator.EQ || operator == Operator.NEQ || left instanceof Parser.NumberNode)) {
+            return new Parser.BinaryOpNode(operator.flipped().getSymbol(), right, left);
+        }
+        return node;
+    }
+
+    private static boolean compare(Operator operator, JsonNode left, JsonNode right) {
+        return switch (operator) {
+            case EQ -> Values.equal(left, right);
+            case NEQ -> !Values.equal(left, right);
+            case LT -> Values.lessThan(left, right);
+            case LEQ -> Values.lessOrEqual(left, right);
+            case GT -> Values.greaterThan(left, right);
+            case GEQ -> Values.greaterOrEqual(left, right);
+            default -> throw new IllegalArgumentException("Not a comparison: " + operator);
+        };
+    }
+
+    private static boolean isChain(Parser.ASTNode node, Operator operator) {
+        return node instanceof Parser.NaryOpNode naryNode && operator.getSymbol().equals(naryNode.getOp())
+                || node instanceof Parser.BinaryOpNode binaryNode && operator.getSymbol().equals(binaryNode.getOp());
+    }
+
+    private static List<Parser.ASTNode> operands(Parser.ASTNode chain) {
+        if (chain instanceof Parser.NaryOpNode naryNode) {
+            return naryNode.getOperands();
+        }
+        Parser.BinaryOpNode binaryNode = (Parser.BinaryOpNode) chain;
+        return List.of(binaryNode.getLeft(), binaryNode.getRight());
+    }
+
+    private static boolean isOperand(Parser.ASTNode node) {
+        return node instanceof Parser.ValueNode || Parser.ASTNode.isLiteral(node);
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.expressioneval.analysis.prepared;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.value.Values;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts a parsed AST once into a tree of specialized predicate objects.
+ * <p>
+ * Everything the {@link com.example.expressioneval.analysis.Evaluator} redoes per call is resolved here:
+ * operators become {@link Operator} values, every JSON path becomes a compiled {@link JsonPointer}
+ * and literals are converted to typed runtime values. Evaluating the result allocates nothing on top of
+ * what Jackson needs to read the document.
+ */
+@Component
+public class ExpressionPreparer {
+
+    public ExpressionPredicate prepare(Parser.ASTNode node) {
+        return condition(node);
+    }
+
+    private ExpressionPredicate condition(Parser.ASTNode node) {
+        if (node instanceof Parser.BinaryOpNode binaryNode) {
+            Operator operator = Operator.fromSymbol(binaryNode.getOp());
+            if (operator == null) {
+                String op = binaryNode.getOp();
+                return root -> Values.unknownOperator(op);
+            }
+            Parser.ASTNode left = binaryNode.getLeft();
+            Parser.ASTNode right = binaryNode.getRight();
+            return switch (operator) {
+                case AND -> new And(condition(left), condition(right));
+                case OR -> new Or(condition(left), condition(right));
+                case EQ -> new Equals(operand(left), operand(right));
+                case NEQ -> new NotEquals(operand(left), operand(right));
+                case LT -> new LessThan(operand(left), operand(right));
+                case LEQ -> new LessOrEqual(operand(left), operand(right));
+                case GT -> new GreaterThan(operand(left), operand(right));
+                case GEQ -> new GreaterOrEqual(operand(left), operand(right));
+            };
+        }
+        if (node instanceof Parser.NaryOpNode naryNode) {
+            ExpressionPredicate[] operands = naryNode.getOperands().stream()
+                    .map(this::condition)
+                    .toArray(ExpressionPredicate[]::new);
+            return switch (String.valueOf(naryNode.getOp())) {
+                case "AND" -> new AllOf(operands);
+                case "OR" -> new AnyOf(operands);
+                default -> {
+                    String op = naryNode.getOp();
+                    yield root -> Values.unknownOperator(op);
+                }
+            };
+        }
+        if (node instanceof Parser.BooleanNode booleanNode) {
+            boolean value = booleanNode.getValue();
+            return root -> value;
+        }
+        // for cases like a stand-alone boolean field
+        return new Truthy(operand(node));
+    }
+
+    private Operand operand(Parser.ASTNode node) {
+        if (node instanceof Parser.ValueNode valueNode) {
+            return new Path(JsonPointer.compile("/" + valueNode.getValue().replace('.', '/')));
+        }
+        if (node instanceof Parser.BinaryOpNode || node instanceof Parser.NaryOpNode) {
+            // only fails once it is actually compared, like in the interpreter
+            String nodeType = String.valueOf(node.getClass());
+            return root -> Values.unsupportedOperand(nodeType);
+        }
+        return new Constant(Values.literal(node));
+    }
+
+    private interface Operand {
+        JsonNode value(JsonNode root);
+    }
+
+    private record Path(JsonPointer pointer) implements Operand {
+        @Override
+        public JsonNode value(JsonNode root) {
+            return root.at(pointer);
+        }
+    }
+
+    private record Constant(JsonNode value) implements Operand {
+        @Override
+        public JsonNode value(JsonNode root) {
+            return value;
+        }
+    }
+
+    private record And(ExpressionPredicate left, ExpressionPredicate right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return left.test(root) && right.test(root);
+        }
+    }
+
+    private record Or(ExpressionPredicate left, ExpressionPredicate right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return left.test(root) || right.test(root);
+        }
+    }
+
+    private record AllOf(ExpressionPredicate[] operands) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            for (ExpressionPredicate operand : operands) {
+                if (!operand.test(root)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record AnyOf(ExpressionPredicate[] operands) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            for (ExpressionPredicate operand : operands) {
+                if (operand.test(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Equals(Operand left, Operand right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return Values.equal(left.value(root), right.value(root));
+        }
+    }
+
+    private record NotEquals(Operand left, Operand right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return !Values.equal(left.value(root), right.value(root));
+        }
+    }
+
+    private record LessThan(Operand left, Operand right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return Values.lessThan(left.value(root), right.value(root));
+        }
+    }
+
+    private record LessOrEqual(Operand left, Operand right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return Values.lessOrEqual(left.value(root), right.value(root));
+        }
+    }
+
+    private record GreaterThan(Operand left, Operand right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return Values.greaterThan(left.value(root), right.value(root));
+        }
+    }
+
+    private record GreaterOrEqual(Operand left, Operand right) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return Values.greaterOrEqual(left.value(root), right.value(root));
+        }
+    }
+
+    private record Truthy(Operand operand) implements ExpressionPredicate {
+        @Override
+        public boolean test(JsonNode root) {
+            return Values.truthy(operand.value(root));
+        }
+    }
+}
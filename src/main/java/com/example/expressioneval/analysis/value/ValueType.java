@@ -0,0 +1,24 @@
+package com.example.expressioneval.analysis.value;
+
+/**
+ * Runtime type of a value taking part in a comparison.
+ */
+public enum ValueType {
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    STRING,
+    NULL,
+    /** the referenced JSON path does not exist */
+    MISSING,
+    /** objects and arrays, only comparable through their text form */
+    OTHER;
+
+    public boolean isNumeric() {
+        return this == LONG || this == DOUBLE;
+    }
+
+    public boolean isAbsent() {
+        return this == NULL || this == MISSING;
+    }
+}
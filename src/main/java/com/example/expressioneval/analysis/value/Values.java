@@ -0,0 +1,155 @@
+package com.example.expressioneval.analysis.value;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * Typed comparison semantics shared by every evaluation mode.
+ * <p>
+ * Runtime values are plain {@link JsonNode}s: fields are read straight from the document and literals are
+ * converted once with {@link #literal(Parser.ASTNode)}. Numbers are compared as primitives (longs exactly,
+ * anything involving a decimal as doubles, so {@code 1.0 == 1}), strings and booleans by value, and null equals
+ * a missing field. Values of different types fall back to comparing their text, which keeps {@code "30" == 30}
+ * working for documents that store numbers as strings. Nothing on the comparison path boxes or converts
+ * numbers to strings. Must stay public, classes generated by the bytecode compiler call it directly.
+ */
+public final class Values {
+
+    private Values() {
+    }
+
+    public static ValueType typeOf(JsonNode node) {
+        if (node == null || node.isMissingNode()) {
+            return ValueType.MISSING;
+        }
+        return switch (node.getNodeType()) {
+            case NULL -> ValueType.NULL;
+            case BOOLEAN -> ValueType.BOOLEAN;
+            case STRING -> ValueType.STRING;
+            case NUMBER -> node.isIntegralNumber() && node.canConvertToLong() ? ValueType.LONG : ValueType.DOUBLE;
+            default -> ValueType.OTHER;
+        };
+    }
+
+    /**
+     * @return the runtime value of a literal AST node
+     */
+    public static JsonNode literal(Parser.ASTNode node) {
+        if (node instanceof Parser.NumberNode numberNode) {
+            return numberNode.isIntegral()
+                    ? LongNode.valueOf(numberNode.getValue().longValue())
+                    : DoubleNode.valueOf(numberNode.getValue().doubleValue());
+        }
+        if (node instanceof Parser.StringNode stringNode) {
+            return stringNode.getValue() == null ? NullNode.getInstance() : TextNode.valueOf(stringNode.getValue());
+        }
+        if (node instanceof Parser.BooleanNode booleanNode) {
+            return BooleanNode.valueOf(booleanNode.getValue());
+        }
+        if (node instanceof Parser.NullNode) {
+            return NullNode.getInstance();
+        }
+        throw new EvaluationException("Not a literal: " + node.getClass());
+    }
+
+    public static boolean equal(JsonNode left, JsonNode right) {
+        ValueType leftType = typeOf(left);
+        ValueType rightType = typeOf(right);
+        if (leftType.isAbsent() || rightType.isAbsent()) {
+            return leftType.isAbsent() && rightType.isAbsent();
+        }
+        if (leftType == ValueType.LONG && rightType == ValueType.LONG) {
+            return left.longValue() == right.longValue();
+        }
+        if (leftType.isNumeric() && rightType.isNumeric()) {
+            return left.doubleValue() == right.doubleValue();
+        }
+        if (leftType == ValueType.BOOLEAN && rightType == ValueType.BOOLEAN) {
+            return left.booleanValue() == right.booleanValue();
+        }
+        if (leftType == ValueType.STRING && rightType == ValueType.STRING) {
+            return left.textValue().equals(right.textValue());
+        }
+        return left.asText().equals(right.asText());
+    }
+
+    public static boolean lessThan(JsonNode left, JsonNode right) {
+        ValueType leftType = typeOf(left);
+        ValueType rightType = typeOf(right);
+        if (leftType == ValueType.LONG && rightType == ValueType.LONG) {
+            return left.longValue() < right.longValue();
+        }
+        return number(left, leftType) < number(right, rightType);
+    }
+
+    public static boolean lessOrEqual(JsonNode left, JsonNode right) {
+        ValueType leftType = typeOf(left);
+        ValueType rightType = typeOf(right);
+        if (leftType == ValueType.LONG && rightType == ValueType.LONG) {
+            return left.longValue() <= right.longValue();
+        }
+        return number(left, leftType) <= number(right, rightType);
+    }
+
+    public static boolean greaterThan(JsonNode left, JsonNode right) {
+        ValueType leftType = typeOf(left);
+        ValueType rightType = typeOf(right);
+        if (leftType == ValueType.LONG && rightType == ValueType.LONG) {
+            return left.longValue() > right.longValue();
+        }
+        return number(left, leftType) > number(right, rightType);
+    }
+
+    public static boolean greaterOrEqual(JsonNode left, JsonNode right) {
+        ValueType leftType = typeOf(left);
+        ValueType rightType = typeOf(right);
+        if (leftType == ValueType.LONG && rightType == ValueType.LONG) {
+            return left.longValue() >= right.longValue();
+        }
+        return number(left, leftType) >= number(right, rightType);
+    }
+
+    /**
+     * Value of a stand-alone operand, e.g. a boolean field used directly as a condition.
+     */
+    public static boolean truthy(JsonNode node) {
+        ValueType type = typeOf(node);
+        if (type == ValueType.BOOLEAN) {
+            return node.booleanValue();
+        }
+        if (type.isAbsent()) {
+            throw new EvaluationException("Node value is null");
+        }
+        return node.asText().equalsIgnoreCase("true");
+    }
+
+    public static JsonNode unsupportedOperand(String nodeType) {
+        throw new EvaluationException("Error fetching value from node",
+                new EvaluationException("Unknown node type for fetching value: " + nodeType));
+    }
+
+    public static boolean unknownOperator(String op) {
+        throw new EvaluationException("Unknown operator: " + op);
+    }
+
+    private static double number(JsonNode node, ValueType type) {
+        if (type.isNumeric()) {
+            return node.doubleValue();
+        }
+        if (type.isAbsent()) {
+            throw new EvaluationException("Numeric value is null");
+        }
+        // numbers stored as strings are still compared numerically
+        try {
+            return Double.parseDouble(node.asText());
+        } catch (NumberFormatException e) {
+            throw new EvaluationException("Failed to convert string to number", e);
+        }
+    }
+}
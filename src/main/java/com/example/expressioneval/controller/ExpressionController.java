@@ -1,17 +1,37 @@
 package com.example.expressioneval.controller;
 
 import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.adaptive.AdaptivePredicate;
+import com.example.expressioneval.exception.exceptions.InputProcessingException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
 import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.service.AdHocExpressionCache;
+import com.example.expressioneval.service.BatchEvaluationService;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.ExpressionImportService;
 import com.example.expressioneval.service.LogicalExpressionService;
-import com.example.expressioneval.service.SerializationService;
+import com.example.expressioneval.service.RuleEvaluationService;
+import com.example.expressioneval.service.StreamEvaluationService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,38 +42,82 @@ public class ExpressionController {
 
     private final LogicalExpressionService logicalExpressionService;
 
-    private final SerializationService serializationService;
+    private final ExpressionCache expressionCache;
 
-    public ExpressionController(LogicalExpressionService logicalExpressionService, SerializationService serializationService) {
+    private final BatchEvaluationService batchEvaluationService;
+
+    private final RuleEvaluationService ruleEvaluationService;
+
+    private final ExpressionImportService expressionImportService;
+
+    private final StreamEvaluationService streamEvaluationService;
+
+    private final AdHocExpressionCache adHocExpressionCache;
+
+    public ExpressionController(LogicalExpressionService logicalExpressionService, ExpressionCache expressionCache,
+                                BatchEvaluationService batchEvaluationService, RuleEvaluationService ruleEvaluationService,
+                                ExpressionImportService expressionImportService,
+                                StreamEvaluationService streamEvaluationService,
+                                AdHocExpressionCache adHocExpressionCache) {
         this.logicalExpressionService = logicalExpressionService;
-        this.serializationService = serializationService;
+        this.expressionCache = expressionCache;
+        this.batchEvaluationService = batchEvaluationService;
+        this.ruleEvaluationService = ruleEvaluationService;
+        this.expressionImportService = expressionImportService;
+        this.streamEvaluationService = streamEvaluationService;
+        this.adHocExpressionCache = adHocExpressionCache;
     }
 
     /**
      * Endpoint to store a logical expression with a given name.
-     * The stored expression is assigned a unique identifier (ID) which is returned.
+     * The stored expression is assigned a unique identifier (ID) which is returned. The parsed expression is
+     * simplified before it is stored, the expression text is kept as given.
      *
      * @param name The name of the logical expression.
      * @param value The actual logical condition.
+     * @param mode How the expression is executed on evaluation (interpreted, prepared, streaming, compiled to bytecode,
+     *             adaptive or flat).
+     * @param tags Optional comma separated tags used to select the expression as a rule.
+     * @param priority Optional rule priority, higher priorities are evaluated first.
      * @return A map containing the unique ID of the saved expression and its value.
      */
     @PostMapping("/expression")
-    public ResponseEntity<Map<String, Object>> saveExpression(@RequestParam String name, @RequestParam String value) {
+    public ResponseEntity<Map<String, Object>> saveExpression(@RequestParam String name, @RequestParam String value,
+                                                              @RequestParam(defaultValue = "PREPARED") EvaluationMode mode,
+                                                              @RequestParam(required = false) String tags,
+                                                              @RequestParam(required = false) Integer priority) {
         String processedInput = logicalExpressionService.preProcessInput(value);
         Parser.ASTNode node = logicalExpressionService.parseExpression(logicalExpressionService.tokenizeExpression(processedInput));
-        String serializedAST = serializationService.serialize(node);
-        LogicalExpression logicalExpression = logicalExpressionService.save(name, processedInput, serializedAST);
+        node = logicalExpressionService.optimizeExpression(node);
+        LogicalExpression logicalExpression = logicalExpressionService.save(name, processedInput, node, mode, tags, priority);
 
         Map<String, Object> response = new HashMap<>();
         response.put("id", logicalExpression.getId());
         response.put("value", logicalExpression.getExpressionValue());
+        response.put("mode", logicalExpression.getEvaluationMode());
 
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Endpoint to store many logical expressions at once.
+     * Expressions are parsed in parallel and inserted in batches; an invalid item is reported and skipped.
+     * Malformed JSON part-way through the body stops the import after the items before it.
+     *
+     * @param request The request whose body holds a JSON array or newline-delimited JSON objects with the fields
+     *                name, value and optionally mode, tags and priority.
+     * @return A map containing the imported and failed counts, the IDs of the imported expressions in input order,
+     * the errors by item index, whether the whole body was read and the import throughput in rows per second.
+     */
+    @PostMapping(value = "/expression/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public Map<String, Object> importExpressions(HttpServletRequest request) throws IOException {
+        return expressionImportService.importExpressions(request.getInputStream());
+    }
+
     /**
      * Endpoint to evaluate a previously stored logical expression against provided JSON data.
-     * The unique ID is used to fetch the stored expression.
+     * The unique ID is used to fetch the stored expression, which is served from the expression cache
+     * once it has been loaded.
      *
      * @param id The unique identifier (ID) of the logical expression.
      * @param jsonData The JSON data against which the expression is to be evaluated.
@@ -61,13 +125,165 @@ public class ExpressionController {
      */
     @PostMapping("/evaluate")
     public Map<String, Object> evaluateExpression(@RequestParam Long id, @RequestBody String jsonData) {
-        LogicalExpression expr = logicalExpressionService.getById(id);
-        Parser.ASTNode node = serializationService.deserialize(expr.getAstJson());
-        boolean result = logicalExpressionService.evaluateExpression(node, jsonData);
+        CompiledExpression expr = expressionCache.get(id);
+        boolean result = logicalExpressionService.evaluateExpression(expr, jsonData);
 
         Map<String, Object> response = new HashMap<>();
         response.put("result", result);
         response.put("expr", expr.getExpressionValue());
         return response;
     }
+
+    /**
+     * Endpoint to evaluate a logical expression that is not stored against provided JSON data.
+     * The parsed expression is kept in the ad-hoc expression cache by its text, so evaluating the same text again
+     * skips parsing and compiling it.
+     *
+     * @param expression The logical condition.
+     * @param mode How the expression is executed, as for stored expressions.
+     * @param jsonData The JSON data against which the expression is to be evaluated.
+     * @return A map containing the result of the evaluation (true or false).
+     */
+    @PostMapping("/evaluate/adhoc")
+    public Map<String, Object> evaluateAdHoc(@RequestParam String expression,
+                                             @RequestParam(defaultValue = "PREPARED") EvaluationMode mode,
+                                             @RequestBody String jsonData) {
+        CompiledExpression expr = adHocExpressionCache.get(expression, mode);
+        boolean result = logicalExpressionService.evaluateExpression(expr, jsonData);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("result", result);
+        response.put("expr", expr.getExpressionValue());
+        return response;
+    }
+
+    /**
+     * Endpoint to inspect the evaluation plan of an adaptively evaluated expression.
+     * Statistics are kept while the expression stays in the expression cache.
+     *
+     * @param id The unique identifier (ID) of the logical expression.
+     * @return A map containing the evaluation counters and the current operand order of every AND/OR chain
+     * with the sampled true rate and cost of each operand.
+     */
+    @GetMapping("/expression/plan")
+    public Map<String, Object> expressionPlan(@RequestParam Long id) {
+        CompiledExpression expr = expressionCache.get(id);
+        if (!(expr.getPredicate() instanceof AdaptivePredicate adaptivePredicate)) {
+            throw new InputProcessingException("Expression is not evaluated in ADAPTIVE mode: " + id);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", expr.getId());
+        response.put("expr", expr.getExpressionValue());
+        response.putAll(adaptivePredicate.describe());
+        return response;
+    }
+
+    /**
+     * Endpoint to evaluate a previously stored logical expression against a newline-delimited JSON stream.
+     * The body is read incrementally and evaluated in parallel chunks, results are streamed back as
+     * newline-delimited JSON in input order, followed by a summary line with the match, document and error counts.
+     *
+     * @param id The unique identifier (ID) of the logical expression.
+     * @param output RESULTS for one result (or error) per document, MATCHES for the matching line numbers only.
+     * @param engine ROW to evaluate document by document, COLUMNAR to decode chunks of documents into typed columns
+     *               and evaluate them column by column with the same results.
+     * @param request The request whose body holds one JSON document per line.
+     * @return The streamed newline-delimited JSON response.
+     */
+    @PostMapping("/evaluate/batch")
+    public ResponseEntity<StreamingResponseBody> evaluateBatch(@RequestParam Long id,
+                                                               @RequestParam(defaultValue = "RESULTS") BatchEvaluationService.Output output,
+                                                               @RequestParam(defaultValue = "ROW") BatchEvaluationService.Engine engine,
+                                                               HttpServletRequest request) {
+        CompiledExpression expr = expressionCache.get(id);
+        StreamingResponseBody body = out -> batchEvaluationService.evaluate(expr, request.getInputStream(), out, output, engine);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Endpoint to evaluate one or more previously stored logical expressions against a long-lived stream of JSON
+     * events, one event per line. Each event is evaluated against every expression as soon as it has been read and
+     * its results are written back immediately, as newline-delimited JSON or Server-Sent Events. The next event is
+     * only read once the previous results have been written, so a slow client slows down the producer instead of
+     * making the server buffer. The stream is handled on the request thread rather than the async executor, since
+     * it may stay open for a long time.
+     *
+     * @param id The unique identifiers (IDs) of the logical expressions.
+     * @param format NDJSON or SSE, by default SSE if the client accepts {@code text/event-stream}, NDJSON otherwise.
+     * @param request The request whose body holds one JSON event per line, blank lines are ignored.
+     * @param response The response the results are streamed to.
+     */
+    @PostMapping("/evaluate/stream")
+    public void evaluateStream(@RequestParam List<Long> id,
+                               @RequestParam(required = false) StreamEvaluationService.Format format,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<CompiledExpression> expressions = new ArrayList<>();
+        for (Long expressionId : new LinkedHashSet<>(id)) {
+            expressions.add(expressionCache.get(expressionId));
+        }
+        if (format == null) {
+            String accept = request.getHeader("Accept");
+            format = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)
+                    ? StreamEvaluationService.Format.SSE
+                    : StreamEvaluationService.Format.NDJSON;
+        }
+        if (format == StreamEvaluationService.Format.SSE) {
+            response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            response.setHeader("Cache-Control", "no-cache");
+        } else {
+            response.setContentType("application/x-ndjson");
+        }
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        streamEvaluationService.evaluate(expressions, request.getInputStream(), response.getOutputStream(), format);
+    }
+
+    /**
+     * Endpoint to evaluate all stored expressions as rules against one JSON document.
+     * The document is parsed once into a row holding only the fields the selected rules reference,
+     * and a comparison shared by several rules is evaluated only once.
+     *
+     * @param mode ALL for every matching rule, FIRST for the first match by priority, COUNT for the number of matches.
+     * @param tag Optional tags, only rules having one of them are evaluated.
+     * @param jsonData The JSON data against which the rules are evaluated.
+     * @return A map containing the matching rule IDs, the match count, the number of evaluated rules and predicates
+     * and rule errors.
+     */
+    @PostMapping("/evaluate/rules")
+    public Map<String, Object> evaluateRules(@RequestParam(defaultValue = "ALL") RuleEvaluationService.Mode mode,
+                                             @RequestParam(required = false) List<String> tag,
+                                             @RequestBody String jsonData) {
+        return ruleEvaluationService.evaluate(jsonData, mode, tag);
+    }
+
+    /**
+     * Endpoint to inspect the loaded rule set.
+     *
+     * @return A map containing the number of rules, their distinct predicates and the predicate count before sharing.
+     */
+    @GetMapping("/rules/stats")
+    public Map<String, Object> ruleStats() {
+        return ruleEvaluationService.stats();
+    }
+
+    /**
+     * Endpoint to inspect the compiled expression cache.
+     *
+     * @return A map containing the cache size, hit/miss counters, hit rate and eviction count.
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        return expressionCache.stats();
+    }
+
+    /**
+     * Endpoint to inspect the ad-hoc expression cache.
+     *
+     * @return A map containing the cache size and maximum size, hit/miss counters, hit rate and eviction count.
+     */
+    @GetMapping("/cache/adhoc/stats")
+    public Map<String, Object> adHocCacheStats() {
+        return adHocExpressionCache.stats();
+    }
 }
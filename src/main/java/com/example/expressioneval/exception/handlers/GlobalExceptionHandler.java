@@ -1,6 +1,7 @@
 package com.example.expressioneval.exception.handlers;
 
 import com.example.expressioneval.exception.exceptions.*;
+import com.example.expressioneval.service.ExpressionMetrics;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,8 +15,15 @@ import java.util.Map;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final ExpressionMetrics metrics;
+
+    public GlobalExceptionHandler(ExpressionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @ExceptionHandler(IOException.class)
     public ResponseEntity<Object> handleIOException(IOException ex, WebRequest request) {
+        metrics.recordError(ex);
         Map<String, Object> body = new HashMap<>();
         body.put("message", "An I/O error occurred: " + ex.getMessage());
         return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -30,6 +38,7 @@ public class GlobalExceptionHandler {
             SerializationException.class
     })
     public ResponseEntity<Object> handleCommonExceptions(RuntimeException ex, WebRequest request) {
+        metrics.recordError(ex);
         HttpStatus status = HttpStatus.BAD_REQUEST;
         Map<String, Object> body = new HashMap<>();
         body.put("message", ex.getMessage());
@@ -0,0 +1,56 @@
+package com.example.expressioneval.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * A distinct AST, stored once and referenced by the {@link LogicalExpression#getAstHash() hash} of every expression
+ * that normalizes to it. The hash is the SHA-256 of the binary encoding, so a blob never changes once written.
+ */
+@Entity
+public class AstBlob implements Persistable<String> {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // BinaryAstCodec encoding of the AST
+    @Column(length = 65535)
+    private byte[] astBinary;
+
+    // blobs are only ever inserted, this saves the select a merge would do first
+    @Transient
+    private boolean stored;
+
+    public AstBlob() {
+    }
+
+    public AstBlob(String hash, byte[] astBinary) {
+        this.hash = hash;
+        this.astBinary = astBinary;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public byte[] getAstBinary() {
+        return astBinary;
+    }
+
+    @Override
+    public String getId() {
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        stored = true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.expressioneval.model;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.document.DocumentReader;
+import com.example.expressioneval.analysis.flat.FlatAst;
+
+/**
+ * Ready-to-evaluate form of a stored {@link LogicalExpression}.
+ * Instances are immutable and shared between requests through the expression cache,
+ * so the AST must never be modified after construction.
+ * A FLAT expression holds no AST, only its {@link FlatAst} predicate.
+ */
+public class CompiledExpression {
+    private final Long id;
+    private final String expressionValue;
+    private final Parser.ASTNode ast;
+    private final EvaluationMode evaluationMode;
+    private final ExpressionPredicate predicate;
+    private final DocumentReader documentReader;
+
+    public CompiledExpression(Long id, String expressionValue, Parser.ASTNode ast, EvaluationMode evaluationMode,
+                              ExpressionPredicate predicate, DocumentReader documentReader) {
+        this.id = id;
+        this.expressionValue = expressionValue;
+        this.ast = ast;
+        this.evaluationMode = evaluationMode;
+        this.predicate = predicate;
+        this.documentReader = documentReader;
+    }
+
+    public boolean evaluate(String json) {
+        return predicate.test(documentReader.read(json));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getExpressionValue() {
+        return expressionValue;
+    }
+
+    /**
+     * @return the AST, decoded anew on each call for a FLAT expression
+     */
+    public Parser.ASTNode getAst() {
+        if (ast == null && predicate instanceof FlatAst flatAst) {
+            return flatAst.toAst();
+        }
+        return ast;
+    }
+
+    public EvaluationMode getEvaluationMode() {
+        return evaluationMode;
+    }
+
+    public ExpressionPredicate getPredicate() {
+        return predicate;
+    }
+
+    public DocumentReader getDocumentReader() {
+        return documentReader;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.expressioneval.model;
+
+/**
+ * Selects how a stored expression is executed once it is loaded into the expression cache.
+ */
+public enum EvaluationMode {
+    /** Walk the AST on every evaluation (see {@link com.example.expressioneval.analysis.Evaluator}). */
+    INTERPRETED,
+    /** Evaluate a tree of pre-resolved predicate objects (see {@link com.example.expressioneval.analysis.prepared.ExpressionPreparer}). */
+    PREPARED,
+    /**
+     * Like {@link #PREPARED}, but only the JSON paths the expression references are read from the payload
+     * (see {@link com.example.expressioneval.analysis.document.SelectiveDocumentReader}).
+     */
+    STREAMING,
+    /** Generate a hidden JVM class for the expression (see {@link com.example.expressioneval.analysis.compiler.BytecodeCompiler}). */
+    COMPILED,
+    /**
+     * Like {@link #PREPARED}, but AND/OR operands are reordered by sampled selectivity and cost
+     * (see {@link com.example.expressioneval.analysis.adaptive.AdaptivePredicate}).
+     */
+    ADAPTIVE,
+    /**
+     * Walk an {@code int[]} encoding of the AST whose paths and literals live in a pool shared by all expressions
+     * (see {@link com.example.expressioneval.analysis.flat.FlatAst}).
+     */
+    FLAT
+}
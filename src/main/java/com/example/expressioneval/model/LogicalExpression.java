@@ -5,17 +5,37 @@ import jakarta.persistence.*;
 
 @Entity
 public class LogicalExpression {
+    // pooled sequence, one round trip per allocationSize inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "logical_expression_seq")
+    @SequenceGenerator(name = "logical_expression_seq", sequenceName = "LogicalExpression_SEQ", allocationSize = 50)
     private Long id;
     private String name;
 
     @Column(length = 2000)
     private String expressionValue;
 
+    // only set on rows stored before the binary format, see AstStorageMigration
     @Lob
     private String astJson;
 
+    // only set on rows stored before ASTs were shared, see AstStorageMigration
+    @Column(length = 65535)
+    private byte[] astBinary;
+
+    // AstBlob holding the AST, shared by all expressions that normalize to the same AST
+    @Column(length = 64)
+    private String astHash;
+
+    @Enumerated(EnumType.STRING)
+    private EvaluationMode evaluationMode;
+
+    // comma separated, used to select rules for multi-rule evaluation
+    private String tags;
+
+    // higher values are evaluated first, null counts as 0
+    private Integer priority;
+
     public LogicalExpression() {
     }
 
@@ -51,4 +71,44 @@ public class LogicalExpression {
     public void setAstJson(String astJson) {
         this.astJson = astJson;
     }
+
+    public byte[] getAstBinary() {
+        return astBinary;
+    }
+
+    public void setAstBinary(byte[] astBinary) {
+        this.astBinary = astBinary;
+    }
+
+    public String getAstHash() {
+        return astHash;
+    }
+
+    public void setAstHash(String astHash) {
+        this.astHash = astHash;
+    }
+
+    public EvaluationMode getEvaluationMode() {
+        return evaluationMode;
+    }
+
+    public void setEvaluationMode(EvaluationMode evaluationMode) {
+        this.evaluationMode = evaluationMode;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
 }
@@ -0,0 +1,250 @@
+package com.example.expressioneval.model.serialize;
+
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of an AST, read and written without reflection.
+ * <p>
+ * Layout: a version byte, the string table (varint count, then per string a varint UTF-8 length and the bytes)
+ * and the nodes in preorder. Every node starts with an opcode; operators have their own opcodes, paths and
+ * string literals are varint indexes into the string table (so a path used twice is stored once), integers are
+ * zigzag varints and decimals 8 raw bytes. Unknown operator symbols are kept as a string table index.
+ */
+public final class BinaryAstCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int ABSENT = 0x00;
+    private static final int VALUE = 0x01;
+    private static final int STRING = 0x02;
+    private static final int STRING_NULL = 0x03;
+    private static final int LONG = 0x04;
+    private static final int DOUBLE = 0x05;
+    private static final int NULL = 0x06;
+    private static final int TRUE = 0x07;
+    private static final int FALSE = 0x08;
+    private static final int BINARY_OTHER = 0x0F;
+    // + Operator.ordinal()
+    private static final int BINARY = 0x10;
+    private static final int NARY = 0x20;
+    private static final int NARY_OTHER = 0x2F;
+
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private BinaryAstCodec() {
+    }
+
+    public static byte[] encode(Parser.ASTNode node) {
+        Writer writer = new Writer();
+        writer.node(node);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(writer.nodes.size() + 16 * writer.strings.size() + 8);
+        out.write(VERSION);
+        writeVarint(out, writer.strings.size());
+        for (String string : writer.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+        out.writeBytes(writer.nodes.toByteArray());
+        return out.toByteArray();
+    }
+
+    public static Parser.ASTNode decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported AST encoding version: " + version);
+        }
+        int count = reader.readVarint();
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = reader.readVarint();
+            strings[i] = new String(bytes, reader.position, length, StandardCharsets.UTF_8);
+            reader.position += length;
+        }
+        reader.strings = strings;
+        Parser.ASTNode node = reader.node();
+        if (reader.position != bytes.length) {
+            throw new IllegalArgumentException("Trailing bytes after AST at offset " + reader.position);
+        }
+        return node;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static class Writer {
+        private final ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+        void node(Parser.ASTNode node) {
+            if (node instanceof Parser.BinaryOpNode binaryNode) {
+                Operator operator = Operator.fromSymbol(binaryNode.getOp());
+                if (operator != null) {
+                    nodes.write(BINARY + operator.ordinal());
+                } else {
+                    nodes.write(BINARY_OTHER);
+                    string(binaryNode.getOp());
+                }
+                node(binaryNode.getLeft());
+                node(binaryNode.getRight());
+            } else if (node instanceof Parser.NaryOpNode naryNode) {
+                Operator operator = Operator.fromSymbol(naryNode.getOp());
+                if (operator != null) {
+                    nodes.write(NARY + operator.ordinal());
+                } else {
+                    nodes.write(NARY_OTHER);
+                    string(naryNode.getOp());
+                }
+                writeVarint(nodes, naryNode.getOperands().size());
+                for (Parser.ASTNode operand : naryNode.getOperands()) {
+                    node(operand);
+                }
+            } else if (node instanceof Parser.ValueNode valueNode) {
+                nodes.write(VALUE);
+                string(valueNode.getValue());
+            } else if (node instanceof Parser.StringNode stringNode) {
+                if (stringNode.getValue() == null) {
+                    nodes.write(STRING_NULL);
+                } else {
+                    nodes.write(STRING);
+                    string(stringNode.getValue());
+                }
+            } else if (node instanceof Parser.NumberNode numberNode) {
+                if (numberNode.isIntegral()) {
+                    long value = numberNode.getValue().longValue();
+                    nodes.write(LONG);
+                    writeVarint(nodes, (value << 1) ^ (value >> 63));
+                } else {
+                    long bits = Double.doubleToRawLongBits(numberNode.getValue().doubleValue());
+                    nodes.write(DOUBLE);
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        nodes.write((int) (bits >>> shift));
+                    }
+                }
+            } else if (node instanceof Parser.BooleanNode booleanNode) {
+                nodes.write(booleanNode.getValue() ? TRUE : FALSE);
+            } else if (node instanceof Parser.NullNode) {
+                nodes.write(NULL);
+            } else if (node == null) {
+                nodes.write(ABSENT);
+            } else {
+                throw new IllegalArgumentException("Unknown AST node type: " + node.getClass());
+            }
+        }
+
+        private void string(String value) {
+            Integer index = stringIndexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                stringIndexes.put(value, index);
+            }
+            writeVarint(nodes, index);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] bytes;
+        private int position;
+        private String[] strings;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        Parser.ASTNode node() {
+            int opcode = readByte();
+            if (opcode >= BINARY && opcode < BINARY + OPERATORS.length) {
+                return binary(OPERATORS[opcode - BINARY].getSymbol());
+            }
+            if (opcode >= NARY && opcode < NARY + OPERATORS.length) {
+                return nary(OPERATORS[opcode - NARY].getSymbol());
+            }
+            return switch (opcode) {
+                case BINARY_OTHER -> binary(string());
+                case NARY_OTHER -> nary(string());
+                case VALUE -> new Parser.ValueNode(string());
+                case STRING -> new Parser.StringNode(string());
+                case STRING_NULL -> new Parser.StringNode(null);
+                case LONG -> {
+                    long zigzag = readVarint64();
+                    yield new Parser.NumberNode((zigzag >>> 1) ^ -(zigzag & 1));
+                }
+                case DOUBLE -> {
+                    long bits = 0;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | readByte();
+                    }
+                    yield new Parser.NumberNode(Double.longBitsToDouble(bits));
+                }
+                case NULL -> new Parser.NullNode();
+                case TRUE -> new Parser.BooleanNode(true);
+                case FALSE -> new Parser.BooleanNode(false);
+                case ABSENT -> null;
+                default -> throw new IllegalArgumentException("Unknown AST opcode " + opcode + " at offset " + (position - 1));
+            };
+        }
+
+        private Parser.ASTNode binary(String op) {
+            Parser.ASTNode left = node();
+            Parser.ASTNode right = node();
+            return new Parser.BinaryOpNode(op, left, right);
+        }
+
+        private Parser.ASTNode nary(String op) {
+            int count = readVarint();
+            List<Parser.ASTNode> operands = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                operands.add(node());
+            }
+            return new Parser.NaryOpNode(op, operands);
+        }
+
+        private String string() {
+            return strings[readVarint()];
+        }
+
+        int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated AST encoding");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int readVarint() {
+            long value = readVarint64();
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Varint out of range at offset " + position);
+            }
+            return (int) value;
+        }
+
+        long readVarint64() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at offset " + position);
+        }
+    }
+}
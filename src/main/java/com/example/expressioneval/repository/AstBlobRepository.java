@@ -0,0 +1,16 @@
+package com.example.expressioneval.repository;
+
+import com.example.expressioneval.model.AstBlob;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AstBlobRepository extends CrudRepository<AstBlob, String> {
+
+    // which of the given blobs exist, without loading their content
+    @Query("select b.hash from AstBlob b where b.hash in :hashes")
+    List<String> findExistingHashes(@Param("hashes") Collection<String> hashes);
+}
@@ -1,8 +1,16 @@
 package com.example.expressioneval.repository;
 
 import com.example.expressioneval.model.LogicalExpression;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.List;
+
 public interface LogicalExpressionRepository extends CrudRepository<LogicalExpression, Long> {
 
+    // rows still holding their own AST, in id order so a batch can continue after the last id it saw
+    List<LogicalExpression> findByIdGreaterThanAndAstHashIsNullOrderByIdAsc(Long id, Pageable pageable);
+
+    // all rows page by page, in id order
+    List<LogicalExpression> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
@@ -0,0 +1,77 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of compiled ad-hoc expressions, keyed by the preprocessed expression text and the evaluation mode.
+ * <p>
+ * Ad-hoc expressions are evaluated without being stored. A hit skips tokenizing, parsing, optimizing and compiling,
+ * so callers that generate the same expressions over and over only pay for the JSON document. Invalid expressions
+ * are not cached, every request for them fails again with the same error. Entries are evicted by size only, the
+ * least recently and frequently used first.
+ */
+@Service
+public class AdHocExpressionCache {
+
+    private final LogicalExpressionService logicalExpressionService;
+
+    private final ExpressionCache expressionCache;
+
+    private final long maximumSize;
+
+    private final Cache<Key, CompiledExpression> cache;
+
+    public AdHocExpressionCache(LogicalExpressionService logicalExpressionService, ExpressionCache expressionCache,
+                                @Value("${expression.adhoc.cache.maximum-size:1000}") long maximumSize) {
+        this.logicalExpressionService = logicalExpressionService;
+        this.expressionCache = expressionCache;
+        this.maximumSize = maximumSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public CompiledExpression get(String expression, EvaluationMode mode) {
+        String processedInput = logicalExpressionService.preProcessInput(expression);
+        Key key = new Key(processedInput, mode);
+        CompiledExpression compiled = cache.getIfPresent(key);
+        if (compiled == null) {
+            // compiled outside of the cache's locks, a concurrent miss of the same text just loses the race below
+            Parser.ASTNode ast = logicalExpressionService.parseExpression(
+                    logicalExpressionService.tokenizeExpression(processedInput));
+            ast = logicalExpressionService.optimizeExpression(ast);
+            CompiledExpression loaded = expressionCache.compile(processedInput, ast, mode);
+            compiled = cache.asMap().putIfAbsent(key, loaded);
+            if (compiled == null) {
+                compiled = loaded;
+            }
+        }
+        return compiled;
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", cache.estimatedSize());
+        response.put("maximumSize", maximumSize);
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        return response;
+    }
+
+    private record Key(String expression, EvaluationMode mode) {
+    }
+}
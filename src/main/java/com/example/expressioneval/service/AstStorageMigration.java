@@ -0,0 +1,108 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.model.AstBlob;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts rows that still hold their own AST, either as JSON (stored before the binary format) or binary (stored
+ * before ASTs were shared): the AST is decoded, stored as a shared {@link AstBlob}
+ * and referenced by its hash, and the row's own copy is cleared. Runs on startup in batches, one transaction per
+ * batch. Rows that cannot be converted keep their AST, which is still read as a fallback.
+ */
+@Component
+public class AstStorageMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AstStorageMigration.class);
+
+    private final LogicalExpressionRepository repository;
+
+    private final SerializationService serializationService;
+
+    private final AstStore astStore;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean migrateOnStartup;
+
+    private final int batchSize;
+
+    public AstStorageMigration(LogicalExpressionRepository repository, SerializationService serializationService,
+                               AstStore astStore, TransactionTemplate transactionTemplate,
+                               @Value("${expression.storage.migrate-on-startup:true}") boolean migrateOnStartup,
+                               @Value("${expression.storage.migration-batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.serializationService = serializationService;
+        this.astStore = astStore;
+        this.transactionTemplate = transactionTemplate;
+        this.migrateOnStartup = migrateOnStartup;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (migrateOnStartup) {
+            migrate();
+        }
+    }
+
+    /**
+     * @return the number of converted rows
+     */
+    public int migrate() {
+        long lastId = Long.MIN_VALUE;
+        int migrated = 0;
+        int failed = 0;
+        while (true) {
+            List<LogicalExpression> batch = repository.findByIdGreaterThanAndAstHashIsNullOrderByIdAsc(lastId,
+                    PageRequest.ofSize(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+            int[] counts = transactionTemplate.execute(status -> convert(batch));
+            migrated += counts[0];
+            failed += counts[1];
+        }
+        if (migrated > 0 || failed > 0) {
+            log.info("Converted {} stored expressions to shared ASTs, {} could not be converted", migrated, failed);
+        }
+        return migrated;
+    }
+
+    private int[] convert(List<LogicalExpression> batch) {
+        int migrated = 0;
+        int failed = 0;
+        List<AstBlob> blobs = new ArrayList<>(batch.size());
+        for (LogicalExpression expr : batch) {
+            if (expr.getAstBinary() == null && expr.getAstJson() == null) {
+                continue;
+            }
+            try {
+                AstBlob blob = astStore.blob(serializationService.read(expr));
+                blobs.add(blob);
+                expr.setAstHash(blob.getHash());
+                expr.setAstBinary(null);
+                expr.setAstJson(null);
+                migrated++;
+            } catch (RuntimeException e) {
+                log.warn("Could not convert the AST of expression {}: {}", expr.getId(), e.getMessage());
+                failed++;
+            }
+        }
+        astStore.storeAll(blobs);
+        repository.saveAll(batch);
+        return new int[]{migrated, failed};
+    }
+}
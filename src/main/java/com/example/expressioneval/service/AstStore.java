@@ -0,0 +1,158 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.exception.exceptions.SerializationException;
+import com.example.expressioneval.model.AstBlob;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.AstBlobRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content-addressed storage of expression ASTs.
+ * <p>
+ * An AST is identified by the SHA-256 of its binary encoding. Since expressions are stored tokenized, parsed and
+ * optimized, texts that differ only in whitespace, {@code &&}/{@code ||} spelling or redundant parentheses encode to
+ * the same bytes, and all their rows reference a single {@link AstBlob}. Decoded ASTs are interned by hash as well,
+ * so those rows also share one AST in memory and only the first of them reads and decodes the blob.
+ */
+@Service
+public class AstStore {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // a concurrent save of the same new AST makes an insert fail, the next attempt finds it stored
+    static final int STORE_ATTEMPTS = 3;
+
+    private final AstBlobRepository blobRepository;
+
+    private final SerializationService serializationService;
+
+    private final Cache<String, Parser.ASTNode> asts;
+
+    public AstStore(AstBlobRepository blobRepository, SerializationService serializationService,
+                    @Value("${expression.cache.maximum-size:10000}") long maximumSize,
+                    @Value("${expression.cache.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.blobRepository = blobRepository;
+        this.serializationService = serializationService;
+        this.asts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+
+    /**
+     * @return the not yet stored blob of an AST, computed without touching the database
+     */
+    public AstBlob blob(Parser.ASTNode ast) {
+        byte[] encoded = serializationService.encode(ast);
+        return new AstBlob(hash(encoded), encoded);
+    }
+
+    /**
+     * Inserts the blobs that are not stored yet; blobs with the same hash are only inserted once. Called inside a
+     * transaction, a concurrent insert of the same blob only fails when that transaction flushes, and the caller
+     * retries the whole transaction.
+     */
+    public void storeAll(Collection<AstBlob> blobs) {
+        Map<String, AstBlob> missing = new LinkedHashMap<>();
+        for (AstBlob blob : blobs) {
+            missing.putIfAbsent(blob.getHash(), blob);
+        }
+        for (int attempt = 1; !missing.isEmpty(); attempt++) {
+            blobRepository.findExistingHashes(missing.keySet()).forEach(missing::remove);
+            if (missing.isEmpty()) {
+                return;
+            }
+            try {
+                blobRepository.saveAll(missing.values());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == STORE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the AST of a stored expression, shared with every other expression referencing the same blob. Rows not
+     * migrated yet are read from their own binary or JSON AST.
+     */
+    public Parser.ASTNode read(LogicalExpression expr) {
+        return read(expr, true);
+    }
+
+    /**
+     * @param intern whether a decoded AST is kept for the next read, false for a caller that only converts it into
+     * a form of its own, like a FLAT expression. An AST interned before is returned either way.
+     */
+    public Parser.ASTNode read(LogicalExpression expr, boolean intern) {
+        String hash = expr.getAstHash();
+        if (hash == null) {
+            return serializationService.read(expr);
+        }
+        Parser.ASTNode ast = asts.getIfPresent(hash);
+        if (ast == null) {
+            // loaded outside of the cache's locks, a concurrent load of the same hash just loses the race below
+            AstBlob blob = blobRepository.findById(hash)
+                    .orElseThrow(() -> new SerializationException("AST not found: " + hash));
+            Parser.ASTNode loaded = serializationService.decode(blob.getAstBinary());
+            if (!intern) {
+                return loaded;
+            }
+            ast = asts.asMap().putIfAbsent(hash, loaded);
+            if (ast == null) {
+                ast = loaded;
+            }
+        }
+        return ast;
+    }
+
+    /**
+     * Interns the ASTs of a page of expressions with a single query, so that reading them afterwards does not hit the
+     * database once per hash. FLAT expressions are skipped, they do not keep their AST.
+     */
+    public void preload(Collection<LogicalExpression> exprs) {
+        Set<String> missing = new HashSet<>();
+        for (LogicalExpression expr : exprs) {
+            String hash = expr.getAstHash();
+            if (hash != null && expr.getEvaluationMode() != EvaluationMode.FLAT && asts.getIfPresent(hash) == null) {
+                missing.add(hash);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (AstBlob blob : blobRepository.findAllById(missing)) {
+            asts.asMap().putIfAbsent(blob.getHash(), serializationService.decode(blob.getAstBinary()));
+        }
+    }
+
+    public long internedAsts() {
+        return asts.estimatedSize();
+    }
+
+    static String hash(byte[] encoded) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(encoded));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.columnar.ColumnBatch;
+import com.example.expressioneval.analysis.columnar.ColumnarExpression;
+import com.example.expressioneval.analysis.columnar.ColumnarPreparer;
+import com.example.expressioneval.analysis.columnar.ColumnarResult;
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates one expression against a newline-delimited JSON stream.
+ * <p>
+ * Lines are read incrementally and grouped into chunks which are evaluated on the {@link EvaluationExecutor}.
+ * At most a fixed number of chunks is in flight, so memory stays bounded regardless of the input size,
+ * and results are written in input order as soon as the oldest chunk completes.
+ * <p>
+ * With {@link Engine#COLUMNAR} the documents of a chunk are decoded into a {@link ColumnBatch} holding only the
+ * fields the expression references, and the expression is evaluated once over the whole batch into match and error
+ * bitmaps. Results and errors are the same as evaluating document by document; only for ADAPTIVE expressions, whose
+ * operand order changes at runtime, a document failing in more than one operand may report another of its errors.
+ */
+@Service
+public class BatchEvaluationService {
+
+    public enum Output {
+        /** one line per input document with its result or error */
+        RESULTS,
+        /** only the line numbers of matching documents */
+        MATCHES
+    }
+
+    public enum Engine {
+        /** every document is evaluated on its own by the expression's predicate */
+        ROW,
+        /** chunks are evaluated column by column, see {@link ColumnarExpression} */
+        COLUMNAR
+    }
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private static final byte OUTCOME_FALSE = 0;
+    private static final byte OUTCOME_TRUE = 1;
+    private static final byte OUTCOME_ERROR = 2;
+    private static final byte OUTCOME_BLANK = 3;
+
+    private final EvaluationExecutor evaluationExecutor;
+
+    private final ColumnarPreparer columnarPreparer;
+
+    private final int chunkSize;
+
+    public BatchEvaluationService(EvaluationExecutor evaluationExecutor, ColumnarPreparer columnarPreparer,
+                                  @Value("${expression.batch.chunk-size:1000}") int chunkSize) {
+        this.evaluationExecutor = evaluationExecutor;
+        this.columnarPreparer = columnarPreparer;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes one JSON object per line: {@code {"line":n,"result":true}} or {@code {"line":n,"error":"..."}} for
+     * {@link Output#RESULTS}, {@code {"line":n}} per match for {@link Output#MATCHES}, followed by a summary
+     * {@code {"count":matches,"total":documents,"errors":errors}}. Line numbers start at 1, blank lines are skipped.
+     */
+    public void evaluate(CompiledExpression expression, InputStream input, OutputStream output, Output mode) throws IOException {
+        evaluate(expression, input, output, mode, Engine.ROW);
+    }
+
+    public void evaluate(CompiledExpression expression, InputStream input, OutputStream output, Output mode,
+                         Engine engine) throws IOException {
+        ColumnarExpression columnar = engine == Engine.COLUMNAR ? columnarPreparer.prepare(expression.getAst()) : null;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        JsonGenerator generator = jsonFactory.createGenerator(output);
+        // one object per line, the newlines are written explicitly
+        generator.setRootValueSeparator(null);
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = evaluationExecutor.parallelism() * 2;
+        Summary summary = new Summary();
+
+        long lineNumber = 0;
+        List<String> lines = new ArrayList<>(chunkSize);
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    inFlight.add(submit(expression, columnar, lines, lineNumber + 1));
+                    lineNumber += lines.size();
+                    lines = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= maxInFlight) {
+                        write(await(inFlight.poll()), generator, mode, summary);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(expression, columnar, lines, lineNumber + 1));
+            }
+            while (!inFlight.isEmpty()) {
+                write(await(inFlight.poll()), generator, mode, summary);
+            }
+        } finally {
+            // only left over if reading, writing or a chunk failed, e.g. when the client went away
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        generator.writeStartObject();
+        generator.writeNumberField("count", summary.matches);
+        generator.writeNumberField("total", summary.documents);
+        generator.writeNumberField("errors", summary.errors);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    private Future<Chunk> submit(CompiledExpression expression, ColumnarExpression columnar, List<String> lines,
+                                 long firstLine) {
+        return evaluationExecutor.executor().submit(() -> columnar != null
+                ? evaluateColumnar(expression, columnar, lines, firstLine)
+                : evaluateChunk(expression, lines, firstLine));
+    }
+
+    private static Chunk evaluateChunk(CompiledExpression expression, List<String> lines, long firstLine) {
+        Chunk chunk = new Chunk(firstLine, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                chunk.outcomes[i] = OUTCOME_BLANK;
+                continue;
+            }
+            try {
+                chunk.outcomes[i] = expression.evaluate(line) ? OUTCOME_TRUE : OUTCOME_FALSE;
+            } catch (RuntimeException e) {
+                chunk.outcomes[i] = OUTCOME_ERROR;
+                chunk.errors[i] = e.getMessage();
+            }
+        }
+        return chunk;
+    }
+
+    private static Chunk evaluateColumnar(CompiledExpression expression, ColumnarExpression columnar,
+                                          List<String> lines, long firstLine) {
+        Chunk chunk = new Chunk(firstLine, lines.size());
+        ColumnBatch.Builder batch = new ColumnBatch.Builder(columnar.paths(), lines.size());
+        // row of every line in the batch, blank lines have none
+        int[] rows = new int[lines.size()];
+        int rowCount = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                chunk.outcomes[i] = OUTCOME_BLANK;
+                rows[i] = -1;
+                continue;
+            }
+            rows[i] = rowCount++;
+            try {
+                batch.add(expression.getDocumentReader().read(line));
+            } catch (RuntimeException e) {
+                batch.addError(e.getMessage());
+            }
+        }
+        ColumnarResult result = columnar.evaluate(batch.build());
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            if (row < 0) {
+                continue;
+            }
+            if (result.failed(row)) {
+                chunk.outcomes[i] = OUTCOME_ERROR;
+                chunk.errors[i] = result.error(row);
+            } else {
+                chunk.outcomes[i] = result.matches(row) ? OUTCOME_TRUE : OUTCOME_FALSE;
+            }
+        }
+        return chunk;
+    }
+
+    private static Chunk await(Future<Chunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Batch evaluation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new EvaluationException("Batch evaluation failed", e.getCause());
+        }
+    }
+
+    private static void write(Chunk chunk, JsonGenerator generator, Output mode, Summary summary) throws IOException {
+        for (int i = 0; i < chunk.outcomes.length; i++) {
+            byte outcome = chunk.outcomes[i];
+            if (outcome == OUTCOME_BLANK) {
+                continue;
+            }
+            summary.documents++;
+            if (outcome == OUTCOME_TRUE) {
+                summary.matches++;
+            } else if (outcome == OUTCOME_ERROR) {
+                summary.errors++;
+            }
+            if (mode == Output.MATCHES && outcome != OUTCOME_TRUE) {
+                continue;
+            }
+            generator.writeStartObject();
+            generator.writeNumberField("line", chunk.firstLine + i);
+            if (mode == Output.RESULTS) {
+                if (outcome == OUTCOME_ERROR) {
+                    generator.writeStringField("error", chunk.errors[i]);
+                } else {
+                    generator.writeBooleanField("result", outcome == OUTCOME_TRUE);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    private static class Chunk {
+        final long firstLine;
+        final byte[] outcomes;
+        final String[] errors;
+
+        Chunk(long firstLine, int size) {
+            this.firstLine = firstLine;
+            this.outcomes = new byte[size];
+            this.errors = new String[size];
+        }
+    }
+
+    private static class Summary {
+        long documents;
+        long matches;
+        long errors;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.VirtualThreadConfiguration;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Thread pool for evaluating documents in parallel (batch endpoints and other bulk work).
+ * Deliberately not an {@link java.util.concurrent.Executor} bean, so Spring Boot keeps its own
+ * application task executor for MVC async requests.
+ * With {@code expression.virtual-threads.enabled} every task runs on its own virtual thread; callers still bound the
+ * work they submit by {@link #parallelism()}.
+ */
+@Component
+public class EvaluationExecutor {
+
+    private final int parallelism;
+
+    private final ExecutorService executor;
+
+    public EvaluationExecutor(@Value("${expression.executor.parallelism:0}") int parallelism,
+                              @Value("${expression.virtual-threads.enabled:false}") boolean virtualThreads) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (virtualThreads) {
+            this.executor = VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor("evaluation-");
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("evaluation-");
+            threadFactory.setDaemon(true);
+            this.executor = Executors.newFixedThreadPool(this.parallelism, threadFactory);
+        }
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
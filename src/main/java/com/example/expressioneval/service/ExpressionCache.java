@@ -0,0 +1,301 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.adaptive.AdaptivePlanner;
+import com.example.expressioneval.analysis.compiler.BytecodeCompiler;
+import com.example.expressioneval.analysis.document.DocumentReader;
+import com.example.expressioneval.analysis.document.ReferencedPaths;
+import com.example.expressioneval.analysis.document.SelectiveDocumentReader;
+import com.example.expressioneval.analysis.flat.ConstantPool;
+import com.example.expressioneval.analysis.flat.FlatAst;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.exception.exceptions.ExpressionNotFoundException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionMetrics.Phase;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Bounded cache of compiled expressions keyed by expression id.
+ * A hit skips both the database lookup and the AST deserialization, so steady-state
+ * evaluation only parses the incoming JSON document.
+ * <p>
+ * A miss is loaded by the requesting thread, outside of the cache's locks: concurrent requests for the same id wait
+ * for its future instead of blocking inside {@code ConcurrentHashMap.compute}, where the database lookup would pin a
+ * virtual thread to its carrier.
+ * <p>
+ * The executable form of an expression only depends on its AST and mode, so it is interned by AST hash and mode:
+ * rows sharing an {@link com.example.expressioneval.model.AstBlob} share one AST, predicate and document reader, and
+ * only the first of them is compiled. ADAPTIVE predicates keep statistics per expression and are never shared.
+ * <p>
+ * FLAT expressions keep their paths and literals in a {@link ConstantPool} shared by the cached ones. Entries of
+ * evicted expressions stay in it, so whenever the pool has doubled the cached FLAT expressions are encoded into a new
+ * pool, which replaces the current one if it is less than half its size. An expression still being evaluated keeps
+ * the old pool until it is done.
+ */
+@Service
+public class ExpressionCache {
+
+    private final LogicalExpressionRepository repository;
+
+    private final AstStore astStore;
+
+    private final Evaluator evaluator;
+
+    private final BytecodeCompiler bytecodeCompiler;
+
+    private final ExpressionPreparer expressionPreparer;
+
+    private final AdaptivePlanner adaptivePlanner;
+
+    private final ExpressionMetrics metrics;
+
+    // shared by every expression that reads the whole document, so callers can parse a document once for all of them
+    private final DocumentReader fullDocumentReader;
+
+    // paths and literals of the stored FLAT expressions, replaced by compactConstants()
+    private volatile ConstantPool constantPool = new ConstantPool();
+
+    // pool size at which compactConstants() runs next
+    private volatile int nextCompaction;
+
+    private final int compactionThreshold;
+
+    private final AsyncCache<Long, CompiledExpression> cache;
+
+    private final Cache<InternKey, Prepared> interned;
+
+    public ExpressionCache(LogicalExpressionRepository repository, AstStore astStore,
+                           Evaluator evaluator, BytecodeCompiler bytecodeCompiler, ExpressionPreparer expressionPreparer,
+                           AdaptivePlanner adaptivePlanner, ExpressionMetrics metrics,
+                           @Value("${expression.cache.maximum-size:10000}") long maximumSize,
+                           @Value("${expression.cache.expire-after-access:30m}") Duration expireAfterAccess,
+                           @Value("${expression.flat.compaction-threshold:4096}") int compactionThreshold) {
+        this.repository = repository;
+        this.astStore = astStore;
+        this.evaluator = evaluator;
+        this.bytecodeCompiler = bytecodeCompiler;
+        this.expressionPreparer = expressionPreparer;
+        this.adaptivePlanner = adaptivePlanner;
+        this.metrics = metrics;
+        this.compactionThreshold = compactionThreshold;
+        this.nextCompaction = compactionThreshold;
+        this.fullDocumentReader = new DocumentReader() {
+            @Override
+            public JsonNode read(String json) {
+                return evaluator.readDocument(json);
+            }
+
+            @Override
+            public JsonNode read(byte[] json, int offset, int length) {
+                return evaluator.readDocument(json, offset, length);
+            }
+        };
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .buildAsync();
+        this.interned = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+    }
+
+    public CompiledExpression get(Long id) {
+        CompletableFuture<CompiledExpression> loading = new CompletableFuture<>();
+        CompletableFuture<CompiledExpression> future = cache.get(id, (key, executor) -> loading);
+        if (future == loading) {
+            try {
+                // an unknown id completes with null, which the cache drops without logging it as a failed load
+                loading.complete(load(id));
+            } catch (RuntimeException e) {
+                // a failed future is removed from the cache, the next request loads again
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        CompiledExpression compiled;
+        try {
+            compiled = future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        if (compiled == null) {
+            throw new ExpressionNotFoundException("Expression not found with ID: " + id);
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles an already loaded row and puts it into the cache, e.g. while warming up.
+     */
+    public CompiledExpression preload(LogicalExpression expr) {
+        CompiledExpression compiled = compile(expr);
+        cache.synchronous().put(compiled.getId(), compiled);
+        return compiled;
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", cache.synchronous().estimatedSize());
+        response.put("hits", stats.hitCount());
+        response.put("misses", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictions", stats.evictionCount());
+        response.put("interned", interned.estimatedSize());
+        response.put("internHits", interned.stats().hitCount());
+        response.put("internedAsts", astStore.internedAsts());
+        response.put("flatConstants", constantPool.size());
+        return response;
+    }
+
+    /**
+     * Builds the ready-to-evaluate form of an already loaded row, without going through the cache.
+     */
+    public CompiledExpression compile(LogicalExpression expr) {
+        EvaluationMode mode = expr.getEvaluationMode() != null ? expr.getEvaluationMode() : EvaluationMode.PREPARED;
+        if (mode == EvaluationMode.FLAT && constantPool.size() >= nextCompaction) {
+            compactConstants();
+        }
+        Prepared prepared;
+        if (expr.getAstHash() == null || mode == EvaluationMode.ADAPTIVE) {
+            prepared = prepare(astStore.read(expr, mode != EvaluationMode.FLAT), mode, constantPool);
+        } else {
+            InternKey key = new InternKey(expr.getAstHash(), mode);
+            prepared = interned.getIfPresent(key);
+            if (prepared == null) {
+                // compiled outside of the cache's locks like a miss of the main cache, the first one stored wins
+                Prepared compiled = prepare(astStore.read(expr, mode != EvaluationMode.FLAT), mode, constantPool);
+                prepared = interned.asMap().putIfAbsent(key, compiled);
+                if (prepared == null) {
+                    prepared = compiled;
+                }
+            }
+        }
+        return new CompiledExpression(expr.getId(), expr.getExpressionValue(), prepared.ast(), mode,
+                prepared.predicate(), prepared.documentReader());
+    }
+
+    /**
+     * Encodes the cached FLAT expressions into a new constant pool and replaces the current one with it if the new
+     * pool needs less than half the entries. An expression compiled against the old pool while this runs keeps using
+     * it, and the old pool is collected once no expression refers to it.
+     *
+     * @return whether the pool was replaced
+     */
+    public synchronized boolean compactConstants() {
+        // evictions are applied asynchronously, expressions already evicted should not keep their constants
+        cache.synchronous().cleanUp();
+        interned.cleanUp();
+        ConstantPool current = constantPool;
+        ConstantPool compacted = new ConstantPool();
+        // interned predicates are shared by several cached expressions, each is encoded once
+        Map<FlatAst, FlatAst> moved = new IdentityHashMap<>();
+        Map<Long, CompiledExpression> cached = cache.synchronous().asMap();
+        cached.values().forEach(compiled -> move(compiled.getPredicate(), current, compacted, moved));
+        interned.asMap().values().forEach(prepared -> move(prepared.predicate(), current, compacted, moved));
+        if (compacted.size() * 2 > current.size()) {
+            nextCompaction = Math.max(compactionThreshold, current.size() * 2);
+            return false;
+        }
+
+        constantPool = compacted;
+        cached.forEach((id, compiled) -> {
+            FlatAst flat = moved.get(compiled.getPredicate());
+            if (flat != null) {
+                cached.replace(id, compiled, new CompiledExpression(compiled.getId(), compiled.getExpressionValue(),
+                        null, compiled.getEvaluationMode(), flat, compiled.getDocumentReader()));
+            }
+        });
+        interned.asMap().forEach((key, prepared) -> {
+            FlatAst flat = moved.get(prepared.predicate());
+            if (flat != null) {
+                interned.asMap().replace(key, prepared, new Prepared(null, flat, prepared.documentReader()));
+            }
+        });
+        nextCompaction = Math.max(compactionThreshold, compacted.size() * 2);
+        return true;
+    }
+
+    private static void move(ExpressionPredicate predicate, ConstantPool from, ConstantPool to,
+                             Map<FlatAst, FlatAst> moved) {
+        if (predicate instanceof FlatAst flat && flat.uses(from)) {
+            moved.computeIfAbsent(flat, original -> original.withPool(to));
+        }
+    }
+
+    /**
+     * Builds the ready-to-evaluate form of an expression that is not stored, e.g. an ad-hoc one. It has no id and
+     * is not interned. A FLAT expression gets a constant pool of its own, so arbitrary texts do not grow the shared one.
+     */
+    public CompiledExpression compile(String expressionValue, Parser.ASTNode ast, EvaluationMode mode) {
+        Prepared prepared = prepare(ast, mode, mode == EvaluationMode.FLAT ? new ConstantPool() : constantPool);
+        return new CompiledExpression(null, expressionValue, prepared.ast(), mode, prepared.predicate(),
+                prepared.documentReader());
+    }
+
+    // a FLAT expression keeps only its encoding, CompiledExpression decodes the AST from it when asked
+    private Prepared prepare(Parser.ASTNode ast, EvaluationMode mode, ConstantPool pool) {
+        ExpressionPredicate predicate = predicateFor(ast, mode, pool);
+        return new Prepared(mode != EvaluationMode.FLAT ? ast : null, predicate, documentReaderFor(ast, mode));
+    }
+
+    // null if there is no such row
+    private CompiledExpression load(Long id) {
+        long start = metrics.start();
+        LogicalExpression expr;
+        try {
+            expr = repository.findById(id).orElse(null);
+        } finally {
+            metrics.record(Phase.LOOKUP, start);
+        }
+        return expr != null ? compile(expr) : null;
+    }
+
+    private ExpressionPredicate predicateFor(Parser.ASTNode ast, EvaluationMode mode, ConstantPool pool) {
+        return switch (mode) {
+            case INTERPRETED -> root -> evaluator.evaluate(ast, root);
+            case PREPARED, STREAMING -> expressionPreparer.prepare(ast);
+            case COMPILED -> bytecodeCompiler.compile(ast);
+            case ADAPTIVE -> adaptivePlanner.plan(ast);
+            case FLAT -> FlatAst.encode(ast, pool);
+        };
+    }
+
+    private DocumentReader documentReaderFor(Parser.ASTNode ast, EvaluationMode mode) {
+        if (mode == EvaluationMode.STREAMING) {
+            return new SelectiveDocumentReader(ReferencedPaths.collect(ast));
+        }
+        return fullDocumentReader;
+    }
+
+    private record InternKey(String astHash, EvaluationMode mode) {
+    }
+
+    private record Prepared(Parser.ASTNode ast, ExpressionPredicate predicate, DocumentReader documentReader) {
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.example.expressioneval.exception.exceptions.InputProcessingException;
+import com.example.expressioneval.exception.exceptions.ParseException;
+import com.example.expressioneval.model.AstBlob;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionMetrics.Phase;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Imports many expressions in one request.
+ * <p>
+ * Items are read incrementally and grouped into chunks. Tokenizing, parsing, optimizing and encoding run in
+ * parallel on the {@link EvaluationExecutor}; each chunk is then inserted in its own transaction, which Hibernate
+ * sends as JDBC batches ({@code hibernate.jdbc.batch_size}) with ids taken from the pooled sequence. The chunk's
+ * distinct ASTs that are not stored yet are inserted in the same transaction, see {@link AstStore}. An item that
+ * fails is reported with its index and does not affect the other items, a chunk that cannot be inserted reports each
+ * of its items. Malformed JSON part-way through the input stops the import: the items before it are still imported
+ * and the response reports the index at which it stopped.
+ */
+@Service
+public class ExpressionImportService {
+
+    // name and value are required, the other fields default like the POST /expression parameters
+    public record ImportItem(String name, String value, EvaluationMode mode, String tags, Integer priority) {
+    }
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // items are bound one by one, so an invalid item only fails itself and only malformed JSON aborts the import
+    private static final ObjectReader itemReader = mapper.readerFor(JsonNode.class);
+
+    private final LogicalExpressionService logicalExpressionService;
+
+    private final RuleEvaluationService ruleEvaluationService;
+
+    private final LogicalExpressionRepository repository;
+
+    private final AstStore astStore;
+
+    private final EvaluationExecutor evaluationExecutor;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final EntityManager entityManager;
+
+    private final ExpressionMetrics metrics;
+
+    private final int chunkSize;
+
+    public ExpressionImportService(LogicalExpressionService logicalExpressionService,
+                                   RuleEvaluationService ruleEvaluationService, LogicalExpressionRepository repository,
+                                   AstStore astStore, EvaluationExecutor evaluationExecutor, TransactionTemplate transactionTemplate,
+                                   EntityManager entityManager, ExpressionMetrics metrics,
+                                   @Value("${expression.import.chunk-size:500}") int chunkSize) {
+        this.logicalExpressionService = logicalExpressionService;
+        this.ruleEvaluationService = ruleEvaluationService;
+        this.repository = repository;
+        this.astStore = astStore;
+        this.evaluationExecutor = evaluationExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.metrics = metrics;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param input a JSON array of items or newline-delimited items
+     * @return the number of imported and failed items, the ids of the imported items in input order, the errors
+     * with the index of the failed item, whether the whole input was read, and the elapsed time and throughput
+     * @throws InputProcessingException if the input is malformed before its first item
+     */
+    public Map<String, Object> importExpressions(InputStream input) throws IOException {
+        long start = System.nanoTime();
+        Deque<Future<List<Item>>> inFlight = new ArrayDeque<>();
+        int maxInFlight = evaluationExecutor.parallelism() * 2;
+        Result result = new Result();
+
+        Map<String, Object> malformed = null;
+        try (MappingIterator<JsonNode> items = itemReader.readValues(input)) {
+            int index = 0;
+            List<Item> chunk = new ArrayList<>(chunkSize);
+            try {
+                while (items.hasNextValue()) {
+                    JsonNode source = items.nextValue();
+                    chunk.add(new Item(index++, source));
+                    if (chunk.size() == chunkSize) {
+                        inFlight.add(submit(chunk));
+                        chunk = new ArrayList<>(chunkSize);
+                        if (inFlight.size() >= maxInFlight) {
+                            persist(await(inFlight.poll()), result);
+                        }
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                if (index == 0) {
+                    throw e;
+                }
+                // the reader cannot continue after malformed JSON, the items read before it are still imported
+                malformed = error(index, "Malformed import data: " + e.getOriginalMessage(), null);
+            }
+            if (!chunk.isEmpty()) {
+                inFlight.add(submit(chunk));
+            }
+            while (!inFlight.isEmpty()) {
+                persist(await(inFlight.poll()), result);
+            }
+        } catch (JsonProcessingException e) {
+            throw new InputProcessingException("Malformed import data: " + e.getOriginalMessage(), e);
+        } finally {
+            // only left over if a chunk failed, its results are not waited for
+            inFlight.forEach(future -> future.cancel(true));
+            // chunks persisted before a failure stay, they have to show up in rule evaluation as well
+            ruleEvaluationService.bulkAdded();
+        }
+        if (malformed != null) {
+            result.errors.add(malformed);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("imported", result.ids.size());
+        response.put("failed", result.errors.size());
+        response.put("ids", result.ids);
+        response.put("errors", result.errors);
+        response.put("complete", malformed == null);
+        response.put("elapsedMillis", Math.round(seconds * 1000));
+        response.put("rowsPerSecond", seconds > 0 ? Math.round(result.ids.size() / seconds) : 0);
+        return response;
+    }
+
+    private Future<List<Item>> submit(List<Item> chunk) {
+        return evaluationExecutor.executor().submit(() -> {
+            for (Item item : chunk) {
+                prepare(item);
+            }
+            return chunk;
+        });
+    }
+
+    private void prepare(Item item) {
+        ImportItem source;
+        try {
+            source = mapper.treeToValue(item.source, ImportItem.class);
+        } catch (JsonProcessingException e) {
+            item.error = "Invalid item: " + e.getOriginalMessage();
+            return;
+        }
+        if (source == null || source.name() == null || source.value() == null) {
+            item.error = "name and value are required";
+            return;
+        }
+        try {
+            String processedInput = logicalExpressionService.preProcessInput(source.value());
+            Parser.ASTNode node = logicalExpressionService.parseExpression(logicalExpressionService.tokenizeExpression(processedInput));
+            node = logicalExpressionService.optimizeExpression(node);
+            item.blob = astStore.blob(node);
+            item.expression = logicalExpressionService.newExpression(source.name(), processedInput, item.blob,
+                    source.mode() != null ? source.mode() : EvaluationMode.PREPARED, source.tags(), source.priority());
+        } catch (ParseException e) {
+            item.error = e.getMessage();
+            item.position = e.getPosition();
+        } catch (RuntimeException e) {
+            item.error = e.getMessage();
+        }
+    }
+
+    private void persist(List<Item> chunk, Result result) {
+        List<LogicalExpression> expressions = new ArrayList<>(chunk.size());
+        List<AstBlob> blobs = new ArrayList<>(chunk.size());
+        for (Item item : chunk) {
+            if (item.expression != null) {
+                expressions.add(item.expression);
+                blobs.add(item.blob);
+            }
+        }
+        long start = metrics.start();
+        String failure = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // duplicates within the chunk and ASTs stored before are not inserted again
+                    astStore.storeAll(blobs);
+                    repository.saveAll(expressions);
+                    // keeps the persistence context from growing with the import
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                break;
+            } catch (DataAccessException | PersistenceException e) {
+                // the rolled back ids were never inserted, a retry takes new ones
+                expressions.forEach(expression -> expression.setId(null));
+                // a concurrent insert of one of the chunk's ASTs only fails this attempt, the next one finds it stored;
+                // the flush reports it untranslated
+                boolean duplicate = e instanceof DataIntegrityViolationException || e instanceof ConstraintViolationException;
+                if (!duplicate || attempt == AstStore.STORE_ATTEMPTS) {
+                    failure = "Could not store the item: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                    break;
+                }
+            }
+        }
+        metrics.record(Phase.PERSIST, start);
+        for (Item item : chunk) {
+            if (item.expression != null && failure == null) {
+                result.ids.add(item.expression.getId());
+            } else {
+                result.errors.add(error(item.index, item.error != null ? item.error : failure, item.position));
+            }
+        }
+    }
+
+    private static Map<String, Object> error(int index, String message, Integer position) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("index", index);
+        error.put("message", message);
+        if (position != null) {
+            error.put("position", position);
+        }
+        return error;
+    }
+
+    private static List<Item> await(Future<List<Item>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Import was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new EvaluationException("Import failed", e.getCause());
+        }
+    }
+
+    private static class Item {
+        final int index;
+        final JsonNode source;
+        LogicalExpression expression;
+        AstBlob blob;
+        String error;
+        Integer position;
+
+        Item(int index, JsonNode source) {
+            this.index = index;
+            this.source = source;
+        }
+    }
+
+    private static class Result {
+        final List<Long> ids = new ArrayList<>();
+        final List<Map<String, Object>> errors = new ArrayList<>();
+    }
+}
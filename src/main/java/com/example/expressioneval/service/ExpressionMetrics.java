@@ -0,0 +1,175 @@
+package com.example.expressioneval.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instrumentation of the request phases.
+ * <p>
+ * Every phase has one {@code expression.phase} timer (tag {@code phase}) with a percentile histogram, registered
+ * up front so recording is a plain map lookup: callers take {@link #start()} and pass it to
+ * {@link #record(Phase, long)}. Evaluations are also counted and timed per expression id
+ * ({@code expression.evaluations}, {@code expression.evaluation}). To bound the number of time series only the first
+ * {@code expression.metrics.max-tagged-ids} ids get their own tag, all later ids share the tag {@code other}.
+ * Errors returned by the API are counted by exception type ({@code expression.errors}).
+ * <p>
+ * Everything is available through {@code /actuator/metrics} and {@code /actuator/prometheus}; {@code
+ * /actuator/phases} summarizes the phase timers.
+ */
+@Component
+@Endpoint(id = "phases")
+public class ExpressionMetrics {
+
+    public enum Phase {
+        PREPROCESS("preprocess"),
+        TOKENIZE("tokenize"),
+        PARSE("parse"),
+        OPTIMIZE("optimize"),
+        SERIALIZE("serialize"),
+        PERSIST("persist"),
+        LOOKUP("lookup"),
+        DESERIALIZE("deserialize"),
+        JSON_PARSE("json.parse"),
+        EVALUATE("evaluate");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private static final String OTHER_ID = "other";
+
+    private final MeterRegistry registry;
+
+    private final int maxTaggedIds;
+
+    private final Map<Phase, Timer> phases = new EnumMap<>(Phase.class);
+
+    private final Map<Long, ExpressionMeters> expressions = new ConcurrentHashMap<>();
+
+    private final ExpressionMeters otherExpressions;
+
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+    public ExpressionMetrics(MeterRegistry registry,
+                             @Value("${expression.metrics.max-tagged-ids:100}") int maxTaggedIds) {
+        this.registry = registry;
+        this.maxTaggedIds = Math.max(0, maxTaggedIds);
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, Timer.builder("expression.phase")
+                    .description("Time spent per request phase")
+                    .tag("phase", phase.getTag())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.otherExpressions = new ExpressionMeters(registry, OTHER_ID);
+    }
+
+    /**
+     * @return the start time to pass to {@link #record(Phase, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Phase phase, long start) {
+        phases.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records one evaluation of an expression, ad-hoc expressions have no id and are counted as {@code other}.
+     *
+     * @param result the result, {@code null} if the evaluation failed
+     */
+    public void recordEvaluation(Long id, Boolean result, long start) {
+        long nanos = System.nanoTime() - start;
+        ExpressionMeters meters = meters(id);
+        meters.latency.record(nanos, TimeUnit.NANOSECONDS);
+        (result == null ? meters.errors : result ? meters.matches : meters.misses).increment();
+    }
+
+    public void recordError(Throwable error) {
+        String type = error.getClass().getSimpleName();
+        errors.computeIfAbsent(type, t -> Counter.builder("expression.errors")
+                .description("Errors returned by the API")
+                .tag("exception", t)
+                .register(registry)).increment();
+    }
+
+    @ReadOperation
+    public Map<String, Object> phases() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        for (Map.Entry<Phase, Timer> entry : phases.entrySet()) {
+            Timer timer = entry.getValue();
+            Map<String, Object> phase = new LinkedHashMap<>();
+            phase.put("count", timer.count());
+            phase.put("meanMicros", timer.mean(TimeUnit.MICROSECONDS));
+            phase.put("maxMicros", timer.max(TimeUnit.MICROSECONDS));
+            for (var percentile : timer.takeSnapshot().percentileValues()) {
+                phase.put("p" + Math.round(percentile.percentile() * 100) + "Micros", percentile.value(TimeUnit.MICROSECONDS));
+            }
+            response.put(entry.getKey().getTag(), phase);
+        }
+        response.put("taggedExpressions", expressions.size());
+        return response;
+    }
+
+    private ExpressionMeters meters(Long id) {
+        if (id == null) {
+            return otherExpressions;
+        }
+        ExpressionMeters meters = expressions.get(id);
+        if (meters != null) {
+            return meters;
+        }
+        if (expressions.size() >= maxTaggedIds) {
+            return otherExpressions;
+        }
+        // may go a few ids over the limit when several new ids race, which is fine for a cardinality bound
+        return expressions.computeIfAbsent(id, key -> new ExpressionMeters(registry, String.valueOf(key)));
+    }
+
+    private static class ExpressionMeters {
+        final Timer latency;
+        final Counter matches;
+        final Counter misses;
+        final Counter errors;
+
+        ExpressionMeters(MeterRegistry registry, String id) {
+            latency = Timer.builder("expression.evaluation")
+                    .description("Evaluation time per expression")
+                    .tag("id", id)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+            matches = counter(registry, id, "true");
+            misses = counter(registry, id, "false");
+            errors = counter(registry, id, "error");
+        }
+
+        private static Counter counter(MeterRegistry registry, String id, String result) {
+            return Counter.builder("expression.evaluations")
+                    .description("Evaluations per expression and result")
+                    .tag("id", id)
+                    .tag("result", result)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.exception.exceptions.InputProcessingException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Filters a local NDJSON file with {@link FileFilterService} on startup when the application is started with
+ * {@code --filter.input}:
+ * <pre>
+ * java -jar expression-eval.jar --spring.main.web-application-type=none \
+ *     --filter.input=dump.ndjson --filter.output=matches.ndjson --filter.expression='status == "active"'
+ * </pre>
+ * The expression is either stored, {@code --filter.id}, or given as text, {@code --filter.expression} with an optional
+ * {@code --filter.mode} (the evaluation mode, PREPARED by default). {@code --filter.write=OFFSETS} writes the byte
+ * offsets of the matching lines instead of the lines. Without a web server the application exits once the file is
+ * filtered, a failure fails the startup.
+ */
+@Component
+public class FileFilterRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(FileFilterRunner.class);
+
+    private final FileFilterService fileFilterService;
+
+    private final ExpressionCache expressionCache;
+
+    private final AdHocExpressionCache adHocExpressionCache;
+
+    public FileFilterRunner(FileFilterService fileFilterService, ExpressionCache expressionCache,
+                            AdHocExpressionCache adHocExpressionCache) {
+        this.fileFilterService = fileFilterService;
+        this.expressionCache = expressionCache;
+        this.adHocExpressionCache = adHocExpressionCache;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption("filter.input")) {
+            return;
+        }
+        Path input = Path.of(option(args, "filter.input"));
+        Path output = Path.of(option(args, "filter.output"));
+        FileFilterService.Output mode = args.containsOption("filter.write")
+                ? FileFilterService.Output.valueOf(option(args, "filter.write").toUpperCase(Locale.ROOT))
+                : FileFilterService.Output.LINES;
+        Map<String, Object> summary = fileFilterService.filter(expression(args), input, output, mode);
+        log.info("Filtered {} into {}: {}", input, output, summary);
+    }
+
+    private CompiledExpression expression(ApplicationArguments args) {
+        if (args.containsOption("filter.id")) {
+            return expressionCache.get(Long.valueOf(option(args, "filter.id")));
+        }
+        if (!args.containsOption("filter.expression")) {
+            throw new InputProcessingException("Either --filter.id or --filter.expression is required");
+        }
+        EvaluationMode mode = args.containsOption("filter.mode")
+                ? EvaluationMode.valueOf(option(args, "filter.mode").toUpperCase(Locale.ROOT))
+                : EvaluationMode.PREPARED;
+        return adHocExpressionCache.get(option(args, "filter.expression"), mode);
+    }
+
+    // the last occurrence of an option wins
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        if (values == null || values.isEmpty() || values.get(values.size() - 1).isBlank()) {
+            throw new InputProcessingException("Missing value for --" + name);
+        }
+        return values.get(values.size() - 1);
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.exception.exceptions.EvaluationException;
+import com.example.expressioneval.exception.exceptions.InputProcessingException;
+import com.example.expressioneval.model.CompiledExpression;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filters a newline-delimited JSON file on local disk with one expression, for dumps too large to send over HTTP.
+ * <p>
+ * The file is cut into chunks of about {@code expression.file.chunk-size} bytes, each ending after a newline. Chunks
+ * are memory-mapped with {@link FileChannel#map} and evaluated on a {@link ForkJoinPool} with
+ * {@link EvaluationExecutor#parallelism()} workers. A worker copies each line from the mapping into a reused byte array
+ * and parses it from there, lines are never decoded into a {@link String}. At most twice as many chunks as workers are
+ * in flight, and their results are written in input order as soon as the oldest chunk completes: with
+ * {@link Output#LINES} the matching lines as they are in the input, written straight from the mapping, with
+ * {@link Output#OFFSETS} the byte offset of every matching line, one per line.
+ * <p>
+ * Blank lines are skipped and a carriage return before the newline is not part of the document. Lines failing to
+ * evaluate are counted as errors and not written. Documents are parsed from their UTF-8 bytes, so malformed UTF-8 fails
+ * to parse instead of being replaced.
+ */
+@Service
+public class FileFilterService {
+
+    public enum Output {
+        /** the matching lines, byte for byte */
+        LINES,
+        /** the byte offset of every matching line in the input */
+        OFFSETS
+    }
+
+    private static final int MAX_MAPPING = Integer.MAX_VALUE;
+
+    private final int parallelism;
+
+    private final int chunkSize;
+
+    private final ForkJoinPool pool;
+
+    public FileFilterService(EvaluationExecutor evaluationExecutor,
+                             @Value("${expression.file.chunk-size:8MB}") DataSize chunkSize) {
+        this.parallelism = evaluationExecutor.parallelism();
+        this.chunkSize = (int) Math.max(1, Math.min(chunkSize.toBytes(), MAX_MAPPING));
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("file-filter-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Writes the matches of {@code expression} in {@code input} to {@code output}, replacing its content.
+     *
+     * @return the number of documents, matches and errors, the input size in bytes and the elapsed time
+     */
+    public Map<String, Object> filter(CompiledExpression expression, Path input, Path output, Output mode)
+            throws IOException {
+        long start = System.nanoTime();
+        Summary summary = new Summary();
+        long size;
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            size = in.size();
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            int maxInFlight = parallelism * 2;
+            long position = 0;
+            try {
+                while (position < size) {
+                    ByteBuffer buffer = map(in, position, size);
+                    long offset = position;
+                    inFlight.add(pool.submit(() -> evaluate(expression, buffer, offset, mode)));
+                    position += buffer.limit();
+                    if (inFlight.size() >= maxInFlight) {
+                        write(await(inFlight.poll()), out, summary);
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    write(await(inFlight.poll()), out, summary);
+                }
+            } finally {
+                // only left over if mapping, writing or a chunk failed, their results are not waited for
+                inFlight.forEach(future -> future.cancel(true));
+            }
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("documents", summary.documents);
+        response.put("matches", summary.matches);
+        response.put("errors", summary.errors);
+        response.put("bytes", size);
+        response.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+
+    /**
+     * Maps the chunk starting at {@code position} up to the end of its last complete line. A line longer than a chunk
+     * is mapped as a whole, the last chunk of the file as it is.
+     */
+    private ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(chunkSize, size - position);
+        int searched = 0;
+        while (true) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return buffer;
+            }
+            for (int i = (int) length - 1; i >= searched; i--) {
+                if (buffer.get(i) == '\n') {
+                    return buffer.slice(0, i + 1);
+                }
+            }
+            if (length == MAX_MAPPING) {
+                throw new InputProcessingException("Line at byte " + position + " is longer than 2 GB");
+            }
+            searched = (int) length;
+            length = Math.min(Math.min(length * 2, MAX_MAPPING), size - position);
+        }
+    }
+
+    private static Chunk evaluate(CompiledExpression expression, ByteBuffer buffer, long offset, Output mode) {
+        Chunk chunk = new Chunk(buffer, offset, mode);
+        byte[] line = new byte[1024];
+        int limit = buffer.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            // the last line of the file may have no newline
+            int next = end < limit ? end + 1 : limit;
+            int length = end > start && buffer.get(end - 1) == '\r' ? end - 1 - start : end - start;
+            if (!isBlank(buffer, start, length)) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                buffer.get(start, line, 0, length);
+                chunk.documents++;
+                try {
+                    if (expression.getPredicate().test(expression.getDocumentReader().read(line, 0, length))) {
+                        chunk.match(start, next, end == limit);
+                    }
+                } catch (RuntimeException e) {
+                    chunk.errors++;
+                }
+            }
+            start = next;
+        }
+        chunk.finish();
+        return chunk;
+    }
+
+    // only ASCII whitespace, a line of other whitespace fails to parse
+    private static boolean isBlank(ByteBuffer buffer, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            byte b = buffer.get(i);
+            if (b < 0 || !Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Chunk await(Future<Chunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("File filtering was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new EvaluationException("File filtering failed", e.getCause());
+        }
+    }
+
+    private static void write(Chunk chunk, FileChannel out, Summary summary) throws IOException {
+        summary.documents += chunk.documents;
+        summary.matches += chunk.matches;
+        summary.errors += chunk.errors;
+        ByteBuffer[] output = chunk.output.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : output) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= out.write(output);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static class Chunk {
+        final ByteBuffer buffer;
+        final long offset;
+        final Output mode;
+        final List<ByteBuffer> output = new ArrayList<>();
+        final StringBuilder offsets = new StringBuilder();
+        long documents;
+        long matches;
+        long errors;
+        // adjacent matching lines are written as one slice of the mapping
+        int rangeStart = -1;
+        int rangeEnd;
+        boolean unterminated;
+
+        Chunk(ByteBuffer buffer, long offset, Output mode) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.mode = mode;
+        }
+
+        void match(int start, int next, boolean unterminated) {
+            matches++;
+            if (mode == Output.OFFSETS) {
+                offsets.append(offset + start).append('\n');
+                return;
+            }
+            if (rangeStart >= 0 && rangeEnd != start) {
+                output.add(buffer.slice(rangeStart, rangeEnd - rangeStart));
+                rangeStart = -1;
+            }
+            if (rangeStart < 0) {
+                rangeStart = start;
+            }
+            rangeEnd = next;
+            this.unterminated = unterminated;
+        }
+
+        void finish() {
+            if (mode == Output.OFFSETS) {
+                output.add(ByteBuffer.wrap(offsets.toString().getBytes(StandardCharsets.US_ASCII)));
+            } else if (rangeStart >= 0) {
+                output.add(buffer.slice(rangeStart, rangeEnd - rangeStart));
+                if (unterminated) {
+                    output.add(ByteBuffer.wrap(new byte[]{'\n'}));
+                }
+            }
+        }
+    }
+
+    private static class Summary {
+        long documents;
+        long matches;
+        long errors;
+    }
+}
@@ -2,16 +2,22 @@ package com.example.expressioneval.service;
 
 import com.example.expressioneval.analysis.Evaluator;
 import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.TokenStream;
 import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.analysis.optimizer.AstOptimizer;
 import com.example.expressioneval.exception.exceptions.ExpressionNotFoundException;
 import com.example.expressioneval.exception.exceptions.InputProcessingException;
+import com.example.expressioneval.model.AstBlob;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
 import com.example.expressioneval.model.LogicalExpression;
 import com.example.expressioneval.repository.LogicalExpressionRepository;
-import org.springframework.context.ApplicationContext;
+import com.example.expressioneval.service.ExpressionMetrics.Phase;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.util.List;
 
 @Service
 public class LogicalExpressionService {
@@ -20,49 +26,190 @@ public class LogicalExpressionService {
 
     private final Tokenizer tokenizer;
 
-    private final ApplicationContext context;
+    private final Parser parser;
 
     private final Evaluator evaluator;
 
-    public LogicalExpressionService(LogicalExpressionRepository repository, Tokenizer tokenizer, Evaluator evaluator,
-                                    ApplicationContext context) {
+    private final ExpressionCache expressionCache;
+
+    private final RuleEvaluationService ruleEvaluationService;
+
+    private final AstOptimizer astOptimizer;
+
+    private final SerializationService serializationService;
+
+    private final AstStore astStore;
+
+    private final ExpressionMetrics metrics;
+
+    public LogicalExpressionService(LogicalExpressionRepository repository, Tokenizer tokenizer, Parser parser,
+                                    Evaluator evaluator, ExpressionCache expressionCache,
+                                    RuleEvaluationService ruleEvaluationService, AstOptimizer astOptimizer,
+                                    SerializationService serializationService, AstStore astStore,
+                                    ExpressionMetrics metrics) {
         this.repository = repository;
         this.tokenizer = tokenizer;
-        this.context = context;
+        this.parser = parser;
         this.evaluator = evaluator;
+        this.expressionCache = expressionCache;
+        this.ruleEvaluationService = ruleEvaluationService;
+        this.astOptimizer = astOptimizer;
+        this.serializationService = serializationService;
+        this.astStore = astStore;
+        this.metrics = metrics;
     }
 
     @Transactional(readOnly = true)
     public LogicalExpression getById(Long id) {
-        return repository.findById(id).orElseThrow(
-                () -> new ExpressionNotFoundException("Expression not found with ID: " + id));
+        long start = metrics.start();
+        try {
+            return repository.findById(id).orElseThrow(
+                    () -> new ExpressionNotFoundException("Expression not found with ID: " + id));
+        } finally {
+            metrics.record(Phase.LOOKUP, start);
+        }
     }
 
     public LogicalExpression save(String name, String expression, String serializedAST) {
+        return save(name, expression, serializedAST, EvaluationMode.PREPARED);
+    }
+
+    public LogicalExpression save(String name, String expression, String serializedAST, EvaluationMode evaluationMode) {
+        return save(name, expression, serializedAST, evaluationMode, null, null);
+    }
+
+    public LogicalExpression save(String name, String expression, String serializedAST, EvaluationMode evaluationMode,
+                                  String tags, Integer priority) {
+        return save(name, expression, serializationService.deserialize(serializedAST), evaluationMode, tags, priority);
+    }
+
+    public LogicalExpression save(String name, String expression, Parser.ASTNode ast, EvaluationMode evaluationMode,
+                                  String tags, Integer priority) {
+        AstBlob blob = astStore.blob(ast);
+        LogicalExpression expr = newExpression(name, expression, blob, evaluationMode, tags, priority);
+        long start = metrics.start();
+        LogicalExpression saved;
+        try {
+            astStore.storeAll(List.of(blob));
+            saved = repository.save(expr);
+        } finally {
+            metrics.record(Phase.PERSIST, start);
+        }
+        expressionCache.invalidate(saved.getId());
+        ruleEvaluationService.added(saved);
+        return saved;
+    }
+
+    /**
+     * @param ast the blob of the expression's AST, see {@link AstStore#blob(Parser.ASTNode)}; it has to be stored
+     *            before the expression
+     * @return a new, not yet saved expression
+     */
+    public LogicalExpression newExpression(String name, String expression, AstBlob ast, EvaluationMode evaluationMode,
+                                           String tags, Integer priority) {
         LogicalExpression expr = new LogicalExpression();
         expr.setName(name);
         expr.setExpressionValue(expression);
-        expr.setAstJson(serializedAST);
-        return repository.save(expr);
+        expr.setAstHash(ast.getHash());
+        expr.setEvaluationMode(evaluationMode);
+        expr.setTags(tags);
+        expr.setPriority(priority);
+        return expr;
     }
 
     public String preProcessInput(String expression) {
-        String toReturn = expression.replaceAll("&&", "AND").replaceAll("\\|\\|", "OR");
-        if (toReturn.length() > 2000) {
-            throw new InputProcessingException("Input string exceeds the maximum length.");
+        long start = metrics.start();
+        try {
+            String toReturn = expression.indexOf('&') < 0 && expression.indexOf('|') < 0
+                    ? expression : spellOutOperators(expression);
+            if (toReturn.length() > 2000) {
+                throw new InputProcessingException("Input string exceeds the maximum length.");
+            }
+            return toReturn;
+        } finally {
+            metrics.record(Phase.PREPROCESS, start);
+        }
+    }
+
+    /**
+     * Rewrites "&&"/"||" outside of string literals to AND/OR. A space is added where the keyword would otherwise
+     * run into a neighbouring variable or number, so "a==1&&b" stays two comparisons.
+     */
+    private static String spellOutOperators(String expression) {
+        StringBuilder builder = new StringBuilder(expression.length() + 8);
+        boolean inString = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            boolean operator = !inString && i + 1 < expression.length() && expression.charAt(i + 1) == c
+                    && (c == '&' || c == '|');
+            if (!operator) {
+                inString ^= c == '"';
+                builder.append(c);
+                continue;
+            }
+            if (i > 0 && isWordCharacter(expression.charAt(i - 1))) {
+                builder.append(' ');
+            }
+            builder.append(c == '&' ? "AND" : "OR");
+            i++;
+            if (i + 1 < expression.length() && isWordCharacter(expression.charAt(i + 1))) {
+                builder.append(' ');
+            }
         }
-        return toReturn;
+        return builder.toString();
     }
 
-    public ArrayList<Tokenizer.Token> tokenizeExpression(String expression) {
-        return tokenizer.tokenize(expression);
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
     }
 
-    public Parser.ASTNode parseExpression(ArrayList<Tokenizer.Token> tokens) {
-        Parser parser = context.getBean(Parser.class);
-        return parser.parse(tokens);
+    public TokenStream tokenizeExpression(String expression) {
+        long start = metrics.start();
+        try {
+            return tokenizer.scan(expression);
+        } finally {
+            metrics.record(Phase.TOKENIZE, start);
+        }
+    }
+
+    public Parser.ASTNode parseExpression(TokenStream tokens) {
+        long start = metrics.start();
+        try {
+            return parser.parse(tokens);
+        } finally {
+            metrics.record(Phase.PARSE, start);
+        }
     }
+
+    public Parser.ASTNode optimizeExpression(Parser.ASTNode tree) {
+        long start = metrics.start();
+        try {
+            return astOptimizer.optimize(tree);
+        } finally {
+            metrics.record(Phase.OPTIMIZE, start);
+        }
+    }
+
     public boolean evaluateExpression(Parser.ASTNode tree, String jsonData) {
         return evaluator.evaluate(tree, jsonData);
     }
+
+    /**
+     * Same as {@link CompiledExpression#evaluate(String)}, timing the JSON parsing and the evaluation separately.
+     */
+    public boolean evaluateExpression(CompiledExpression expression, String jsonData) {
+        long start = metrics.start();
+        try {
+            JsonNode root = expression.getDocumentReader().read(jsonData);
+            long evaluateStart = metrics.start();
+            metrics.record(Phase.JSON_PARSE, start);
+            boolean result = expression.getPredicate().test(root);
+            metrics.record(Phase.EVALUATE, evaluateStart);
+            metrics.recordEvaluation(expression.getId(), result, start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordEvaluation(expression.getId(), null, start);
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,329 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.document.ReferencedPaths;
+import com.example.expressioneval.analysis.document.SelectiveDocumentReader;
+import com.example.expressioneval.analysis.network.PredicateNetwork;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates many stored expressions (rules) against one document.
+ * <p>
+ * The document is read once: the union of the paths all selected rules reference is extracted into one shared
+ * sparse row. Rules are evaluated through a {@link PredicateNetwork}, so a comparison shared by many rules is
+ * evaluated once per document. Saving an expression adds it to the loaded rule set incrementally: saved rules are
+ * merged into it on the next evaluation, together with the paths they reference, so a series of saves costs one
+ * merge. The rule set is only reloaded from the database when a save is rolled back. Rules are ordered by descending
+ * priority, then by id.
+ */
+@Service
+public class RuleEvaluationService {
+
+    public enum Mode {
+        /** ids of every matching rule */
+        ALL,
+        /** only the first matching rule in priority order */
+        FIRST,
+        /** only the number of matching rules */
+        COUNT
+    }
+
+    private static final Comparator<Rule> RULE_ORDER = Comparator.comparingInt((Rule rule) -> rule.priority).reversed()
+            .thenComparing(Rule::id);
+
+    private final LogicalExpressionRepository repository;
+
+    private final AstStore astStore;
+
+    private final ExpressionPreparer expressionPreparer;
+
+    private final int pageSize;
+
+    private volatile RuleSet ruleSet;
+
+    // rules saved since the rule set was built, merged into it on the next evaluation
+    private List<Rule> pending = new ArrayList<>();
+
+    private volatile boolean hasPending;
+
+    // bumped on every invalidation, so a load racing with a save does not publish a stale rule set
+    private final AtomicLong generation = new AtomicLong();
+
+    public RuleEvaluationService(LogicalExpressionRepository repository, AstStore astStore,
+                                 ExpressionPreparer expressionPreparer,
+                                 @Value("${expression.rules.load-page-size:500}") int pageSize) {
+        this.repository = repository;
+        this.astStore = astStore;
+        this.expressionPreparer = expressionPreparer;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param tags if not empty, only rules having at least one of these tags are evaluated
+     * @return the matching rule ids, the match count, the number of evaluated rules and distinct predicates and
+     * per-rule evaluation errors
+     */
+    public Map<String, Object> evaluate(String json, Mode mode, Collection<String> tags) {
+        RuleSet rules = ruleSet();
+        Selection selection = rules.select(tags);
+        PredicateNetwork.Session session = new PredicateNetwork.Session(rules.leaves, selection.reader.read(json));
+
+        List<Long> matches = new ArrayList<>();
+        Map<Long, String> errors = new LinkedHashMap<>();
+        int evaluated = 0;
+        for (Rule rule : selection.rules) {
+            evaluated++;
+            boolean matched;
+            try {
+                matched = rule.node.test(session);
+            } catch (RuntimeException e) {
+                errors.put(rule.id, e.getMessage());
+                continue;
+            }
+            if (matched) {
+                matches.add(rule.id);
+                if (mode == Mode.FIRST) {
+                    break;
+                }
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (mode != Mode.COUNT) {
+            response.put("matches", matches);
+        }
+        response.put("count", matches.size());
+        response.put("evaluated", evaluated);
+        response.put("predicates", session.evaluated());
+        response.put("errors", errors);
+        return response;
+    }
+
+    /**
+     * @return the number of loaded rules, their distinct predicates and the predicate count before sharing
+     */
+    public Map<String, Object> stats() {
+        RuleSet rules = ruleSet();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("rules", rules.rules.size());
+        response.put("predicates", rules.network.size());
+        response.put("references", rules.network.references());
+        return response;
+    }
+
+    /**
+     * Adds a just saved expression to the loaded rule set. If the surrounding transaction does not commit,
+     * the rule set is reloaded instead.
+     */
+    public void added(LogicalExpression expr) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            RuleSet current = ruleSet;
+            if (current != null) {
+                pending.add(rule(current.network, expr));
+                hasPending = true;
+            }
+        }
+        invalidateUnlessCommitted();
+    }
+
+    /**
+     * Drops the loaded rule set after many expressions were saved at once, it is reloaded on the next evaluation.
+     */
+    public void bulkAdded() {
+        invalidate();
+        invalidateUnlessCommitted();
+    }
+
+    public void invalidate() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            ruleSet = null;
+            pending = new ArrayList<>();
+            hasPending = false;
+        }
+    }
+
+    // a rule set loaded or extended inside a transaction that is rolled back would keep the rolled back rows
+    private void invalidateUnlessCommitted() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        invalidate();
+                    }
+                }
+            });
+        }
+    }
+
+    private RuleSet ruleSet() {
+        RuleSet current = ruleSet;
+        if (current != null && hasPending) {
+            synchronized (this) {
+                if (ruleSet != null && !pending.isEmpty()) {
+                    ruleSet = ruleSet.with(pending);
+                    pending = new ArrayList<>();
+                }
+                hasPending = false;
+                current = ruleSet;
+            }
+        }
+        if (current == null) {
+            long loadedGeneration = generation.get();
+            current = load();
+            synchronized (this) {
+                if (generation.get() == loadedGeneration) {
+                    ruleSet = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private RuleSet load() {
+        PredicateNetwork network = new PredicateNetwork(expressionPreparer);
+        List<Rule> rules = new ArrayList<>();
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<LogicalExpression> page = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            lastId = page.get(page.size() - 1).getId();
+            astStore.preload(page);
+            for (LogicalExpression expr : page) {
+                rules.add(rule(network, expr));
+            }
+        }
+        rules.sort(RULE_ORDER);
+        return new RuleSet(network, rules);
+    }
+
+    private Rule rule(PredicateNetwork network, LogicalExpression expr) {
+        Parser.ASTNode ast = astStore.read(expr);
+        return new Rule(expr.getId(), ast, network.add(ast),
+                expr.getPriority() != null ? expr.getPriority() : 0, parseTags(expr.getTags()));
+    }
+
+    static Set<String> parseTags(String tags) {
+        if (tags == null || tags.isBlank()) {
+            return Set.of();
+        }
+        return Arrays.stream(tags.split(","))
+                .map(String::trim)
+                .filter(tag -> !tag.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private record Rule(Long id, Parser.ASTNode ast, PredicateNetwork.Node node, int priority, Set<String> tags) {
+    }
+
+    private record Selection(List<Rule> rules, Set<String> paths, SelectiveDocumentReader reader) {
+
+        static Selection of(List<Rule> rules) {
+            Set<String> paths = new LinkedHashSet<>();
+            for (Rule rule : rules) {
+                ReferencedPaths.collect(rule.ast, paths);
+            }
+            return new Selection(rules, paths, new SelectiveDocumentReader(paths));
+        }
+
+        /**
+         * @param added rules in {@link #RULE_ORDER}
+         * @return this selection with the given rules merged in, the document reader is only rebuilt if they
+         * reference new paths
+         */
+        Selection plus(List<Rule> added) {
+            if (added.isEmpty()) {
+                return this;
+            }
+            List<Rule> merged = new ArrayList<>(rules.size() + added.size());
+            int i = 0;
+            int j = 0;
+            while (i < rules.size() || j < added.size()) {
+                if (j == added.size() || (i < rules.size() && RULE_ORDER.compare(rules.get(i), added.get(j)) <= 0)) {
+                    merged.add(rules.get(i++));
+                } else {
+                    merged.add(added.get(j++));
+                }
+            }
+            Set<String> addedPaths = new LinkedHashSet<>();
+            for (Rule rule : added) {
+                ReferencedPaths.collect(rule.ast, addedPaths);
+            }
+            if (paths.containsAll(addedPaths)) {
+                return new Selection(merged, paths, reader);
+            }
+            Set<String> mergedPaths = new LinkedHashSet<>(paths);
+            mergedPaths.addAll(addedPaths);
+            return new Selection(merged, mergedPaths, new SelectiveDocumentReader(mergedPaths));
+        }
+    }
+
+    private static class RuleSet {
+        private final PredicateNetwork network;
+        // leaves of the network at the time the rules were added
+        private final ExpressionPredicate[] leaves;
+        private final List<Rule> rules;
+        private final Selection all;
+        // selections per tag combination, built on first use
+        private final Map<Set<String>, Selection> byTags = new ConcurrentHashMap<>();
+
+        RuleSet(PredicateNetwork network, List<Rule> rules) {
+            this(network, Selection.of(rules));
+        }
+
+        private RuleSet(PredicateNetwork network, Selection all) {
+            this.network = network;
+            this.leaves = network.leaves();
+            this.rules = all.rules;
+            this.all = all;
+        }
+
+        /**
+         * @return a rule set with the given rules merged in, selections already built for a tag combination are
+         * extended with the added rules having one of the tags
+         */
+        RuleSet with(List<Rule> added) {
+            List<Rule> sorted = new ArrayList<>(added);
+            sorted.sort(RULE_ORDER);
+            RuleSet updated = new RuleSet(network, all.plus(sorted));
+            byTags.forEach((wanted, selection) -> updated.byTags.put(wanted, selection.plus(sorted.stream()
+                    .filter(rule -> rule.tags.stream().anyMatch(wanted::contains))
+                    .toList())));
+            return updated;
+        }
+
+        Selection select(Collection<String> tags) {
+            if (tags == null || tags.isEmpty()) {
+                return all;
+            }
+            return byTags.computeIfAbsent(Set.copyOf(tags), wanted -> Selection.of(rules.stream()
+                    .filter(rule -> rule.tags.stream().anyMatch(wanted::contains))
+                    .toList()));
+        }
+    }
+}
@@ -2,25 +2,69 @@ package com.example.expressioneval.service;
 
 import com.example.expressioneval.analysis.Parser;
 import com.example.expressioneval.exception.exceptions.SerializationException;
+import com.example.expressioneval.model.LogicalExpression;
 import com.example.expressioneval.model.serialize.ASTSerializer;
+import com.example.expressioneval.model.serialize.BinaryAstCodec;
+import com.example.expressioneval.service.ExpressionMetrics.Phase;
 import org.springframework.stereotype.Service;
 
 @Service
 public class SerializationService {
 
+    private final ExpressionMetrics metrics;
+
+    public SerializationService(ExpressionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public String serialize(Parser.ASTNode node) {
+        long start = metrics.start();
         try {
             return ASTSerializer.serializeAST(node);
         } catch (Exception e) {
             throw new SerializationException(e.getMessage());
+        } finally {
+            metrics.record(Phase.SERIALIZE, start);
         }
     }
 
     public Parser.ASTNode deserialize(String astJson) {
+        long start = metrics.start();
         try {
             return ASTSerializer.deserializeAST(astJson);
         } catch (Exception e) {
             throw new SerializationException(e.getMessage());
+        } finally {
+            metrics.record(Phase.DESERIALIZE, start);
+        }
+    }
+
+    public byte[] encode(Parser.ASTNode node) {
+        long start = metrics.start();
+        try {
+            return BinaryAstCodec.encode(node);
+        } catch (Exception e) {
+            throw new SerializationException(e.getMessage());
+        } finally {
+            metrics.record(Phase.SERIALIZE, start);
         }
     }
+
+    public Parser.ASTNode decode(byte[] astBinary) {
+        long start = metrics.start();
+        try {
+            return BinaryAstCodec.decode(astBinary);
+        } catch (Exception e) {
+            throw new SerializationException(e.getMessage());
+        } finally {
+            metrics.record(Phase.DESERIALIZE, start);
+        }
+    }
+
+    /**
+     * @return the AST of a stored expression, from the binary encoding or, for rows not migrated yet, the JSON
+     */
+    public Parser.ASTNode read(LogicalExpression expr) {
+        return expr.getAstBinary() != null ? decode(expr.getAstBinary()) : deserialize(expr.getAstJson());
+    }
 }
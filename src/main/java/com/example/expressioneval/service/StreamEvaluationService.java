@@ -0,0 +1,265 @@
+package com.example.expressioneval.service;
+
+import com.example.expressioneval.analysis.document.DocumentReader;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.service.ExpressionMetrics.Phase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates one or more expressions against a long-lived stream of JSON events, one event per line.
+ * <p>
+ * Events are handled one at a time on the calling thread: an event is read, evaluated against every expression and
+ * its result written before the next event is read. Output is flushed whenever the next read could block, so results
+ * reach the client as soon as the producer pauses while consecutive buffered events share a flush. A client that
+ * reads slowly blocks the writes, which stops reading the request body and pushes back on the producer through the
+ * socket buffers; at no point is more than one event held in memory, and events longer than
+ * {@code expression.stream.max-event-size} characters are skipped and reported as errors.
+ * <p>
+ * Each expression is evaluated with its own {@link DocumentReader} and predicate, exactly as {@code /evaluate} would,
+ * but expressions sharing a reader share the parsed document.
+ */
+@Service
+public class StreamEvaluationService {
+
+    public enum Format {
+        /** one JSON object per line */
+        NDJSON,
+        /** Server-Sent Events, {@code result} events with the same JSON object as data and a final {@code end} event */
+        SSE
+    }
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final ExpressionMetrics metrics;
+
+    private final int maxEventSize;
+
+    public StreamEvaluationService(ExpressionMetrics metrics,
+                                   @Value("${expression.stream.max-event-size:1048576}") int maxEventSize) {
+        this.metrics = metrics;
+        this.maxEventSize = maxEventSize;
+    }
+
+    /**
+     * Writes {@code {"line":n,"results":{"id":true,...},"errors":{"id":"..."}}} per event, {@code errors} only when an
+     * expression failed, followed by a summary {@code {"events":n,"errors":n}} counting events with at least one
+     * error. Line numbers start at 1; blank lines are skipped, so producers can send them as keep-alives.
+     */
+    public void evaluate(List<CompiledExpression> expressions, InputStream input, OutputStream output, Format format)
+            throws IOException {
+        Plan plan = new Plan(expressions);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        StringBuilder event = new StringBuilder();
+        StringWriter data = new StringWriter();
+        long lineNumber = 0;
+        long events = 0;
+        long failedEvents = 0;
+
+        LineStatus status;
+        while ((status = readLine(reader, event)) != LineStatus.END) {
+            lineNumber++;
+            if (status == LineStatus.LINE && isBlank(event)) {
+                continue;
+            }
+            events++;
+            data.getBuffer().setLength(0);
+            JsonGenerator generator = jsonFactory.createGenerator(data);
+            generator.writeStartObject();
+            generator.writeNumberField("line", lineNumber);
+            boolean failed = status == LineStatus.TOO_LONG
+                    ? writeTooLong(generator)
+                    : plan.evaluate(event.toString(), generator, metrics);
+            generator.writeEndObject();
+            generator.close();
+            if (failed) {
+                failedEvents++;
+            }
+            writeEvent(writer, format, "result", lineNumber, data);
+            if (!reader.ready()) {
+                writer.flush();
+            }
+        }
+
+        data.getBuffer().setLength(0);
+        JsonGenerator generator = jsonFactory.createGenerator(data);
+        generator.writeStartObject();
+        generator.writeNumberField("events", events);
+        generator.writeNumberField("errors", failedEvents);
+        generator.writeEndObject();
+        generator.close();
+        writeEvent(writer, format, "end", -1, data);
+        writer.flush();
+    }
+
+    private boolean writeTooLong(JsonGenerator generator) throws IOException {
+        generator.writeStringField("error", "Event exceeds the maximum size of " + maxEventSize + " characters");
+        return true;
+    }
+
+    private static void writeEvent(Writer writer, Format format, String name, long id, StringWriter data)
+            throws IOException {
+        if (format == Format.SSE) {
+            writer.write("event: ");
+            writer.write(name);
+            writer.write('\n');
+            if (id > 0) {
+                writer.write("id: ");
+                writer.write(Long.toString(id));
+                writer.write('\n');
+            }
+            writer.write("data: ");
+            writer.append(data.getBuffer());
+            writer.write("\n\n");
+        } else {
+            writer.append(data.getBuffer());
+            writer.write('\n');
+        }
+    }
+
+    private enum LineStatus {
+        LINE,
+        TOO_LONG,
+        END
+    }
+
+    /**
+     * Reads the next line into {@code line} without its terminator. The characters of a line longer than the maximum
+     * event size are dropped up to the next newline instead of being buffered.
+     */
+    private LineStatus readLine(Reader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean tooLong = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                return tooLong ? LineStatus.TOO_LONG : LineStatus.LINE;
+            }
+            if (tooLong) {
+                continue;
+            }
+            if (line.length() == maxEventSize) {
+                tooLong = true;
+                line.setLength(0);
+                continue;
+            }
+            line.append((char) c);
+        }
+        if (tooLong) {
+            return LineStatus.TOO_LONG;
+        }
+        return line.length() > 0 ? LineStatus.LINE : LineStatus.END;
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The expressions of one stream with, per expression, the index of its document reader among the distinct ones.
+     */
+    private static class Plan {
+        final CompiledExpression[] expressions;
+        final int[] readerIndexes;
+        final DocumentReader[] readers;
+        // per event: the parsed document or the parse failure of every distinct reader
+        final JsonNode[] documents;
+        final RuntimeException[] readErrors;
+
+        Plan(List<CompiledExpression> expressions) {
+            this.expressions = expressions.toArray(new CompiledExpression[0]);
+            this.readerIndexes = new int[this.expressions.length];
+            List<DocumentReader> distinct = new ArrayList<>();
+            for (int i = 0; i < this.expressions.length; i++) {
+                DocumentReader reader = this.expressions[i].getDocumentReader();
+                int index = distinct.indexOf(reader);
+                if (index < 0) {
+                    index = distinct.size();
+                    distinct.add(reader);
+                }
+                readerIndexes[i] = index;
+            }
+            this.readers = distinct.toArray(new DocumentReader[0]);
+            this.documents = new JsonNode[readers.length];
+            this.readErrors = new RuntimeException[readers.length];
+        }
+
+        /**
+         * Writes the {@code results} and {@code errors} fields for one event.
+         *
+         * @return whether any expression failed
+         */
+        boolean evaluate(String json, JsonGenerator generator, ExpressionMetrics metrics) throws IOException {
+            for (int i = 0; i < readers.length; i++) {
+                long start = metrics.start();
+                try {
+                    documents[i] = readers[i].read(json);
+                    readErrors[i] = null;
+                } catch (RuntimeException e) {
+                    documents[i] = null;
+                    readErrors[i] = e;
+                } finally {
+                    metrics.record(Phase.JSON_PARSE, start);
+                }
+            }
+
+            String[] errors = null;
+            generator.writeObjectFieldStart("results");
+            for (int i = 0; i < expressions.length; i++) {
+                CompiledExpression expression = expressions[i];
+                long start = metrics.start();
+                try {
+                    RuntimeException readError = readErrors[readerIndexes[i]];
+                    if (readError != null) {
+                        throw readError;
+                    }
+                    boolean result = expression.getPredicate().test(documents[readerIndexes[i]]);
+                    metrics.record(Phase.EVALUATE, start);
+                    metrics.recordEvaluation(expression.getId(), result, start);
+                    generator.writeBooleanField(String.valueOf(expression.getId()), result);
+                } catch (RuntimeException e) {
+                    metrics.recordEvaluation(expression.getId(), null, start);
+                    if (errors == null) {
+                        errors = new String[expressions.length];
+                    }
+                    errors[i] = e.getMessage();
+                }
+            }
+            generator.writeEndObject();
+
+            if (errors == null) {
+                return false;
+            }
+            generator.writeObjectFieldStart("errors");
+            for (int i = 0; i < expressions.length; i++) {
+                if (errors[i] != null) {
+                    generator.writeStringField(String.valueOf(expressions[i].getId()), errors[i]);
+                }
+            }
+            generator.writeEndObject();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.AdHocExpressionCache;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ExpressionControllerTestAdHoc {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private AdHocExpressionCache adHocExpressionCache;
+
+    private void evaluate(String expression, String jsonData, boolean expectedResult) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/adhoc")
+                        .param("expression", expression)
+                        .content(jsonData)
+                        .contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expectedResult));
+    }
+
+    @Test
+    public void evaluateAdHoc_evaluatesWithoutStoringTheExpression() throws Exception {
+        long stored = repository.count();
+
+        evaluate("customer.age > 25 && customer.address.city == \"Seattle\"",
+                "{\"customer\": {\"age\": 30, \"address\": {\"city\": \"Seattle\"}}}", true);
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/adhoc")
+                        .param("expression", "customer.age > 25 OR 2 > 1")
+                        .param("mode", "COMPILED")
+                        .content("{\"customer\": {\"age\": 20}}")
+                        .contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.expr").value("customer.age > 25 OR 2 > 1"));
+
+        assertEquals(stored, repository.count());
+    }
+
+    @Test
+    public void evaluateAdHocTwice_secondRequestSkipsParsing() throws Exception {
+        long hits = (long) adHocExpressionCache.stats().get("hits");
+        long misses = (long) adHocExpressionCache.stats().get("misses");
+
+        evaluate("order.total >= 100 && order.items > 2", "{\"order\": {\"total\": 150, \"items\": 3}}", true);
+        // the same text after preprocessing
+        evaluate("order.total >= 100 AND order.items > 2", "{\"order\": {\"total\": 150, \"items\": 1}}", false);
+
+        assertEquals(misses + 1, adHocExpressionCache.stats().get("misses"));
+        assertEquals(hits + 1, adHocExpressionCache.stats().get("hits"));
+        CompiledExpression cached = adHocExpressionCache.get("order.total >= 100 && order.items > 2", EvaluationMode.PREPARED);
+        assertNull(cached.getId());
+        assertSame(cached, adHocExpressionCache.get("order.total >= 100 AND order.items > 2", EvaluationMode.PREPARED));
+        assertNotSame(cached, adHocExpressionCache.get("order.total >= 100 AND order.items > 2", EvaluationMode.COMPILED));
+    }
+
+    @Test
+    public void invalidAdHocExpression_returnsBadRequestAndIsNotCached() throws Exception {
+        long size = (long) adHocExpressionCache.stats().get("size");
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/adhoc")
+                            .param("expression", "customer.age > 25 AND")
+                            .content("{}")
+                            .contentType("application/json"))
+                    .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Unexpected token type at index 4"));
+        }
+        assertEquals(size, adHocExpressionCache.stats().get("size"));
+    }
+
+    @Test
+    public void adHocCache_isBoundedAndReportsStats() throws Exception {
+        AdHocExpressionCache small = new AdHocExpressionCache(service, expressionCache, 2);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(small.get("a > " + i, EvaluationMode.PREPARED).evaluate("{\"a\": 100}"));
+        }
+        assertEquals(50L, small.stats().get("misses"));
+        // evictions run asynchronously after the writes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((long) small.stats().get("size") > 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue((long) small.stats().get("size") <= 2);
+        assertEquals(50L - (long) small.stats().get("size"), small.stats().get("evictions"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/cache/adhoc/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.size").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.maximumSize").value(1000))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hitRate").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evictions").exists());
+    }
+}
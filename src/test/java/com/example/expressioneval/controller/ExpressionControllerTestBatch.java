@@ -0,0 +1,109 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.example.expressioneval.service.SerializationService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestBatch {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private SerializationService serializationService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long saveExpression(String expression) {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode node = service.parseExpression(service.tokenizeExpression(processedInput));
+        LogicalExpression logicalExpression = service.save("some expression", processedInput, serializationService.serialize(node));
+        return logicalExpression.getId();
+    }
+
+    private String performBatch(Long id, String output, String body) throws Exception {
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/batch")
+                        .param("id", String.valueOf(id))
+                        .param("output", output)
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    public void evaluateBatchResults_returnsOneLinePerDocument() throws Exception {
+        Long id = saveExpression("customer.age > 25");
+        String body = "{\"customer\": {\"age\": 30}}\n{\"customer\": {\"age\": 20}}\n\n{\"customer\": {}}\n";
+
+        String response = performBatch(id, "RESULTS", body);
+
+        assertEquals("{\"line\":1,\"result\":true}\n"
+                + "{\"line\":2,\"result\":false}\n"
+                + "{\"line\":4,\"error\":\"Numeric value is null\"}\n"
+                + "{\"count\":1,\"total\":3,\"errors\":1}\n", response);
+    }
+
+    @Test
+    public void evaluateBatchMatches_returnsMatchingLinesInOrder() throws Exception {
+        Long id = saveExpression("order.amount >= 500");
+        // enough documents for several chunks
+        String body = IntStream.rangeClosed(1, 2500)
+                .mapToObj(i -> "{\"order\": {\"amount\": " + i + "}}")
+                .collect(Collectors.joining("\n"));
+
+        String[] lines = performBatch(id, "MATCHES", body).split("\n");
+
+        assertEquals(2002, lines.length);
+        assertEquals("{\"line\":500}", lines[0]);
+        assertEquals("{\"line\":2500}", lines[2000]);
+        assertEquals("{\"count\":2001,\"total\":2500,\"errors\":0}", lines[2001]);
+    }
+
+    @Test
+    public void evaluateBatchUnknownId_returnsNotFound() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/batch")
+                        .param("id", "-1")
+                        .content("{}")
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.example.expressioneval.service.SerializationService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+@ExtendWith(OutputCaptureExtension.class)
+public class ExpressionControllerTestCache {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private SerializationService serializationService;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long saveExpression(String expression) {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode node = service.parseExpression(service.tokenizeExpression(processedInput));
+        LogicalExpression logicalExpression = service.save("some expression", processedInput, serializationService.serialize(node));
+        return logicalExpression.getId();
+    }
+
+    private void evaluate(Long id, String jsonData, boolean expectedResult) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content(jsonData)
+                        .contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expectedResult));
+    }
+
+    @Test
+    public void evaluateTwice_secondLookupIsCacheHit() throws Exception {
+        Long id = saveExpression("customer.age > 25");
+        long hits = (long) expressionCache.stats().get("hits");
+        long misses = (long) expressionCache.stats().get("misses");
+
+        evaluate(id, "{\"customer\": {\"age\": 30}}", true);
+        evaluate(id, "{\"customer\": {\"age\": 20}}", false);
+
+        assertEquals(misses + 1, expressionCache.stats().get("misses"));
+        assertEquals(hits + 1, expressionCache.stats().get("hits"));
+    }
+
+    @Test
+    public void evaluateUnknownId_returnsNotFound(CapturedOutput output) throws Exception {
+        long size = (long) expressionCache.stats().get("size");
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                            .param("id", "-1")
+                            .content("{}")
+                            .contentType("application/json"))
+                    .andExpect(MockMvcResultMatchers.status().isNotFound())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Expression not found with ID: -1"));
+        }
+
+        // an unknown id is neither cached nor logged as a failed load
+        assertEquals(size, expressionCache.stats().get("size"));
+        assertFalse(output.getAll().contains("Exception thrown during asynchronous load"));
+    }
+
+    @Test
+    public void cacheStats_returnsCounters() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/cache/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hits").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.misses").exists())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evictions").exists());
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.Operator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.columnar.Column;
+import com.example.expressioneval.analysis.columnar.ColumnBatch;
+import com.example.expressioneval.analysis.columnar.ColumnarExpression;
+import com.example.expressioneval.analysis.columnar.ColumnarPreparer;
+import com.example.expressioneval.analysis.columnar.ColumnarResult;
+import com.example.expressioneval.analysis.columnar.Kernels;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.exception.exceptions.ParseException;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestColumnar {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private Evaluator evaluator;
+
+    @Autowired
+    private ExpressionPreparer expressionPreparer;
+
+    @Autowired
+    private ColumnarPreparer columnarPreparer;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Parser.ASTNode parse(String expression) {
+        String processedInput = service.preProcessInput(expression);
+        return service.optimizeExpression(service.parseExpression(service.tokenizeExpression(processedInput)));
+    }
+
+    private Long saveExpression(String expression, EvaluationMode mode) {
+        String processedInput = service.preProcessInput(expression);
+        return service.save("some expression", processedInput, parse(expression), mode, null, null).getId();
+    }
+
+    private String performBatch(Long id, String output, String engine, String body) throws Exception {
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/batch")
+                        .param("id", String.valueOf(id))
+                        .param("output", output)
+                        .param("engine", engine)
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    public void typedColumns_evaluateIntoMatchBitmaps() {
+        ColumnarExpression expression = columnarPreparer.prepare(
+                parse("age >= 18 AND (country == \"NL\" OR vip) AND score > 2.5"));
+        ColumnBatch batch = new ColumnBatch(5, Map.of(
+                "age", Column.ofLongs(new long[]{30, 12, 45, 18, 70}),
+                "country", Column.ofStrings(new String[]{"NL", "NL", "DE", "DE", null}),
+                "vip", Column.ofBooleans(new boolean[]{false, true, true, false, true}),
+                "score", Column.ofDoubles(new double[]{3.0, 9.9, 2.5, 4.0, 2.6})));
+
+        ColumnarResult result = expression.evaluate(batch);
+
+        assertArrayEquals(new int[]{0, 4}, result.matchingRows());
+        assertEquals(2, result.matchCount());
+        assertEquals(0, result.errorCount());
+        // row 3 is an adult outside NL without vip status, so the score is never compared
+        assertFalse(result.matches(3));
+        assertEquals(0b10001L, result.matchBitmap()[0]);
+    }
+
+    @Test
+    public void failingRows_onlyFailWhereTheRowEvaluationReachesTheComparison() {
+        ColumnarExpression expression = columnarPreparer.prepare(parse("kind == \"order\" AND total > 100"));
+        ColumnBatch.Builder builder = new ColumnBatch.Builder(expression.paths(), 2);
+        builder.add(evaluator.readDocument("{\"kind\": \"order\", \"total\": 150}"));
+        builder.add(evaluator.readDocument("{\"kind\": \"refund\"}"));
+        builder.add(evaluator.readDocument("{\"kind\": \"order\"}"));
+        builder.add(evaluator.readDocument("{\"kind\": \"order\", \"total\": \"12x\"}"));
+        builder.addError("Failed to parse JSON");
+        builder.add(evaluator.readDocument("{\"kind\": \"order\", \"total\": \"250\"}"));
+
+        ColumnarResult result = expression.evaluate(builder.build());
+
+        assertEquals(6, result.size());
+        assertArrayEquals(new int[]{0, 5}, result.matchingRows());
+        assertNull(result.error(1));
+        assertEquals("Numeric value is null", result.error(2));
+        assertEquals("Failed to convert string to number", result.error(3));
+        assertEquals("Failed to parse JSON", result.error(4));
+        assertEquals(3, result.errorCount());
+    }
+
+    @Test
+    public void kernels_giveTheSameBitmapsAsTheScalarFallback() {
+        // the vector kernels when running with the vector profile, the scalar ones otherwise
+        Kernels kernels = Kernels.get();
+        Random random = new Random(11);
+        double[] specialDoubles = {Double.NaN, 0.0, -0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE, 2.5, 3.0};
+        long[] specialLongs = {Long.MIN_VALUE, Long.MAX_VALUE, 0, 3, -3, (1L << 53) + 1};
+        Parser.NumberNode[] literals = {new Parser.NumberNode(3), new Parser.NumberNode(0), new Parser.NumberNode(2.5),
+                new Parser.NumberNode(-0.0), new Parser.NumberNode(Long.MAX_VALUE), new Parser.NumberNode((double) (1L << 53))};
+        for (int size : new int[]{0, 1, 7, 63, 64, 65, 130, 1000}) {
+            double[] doubles = new double[size];
+            long[] longs = new long[size];
+            for (int i = 0; i < size; i++) {
+                doubles[i] = random.nextInt(4) == 0 ? specialDoubles[random.nextInt(specialDoubles.length)] : random.nextInt(7) * 0.5;
+                longs[i] = random.nextInt(4) == 0 ? specialLongs[random.nextInt(specialLongs.length)] : random.nextInt(7) - 1;
+            }
+            for (Operator op : Operator.values()) {
+                if (op.isLogical()) {
+                    continue;
+                }
+                for (Parser.NumberNode literal : literals) {
+                    String description = kernels.name() + " " + op + " " + literal + " size " + size;
+                    assertArrayEquals(Kernels.scalar().compare(doubles, op, literal), kernels.compare(doubles, op, literal), description);
+                    assertArrayEquals(Kernels.scalar().compare(longs, op, literal), kernels.compare(longs, op, literal), description);
+                }
+            }
+        }
+        assertArrayEquals(new long[]{0b1001L}, Kernels.scalar().compare(new double[]{3.0, Double.NaN, 2.0, 3.0}, Operator.GEQ, new Parser.NumberNode(3)));
+        assertArrayEquals(new long[]{0b0110L}, Kernels.scalar().compare(new long[]{3, 2, 1, 3}, Operator.LT, new Parser.NumberNode(2.5)));
+    }
+
+    @Test
+    public void randomExpressions_matchRowAtATimeEvaluation() {
+        Random random = new Random(42);
+        List<String> documents = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            documents.add(RandomExpressions.document(random));
+        }
+        List<JsonNode> parsed = documents.stream().map(evaluator::readDocument).toList();
+
+        int compared = 0;
+        while (compared < 400) {
+            Parser.ASTNode ast;
+            try {
+                ast = parse(RandomExpressions.condition(random, 3));
+            } catch (ParseException e) {
+                continue;
+            }
+            compared++;
+            ExpressionPredicate predicate = expressionPreparer.prepare(ast);
+            ColumnarExpression columnar = columnarPreparer.prepare(ast);
+            ColumnBatch.Builder builder = new ColumnBatch.Builder(columnar.paths(), 16);
+            parsed.forEach(builder::add);
+            ColumnarResult result = columnar.evaluate(builder.build());
+
+            for (int row = 0; row < parsed.size(); row++) {
+                String expected;
+                try {
+                    expected = String.valueOf(predicate.test(parsed.get(row)));
+                } catch (RuntimeException e) {
+                    expected = "error: " + e.getMessage();
+                }
+                String actual = result.failed(row) ? "error: " + result.error(row) : String.valueOf(result.matches(row));
+                assertEquals(expected, actual, ast + " on " + documents.get(row));
+            }
+        }
+    }
+
+    @Test
+    public void evaluateBatchColumnar_returnsTheSameLinesAsRowEvaluation() throws Exception {
+        Long id = saveExpression("customer.age > 25 AND customer.tier != \"basic\" OR customer.vip", EvaluationMode.STREAMING);
+        StringBuilder body = new StringBuilder();
+        Random random = new Random(7);
+        for (int i = 0; i < 2500; i++) {
+            switch (random.nextInt(12)) {
+                case 0 -> body.append('\n');
+                case 1 -> body.append("{\"customer\": oops}\n");
+                case 2 -> body.append("{\"customer\": {\"age\": \"").append(random.nextInt(60)).append("\"}}\n");
+                case 3 -> body.append("{\"customer\": {\"tier\": \"gold\"}}\n");
+                default -> body.append("{\"customer\": {\"age\": ").append(random.nextInt(60))
+                        .append(", \"tier\": \"").append(random.nextBoolean() ? "basic" : "gold")
+                        .append("\", \"vip\": ").append(random.nextInt(4) == 0).append("}}\n");
+            }
+        }
+
+        for (String output : List.of("RESULTS", "MATCHES")) {
+            String rows = performBatch(id, output, "ROW", body.toString());
+            String columns = performBatch(id, output, "COLUMNAR", body.toString());
+            assertEquals(rows, columns);
+            assertTrue(columns.endsWith("\"total\":" + body.toString().lines().filter(line -> !line.isBlank()).count()
+                    + ",\"errors\":" + rows.split("\"errors\":")[1]));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.expressioneval.controller;
 
 import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.EvaluationMode;
 import com.example.expressioneval.model.LogicalExpression;
 import com.example.expressioneval.repository.LogicalExpressionRepository;
 import com.example.expressioneval.service.LogicalExpressionService;
@@ -16,6 +17,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 @Transactional
@@ -43,18 +46,44 @@ public class ExpressionControllerTestEvaluate {
         entityManager.clear();
     }
 
+    // every expression is checked as parsed and as optimized in each evaluation mode, they all have to agree
     private void performRequestAndAssert(String jsonData, boolean expectedResult, String name, String expression) throws Exception {
         String processedInput = service.preProcessInput(expression);
         Parser.ASTNode node = service.parseExpression(service.tokenizeExpression(processedInput));
-        String jsonAst = serializationService.serialize(node);
-        LogicalExpression logicalExpression = service.save(name, processedInput, jsonAst );
+        List<String> jsonAsts = List.of(serializationService.serialize(node),
+                serializationService.serialize(service.optimizeExpression(node)));
+
+        for (EvaluationMode mode : EvaluationMode.values()) {
+            for (String jsonAst : jsonAsts) {
+                LogicalExpression logicalExpression = service.save(name, processedInput, jsonAst, mode);
+
+                mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                                .param("id", String.valueOf(logicalExpression.getId()))
+                                .content(jsonData)
+                                .contentType("application/json"))
+                        .andExpect(MockMvcResultMatchers.status().isOk())
+                        .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expectedResult));
+            }
+        }
+    }
 
-        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
-                        .param("id", String.valueOf(logicalExpression.getId()))
-                        .content(jsonData)
-                        .contentType("application/json"))
-                .andExpect(MockMvcResultMatchers.status().isOk())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expectedResult));
+    private void performRequestAndAssertBadRequest(String jsonData, String name, String expression) throws Exception {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode node = service.parseExpression(service.tokenizeExpression(processedInput));
+        List<String> jsonAsts = List.of(serializationService.serialize(node),
+                serializationService.serialize(service.optimizeExpression(node)));
+
+        for (EvaluationMode mode : EvaluationMode.values()) {
+            for (String jsonAst : jsonAsts) {
+                LogicalExpression logicalExpression = service.save(name, processedInput, jsonAst, mode);
+
+                mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                                .param("id", String.valueOf(logicalExpression.getId()))
+                                .content(jsonData)
+                                .contentType("application/json"))
+                        .andExpect(MockMvcResultMatchers.status().isBadRequest());
+            }
+        }
     }
 
     @Test
@@ -141,4 +170,75 @@ public class ExpressionControllerTestEvaluate {
         performRequestAndAssert("{}", false, name, expression);
     }
 
+    @Test
+    public void evaluateAgeGreaterThan25WithMissingAge_returnsBadRequest() throws Exception {
+        String name = "some expression";
+        String expression = "customer.age > 25";
+        performRequestAndAssertBadRequest("{\"customer\": {}}", name, expression);
+    }
+
+    @Test
+    public void evaluateShortCircuitSkipsMissingAge_returnsFalse() throws Exception {
+        String name = "some expression";
+        String expression = "customer.name == \"John\" AND customer.age > 25";
+        performRequestAndAssert("{\"customer\": {\"name\": \"Jane\"}}", false, name, expression);
+    }
+
+    @Test
+    public void evaluateInvalidJson_returnsBadRequest() throws Exception {
+        String name = "some expression";
+        String expression = "customer.age > 25";
+        performRequestAndAssertBadRequest("{\"customer\": ", name, expression);
+    }
+
+    @Test
+    public void evaluateWithUnrelatedSubtrees_returnsTrue() throws Exception {
+        String name = "some expression";
+        String expression = "customer.age > 25 AND customer.address.city == \"Seattle\"";
+        performRequestAndAssert("{\"orders\": [{\"id\": 1, \"customer\": {\"age\": 1}}], \"customer\": {\"tags\": {\"age\": 1}, "
+                + "\"address\": {\"zip\": \"98101\", \"city\": \"Seattle\"}, \"age\": 30}, \"trailer\": {\"x\": [1, 2, 3]}}", true, name, expression);
+    }
+
+    @Test
+    public void evaluatePathThroughScalar_returnsTrue() throws Exception {
+        String name = "some expression";
+        String expression = "customer.address.city == \"Seattle\" OR customer.address != null";
+        performRequestAndAssert("{\"customer\": {\"address\": \"Seattle\"}}", true, name, expression);
+    }
+
+    @Test
+    public void evaluateDecimalLiteralEqualsInteger_returnsTrue() throws Exception {
+        String name = "some expression";
+        String expression = "1.0 == 1";
+        performRequestAndAssert("{}", true, name, expression);
+    }
+
+    @Test
+    public void evaluateDecimalFieldEqualsIntegerLiteral_returnsTrue() throws Exception {
+        String name = "some expression";
+        String expression = "order.amount == 100 AND order.score >= 4.5";
+        performRequestAndAssert("{\"order\": {\"amount\": 100.0, \"score\": 4.75}}", true, name, expression);
+    }
+
+    @Test
+    public void evaluateLongLiteral_returnsTrue() throws Exception {
+        String name = "some expression";
+        String expression = "event.timestamp > 1700000000000 AND event.timestamp < 9007199254740993";
+        performRequestAndAssert("{\"event\": {\"timestamp\": 9007199254740992}}", true, name, expression);
+    }
+
+    @Test
+    public void evaluateNumberStoredAsString_returnsTrue() throws Exception {
+        String name = "some expression";
+        String expression = "customer.age == 30 AND customer.age > 25";
+        performRequestAndAssert("{\"customer\": {\"age\": \"30\"}}", true, name, expression);
+    }
+
+    @Test
+    public void evaluateMissingStandaloneField_returnsBadRequest() throws Exception {
+        String name = "some expression";
+        String expression = "customer.isBlocked";
+        performRequestAndAssertBadRequest("{\"customer\": {}}", name, expression);
+    }
+
 }
@@ -167,4 +167,37 @@ public class ExpressionControllerTestExpression {
         String value = "null != null AND null == null";
         performRequestAndAssert(name, value, HttpStatus.CREATED);
     }
+
+    @Test
+    public void createExpressionInCompiledMode_returnsCreated() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some expression")
+                        .param("value", "customer.age > 25 AND customer.isBlocked")
+                        .param("mode", "COMPILED"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.mode").value("COMPILED"));
+    }
+
+    @Test
+    public void createExpressionWithUnknownMode_returnsBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some expression")
+                        .param("value", "customer.age > 25")
+                        .param("mode", "TURBO"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void createExpressionWithDecimalLiteral_returnsCreated() throws Exception {
+        String name = "some expression";
+        String value = "order.amount >= 99.95";
+        performRequestAndAssert(name, value, HttpStatus.CREATED);
+    }
+
+    @Test
+    public void createExpressionWithNumberOutOfRange_returnsBadRequest() throws Exception {
+        String name = "some expression";
+        String value = "order.amount >= 99999999999999999999";
+        performRequestAndAssert(name, value, HttpStatus.BAD_REQUEST);
+    }
 }
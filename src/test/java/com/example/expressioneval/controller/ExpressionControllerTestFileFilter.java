@@ -0,0 +1,183 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.exception.exceptions.InputProcessingException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.AdHocExpressionCache;
+import com.example.expressioneval.service.FileFilterRunner;
+import com.example.expressioneval.service.FileFilterService;
+import com.example.expressioneval.service.LogicalExpressionService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// chunks of a few lines, so every file spans many of them
+@SpringBootTest(properties = "expression.file.chunk-size=64B")
+@Transactional
+public class ExpressionControllerTestFileFilter {
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private AdHocExpressionCache adHocExpressionCache;
+
+    @Autowired
+    private FileFilterService fileFilterService;
+
+    @Autowired
+    private FileFilterRunner fileFilterRunner;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // every fifth line ends with CRLF, every seventh has no amount, every eleventh is blank, every thirteenth
+    // is not JSON and some carry a field longer than a chunk
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String line;
+            if (i % 11 == 0) {
+                line = "   ";
+            } else if (i % 13 == 0) {
+                line = "{\"order\": ";
+            } else if (i % 7 == 0) {
+                line = "{\"order\": {}}";
+            } else if (i % 17 == 0) {
+                line = "{\"note\": \"" + "x".repeat(150) + "\", \"order\": {\"amount\": " + i + "}}";
+            } else {
+                line = "{\"order\": {\"amount\": " + i + ", \"id\": \"ü" + i + "\"}}";
+            }
+            lines.add(i % 5 == 0 ? line + "\r" : line);
+        }
+        return lines;
+    }
+
+    private Path write(List<String> lines, boolean finalNewline) throws Exception {
+        Path input = directory.resolve("input.ndjson");
+        String content = String.join("\n", lines) + (finalNewline ? "\n" : "");
+        Files.writeString(input, content, StandardCharsets.UTF_8);
+        return input;
+    }
+
+    @Test
+    public void filterLines_writesTheMatchingLinesAsTheyAreInTheInput() throws Exception {
+        List<String> lines = lines(400);
+        Path input = write(lines, false);
+        Path output = directory.resolve("matches.ndjson");
+        CompiledExpression expression = adHocExpressionCache.get("order.amount >= 150 AND order.amount != 399",
+                EvaluationMode.PREPARED);
+
+        Map<String, Object> summary = fileFilterService.filter(expression, input, output, FileFilterService.Output.LINES);
+
+        StringBuilder expected = new StringBuilder();
+        long documents = 0;
+        long matches = 0;
+        long errors = 0;
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            documents++;
+            try {
+                if (expression.evaluate(line.strip())) {
+                    matches++;
+                    expected.append(line).append('\n');
+                }
+            } catch (RuntimeException e) {
+                errors++;
+            }
+        }
+        assertEquals(expected.toString(), Files.readString(output, StandardCharsets.UTF_8));
+        assertEquals(documents, summary.get("documents"));
+        assertEquals(matches, summary.get("matches"));
+        assertEquals(errors, summary.get("errors"));
+        // the last line has no newline and matches, the output still ends with one
+        assertTrue(Files.readString(output, StandardCharsets.UTF_8).endsWith("\"ü400\"}}\r\n"));
+    }
+
+    @Test
+    public void filterOffsets_writesTheByteOffsetOfEveryMatch() throws Exception {
+        List<String> lines = lines(200);
+        Path input = write(lines, true);
+        Path output = directory.resolve("offsets.txt");
+        CompiledExpression expression = adHocExpressionCache.get("order.amount < 50", EvaluationMode.STREAMING);
+
+        fileFilterService.filter(expression, input, output, FileFilterService.Output.OFFSETS);
+
+        StringBuilder expected = new StringBuilder();
+        long offset = 0;
+        for (String line : lines) {
+            try {
+                if (!line.isBlank() && expression.evaluate(line.strip())) {
+                    expected.append(offset).append('\n');
+                }
+            } catch (RuntimeException e) {
+                // counted as an error, not written
+            }
+            offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        assertEquals(expected.toString(), Files.readString(output));
+        byte[] content = Files.readAllBytes(input);
+        String firstOffset = Files.readAllLines(output).get(0);
+        assertEquals('{', content[Integer.parseInt(firstOffset)]);
+    }
+
+    @Test
+    public void runner_filtersAStoredExpressionIntoTheOutputFile() throws Exception {
+        String processedInput = service.preProcessInput("order.amount > 390");
+        Parser.ASTNode ast = service.parseExpression(service.tokenizeExpression(processedInput));
+        LogicalExpression expr = service.save("large orders", processedInput, ast, EvaluationMode.COMPILED, null, null);
+        Path input = write(lines(400), true);
+        Path output = directory.resolve("runner.ndjson");
+
+        fileFilterRunner.run(new DefaultApplicationArguments("--filter.input=" + input, "--filter.output=" + output,
+                "--filter.id=" + expr.getId()));
+
+        List<String> matches = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(List.of(391, 393, 394, 395, 397, 398, 400),
+                matches.stream().map(line -> Integer.parseInt(line.replaceAll(".*amount\": (\\d+).*", "$1"))).toList());
+    }
+
+    @Test
+    public void runner_withoutExpression_fails() throws Exception {
+        Path input = write(lines(3), true);
+        DefaultApplicationArguments args = new DefaultApplicationArguments("--filter.input=" + input,
+                "--filter.output=" + directory.resolve("out"));
+
+        InputProcessingException e = assertThrows(InputProcessingException.class, () -> fileFilterRunner.run(args));
+        assertEquals("Either --filter.id or --filter.expression is required", e.getMessage());
+    }
+}
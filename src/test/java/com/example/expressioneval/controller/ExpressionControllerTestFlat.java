@@ -0,0 +1,210 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.flat.ConstantPool;
+import com.example.expressioneval.analysis.flat.FlatAst;
+import com.example.expressioneval.exception.exceptions.ParseException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.model.serialize.BinaryAstCodec;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.AstStore;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestFlat {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private Evaluator evaluator;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private AstStore astStore;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Parser.ASTNode parse(String expression) {
+        return service.parseExpression(service.tokenizeExpression(service.preProcessInput(expression)));
+    }
+
+    private static String outcome(Runnable evaluation, boolean[] result) {
+        try {
+            evaluation.run();
+            return String.valueOf(result[0]);
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage()
+                    + (e.getCause() != null ? " / " + e.getCause().getMessage() : "");
+        }
+    }
+
+    private void assertSameAsInterpreter(Parser.ASTNode ast, FlatAst flat, List<JsonNode> documents) {
+        assertArrayEquals(BinaryAstCodec.encode(ast), BinaryAstCodec.encode(flat.toAst()), String.valueOf(ast));
+        for (JsonNode document : documents) {
+            boolean[] result = new boolean[1];
+            String expected = outcome(() -> result[0] = evaluator.evaluate(ast, document), result);
+            String actual = outcome(() -> result[0] = flat.test(document), result);
+            assertEquals(expected, actual, ast + " on " + document);
+        }
+    }
+
+    @Test
+    public void randomExpressions_evaluateAndDecodeLikeTheObjectTree() {
+        Random random = new Random(25);
+        List<JsonNode> documents = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            documents.add(evaluator.readDocument(RandomExpressions.document(random)));
+        }
+        ConstantPool pool = new ConstantPool();
+
+        int compared = 0;
+        while (compared < 300) {
+            Parser.ASTNode ast;
+            try {
+                ast = parse(RandomExpressions.condition(random, 3));
+            } catch (ParseException e) {
+                continue;
+            }
+            compared++;
+            assertSameAsInterpreter(ast, FlatAst.encode(ast, pool), documents);
+            Parser.ASTNode optimized = service.optimizeExpression(ast);
+            assertSameAsInterpreter(optimized, FlatAst.encode(optimized, pool), documents);
+        }
+    }
+
+    @Test
+    public void malformedAsts_failLikeTheObjectTree() {
+        List<JsonNode> documents = List.of(evaluator.readDocument("{\"a\": 1, \"b\": \"x\"}"),
+                evaluator.readDocument("{}"));
+        Parser.ASTNode comparison = new Parser.BinaryOpNode(">", new Parser.ValueNode("a"), new Parser.NumberNode(0));
+        List<Parser.ASTNode> asts = List.of(
+                new Parser.BinaryOpNode("~", comparison, comparison),
+                new Parser.NaryOpNode("==", List.of(comparison, comparison)),
+                new Parser.NaryOpNode("XOR", List.of(comparison)),
+                new Parser.BinaryOpNode("==", comparison, new Parser.BooleanNode(true)),
+                new Parser.BinaryOpNode("<", new Parser.NaryOpNode("AND", List.of(comparison)), new Parser.NumberNode(1)),
+                new Parser.BinaryOpNode("!=", new Parser.StringNode(null), new Parser.NullNode()),
+                new Parser.BinaryOpNode("==", null, new Parser.NumberNode(1.5)),
+                new Parser.NaryOpNode("OR", List.of()),
+                new Parser.StringNode(null),
+                new Parser.ValueNode("b"),
+                new Parser.NumberNode(1));
+
+        ConstantPool pool = new ConstantPool();
+        for (Parser.ASTNode ast : asts) {
+            assertSameAsInterpreter(ast, FlatAst.encode(ast, pool), documents);
+        }
+    }
+
+    @Test
+    public void sharedPool_storesEveryPathAndLiteralOnce() {
+        ConstantPool pool = new ConstantPool();
+        Parser.ASTNode firstAst = service.optimizeExpression(parse("a > 1 AND b == \"x\""));
+        Parser.ASTNode secondAst = service.optimizeExpression(parse("b == \"x\" OR a > 1.0 OR a > 1"));
+        FlatAst first = FlatAst.encode(firstAst, pool);
+        FlatAst second = FlatAst.encode(secondAst, pool);
+
+        // a, 1, b and "x", then 1.0, which is a different literal than 1
+        assertEquals(5, pool.size());
+        // AND and its right offset, then per comparison the operator, its right offset and two leaves
+        assertEquals(2 + 2 * 4, first.length());
+        assertEquals(firstAst.toString(), first.toString());
+        assertEquals(secondAst.toString(), second.toString());
+    }
+
+    @Test
+    public void createExpressionInFlatMode_returnsCreated() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some expression")
+                        .param("value", "customer.age > 25 AND customer.isBlocked")
+                        .param("mode", "FLAT"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.mode").value("FLAT"));
+    }
+
+    @Test
+    public void flatMode_evaluatesStoredExpressions() throws Exception {
+        String processedInput = service.preProcessInput(
+                "customer.age >= 18 AND (customer.tier == \"gold\" OR customer.vip)");
+        Parser.ASTNode ast = service.parseExpression(service.tokenizeExpression(processedInput));
+        LogicalExpression expr = service.save("flat", processedInput, ast, EvaluationMode.FLAT, null, null);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(expr.getId()))
+                        .content("{\"customer\": {\"age\": 30, \"tier\": \"basic\", \"vip\": true}}")
+                        .contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(true));
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(expr.getId()))
+                        .content("{\"customer\": {\"age\": 17, \"tier\": \"gold\"}}")
+                        .contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(false));
+        // customer.age, 18, customer.tier, "gold" and customer.vip
+        mockMvc.perform(MockMvcRequestBuilders.get("/cache/stats"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.flatConstants").value(greaterThanOrEqualTo(5)));
+    }
+
+    @Test
+    public void cachedFlatExpression_keepsNoAst() {
+        String processedInput = service.preProcessInput("order.amount > 250 AND order.currency == \"EUR\"");
+        Parser.ASTNode ast = service.optimizeExpression(service.parseExpression(service.tokenizeExpression(processedInput)));
+        LogicalExpression expr = service.save("flat", processedInput, ast, EvaluationMode.FLAT, null, null);
+        long internedAsts = astStore.internedAsts();
+
+        CompiledExpression compiled = expressionCache.get(expr.getId());
+
+        assertInstanceOf(FlatAst.class, compiled.getPredicate());
+        assertEquals(internedAsts, astStore.internedAsts());
+        // decoded on demand, equal to the stored AST but not held by the cache entry
+        assertArrayEquals(BinaryAstCodec.encode(ast), BinaryAstCodec.encode(compiled.getAst()));
+        assertNotSame(compiled.getAst(), compiled.getAst());
+        assertTrue(compiled.evaluate("{\"order\": {\"amount\": 300, \"currency\": \"EUR\"}}"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// a small cache evicts most FLAT expressions, a low threshold compacts the constant pool after a few of them
+@SpringBootTest(properties = {"expression.cache.maximum-size=8", "expression.flat.compaction-threshold=16"})
+@Transactional
+public class ExpressionControllerTestFlatConstants {
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long saveFlat(String expression) {
+        return service.save("flat", expression, service.parseExpression(service.tokenizeExpression(expression)),
+                EvaluationMode.FLAT, null, null).getId();
+    }
+
+    private int flatConstants() {
+        return ((Number) expressionCache.stats().get("flatConstants")).intValue();
+    }
+
+    @Test
+    public void evictedFlatExpressions_releaseTheirConstants() {
+        // a path and a literal of its own per expression, 600 constants in all
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ids.add(saveFlat("field" + i + " == " + (1000 + i)));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertTrue(expressionCache.get(ids.get(i)).evaluate("{\"field" + i + "\": " + (1000 + i) + "}"));
+        }
+        // at most 8 expressions in each of the two caches are left with two constants each, so at most 32 are used;
+        // the pool is compacted once it doubled and replaced if less than half of it is used
+        assertTrue(flatConstants() <= 4 * 32, "constants: " + flatConstants());
+        expressionCache.compactConstants();
+        assertTrue(flatConstants() < 2 * 32, "constants: " + flatConstants());
+
+        // cached expressions moved to the compacted pool still evaluate against their own constants
+        for (int i = ids.size() - 8; i < ids.size(); i++) {
+            assertTrue(expressionCache.get(ids.get(i)).evaluate("{\"field" + i + "\": " + (1000 + i) + "}"));
+            assertFalse(expressionCache.get(ids.get(i)).evaluate("{\"field" + i + "\": 1}"));
+        }
+    }
+}
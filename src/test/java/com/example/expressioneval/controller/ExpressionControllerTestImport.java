@@ -0,0 +1,104 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestImport {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void importJsonArray_reportsItemErrorsAndImportsTheRest() throws Exception {
+        String body = "[{\"name\": \"adult\", \"value\": \"customer.age >= 18\"},"
+                + "{\"name\": \"broken\", \"value\": \"customer.age >>= 18\"},"
+                + "{\"name\": \"no value\"},"
+                + "{\"name\": \"seattle\", \"value\": \"customer.address.city == \\\"Seattle\\\"\", \"mode\": \"COMPILED\"}]";
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content(body)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].index").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].message").value("name and value are required"))
+                .andReturn();
+
+        List<Integer> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.ids");
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(ids.get(1)))
+                        .content("{\"customer\": {\"address\": {\"city\": \"Seattle\"}}}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.expr").value("customer.address.city == \"Seattle\""));
+    }
+
+    @Test
+    public void importNdjson_importsAllChunks() throws Exception {
+        String body = IntStream.range(0, 1200)
+                .mapToObj(i -> "{\"name\": \"rule " + i + "\", \"value\": \"order.amount > " + i + "\", \"tags\": \"bulk\"}")
+                .collect(Collectors.joining("\n"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.ids", hasSize(1200)));
+
+        assertEquals(1200, repository.count());
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .param("mode", "COUNT")
+                        .param("tag", "bulk")
+                        .content("{\"order\": {\"amount\": 100}}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(100));
+    }
+
+    @Test
+    public void importMalformedBody_returnsBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content("[{\"name\": \"a\", \"value\": ")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
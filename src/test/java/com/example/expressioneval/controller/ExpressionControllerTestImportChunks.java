@@ -0,0 +1,122 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.repository.AstBlobRepository;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.RuleEvaluationService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// not transactional, every chunk of the import commits on its own like in production
+@SpringBootTest(properties = "expression.import.chunk-size=100")
+@AutoConfigureMockMvc
+public class ExpressionControllerTestImportChunks {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private AstBlobRepository blobRepository;
+
+    @Autowired
+    private RuleEvaluationService ruleEvaluationService;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        ruleEvaluationService.invalidate();
+    }
+
+    @Test
+    public void importWithInvalidItems_reportsThemAndCommitsEveryOtherItem() throws Exception {
+        String body = IntStream.range(0, 450)
+                .mapToObj(i -> switch (i) {
+                    case 150 -> "{\"name\": \"rule 150\", \"value\": \"order.amount > 150\", \"mode\": \"compiled\"}";
+                    case 310 -> "{\"name\": \"rule 310\", \"value\": \"order.amount > 310\", \"owner\": \"someone\"}";
+                    case 320 -> "42";
+                    default -> "{\"name\": \"rule " + i + "\", \"value\": \"order.amount > " + i + "\"}";
+                })
+                .collect(Collectors.joining("\n"));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(447))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index").value(150))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value(startsWith("Invalid item: ")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1].index").value(310))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[2].index").value(320))
+                .andReturn();
+
+        List<Integer> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.ids");
+        assertEquals(447, ids.size());
+        assertEquals(447, repository.count());
+    }
+
+    @Test
+    public void importWithMalformedLine_importsTheItemsBeforeItAndReportsWhereItStopped() throws Exception {
+        String body = IntStream.range(0, 400)
+                .mapToObj(i -> i == 250 ? "{\"name\": \"rule 250\", \"value\": " : "{\"name\": \"rule " + i
+                        + "\", \"value\": \"order.amount > " + i + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(250))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.complete").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index").value(250))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value(startsWith("Malformed import data: ")))
+                .andReturn();
+
+        List<Integer> ids = JsonPath.read(result.getResponse().getContentAsString(), "$.ids");
+        assertEquals(250, ids.size());
+        assertEquals(250, repository.count());
+    }
+
+    @Test
+    public void importWithFailingChunk_reportsItsItemsAndKeepsNoAstOfIt() throws Exception {
+        long blobs = blobRepository.count();
+        String longName = "x".repeat(300);
+        String body = IntStream.range(0, 300)
+                .mapToObj(i -> "{\"name\": \"" + (i == 150 ? longName : "rule " + i) + "\", \"value\": \"order.amount > "
+                        + (900000 + i) + "\"}")
+                .collect(Collectors.joining("\n"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(100))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.complete").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index").value(100))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[99].index").value(199))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value(startsWith("Could not store the item: ")));
+
+        // the ASTs of the failed chunk were rolled back with it
+        assertEquals(200, repository.count());
+        assertEquals(blobs + 200, blobRepository.count());
+    }
+}
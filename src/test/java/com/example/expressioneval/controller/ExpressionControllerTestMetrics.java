@@ -0,0 +1,113 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionMetrics;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@Transactional
+public class ExpressionControllerTestMetrics {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void saveAndEvaluate_recordsPhasesAndPerExpressionMetrics() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "adult")
+                        .param("value", "customer.age >= 18"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn();
+        Integer id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content("{\"customer\": {\"age\": 20}}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("expression_phase_seconds_count{phase=\"parse\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("expression_phase_seconds_bucket{phase=\"json.parse\"")))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        containsString("expression_evaluations_total{id=\"" + id + "\",result=\"true\"")));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/phases"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.tokenize.count").value(greaterThanOrEqualTo(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.persist.count").value(greaterThanOrEqualTo(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluate.p99Micros").isNumber());
+    }
+
+    @Test
+    public void errors_areCountedByExceptionType() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", "987654321")
+                        .content("{}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/expression.errors")
+                        .param("tag", "exception:ExpressionNotFoundException"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.measurements[0].value").value(greaterThanOrEqualTo(1.0)));
+    }
+
+    @Test
+    public void expressionIdTags_areBounded() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExpressionMetrics metrics = new ExpressionMetrics(registry, 2);
+        for (long id = 1; id <= 5; id++) {
+            metrics.recordEvaluation(id, id % 2 == 0, metrics.start());
+        }
+        metrics.recordEvaluation(1L, null, metrics.start());
+
+        Set<String> ids = registry.find("expression.evaluations").counters().stream()
+                .map(counter -> counter.getId().getTag("id"))
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("1", "2", "other"), ids);
+        assertEquals(3, registry.get("expression.evaluations").tag("id", "other").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+        assertEquals(1, registry.get("expression.evaluations").tag("id", "1").tag("result", "error").counter().count());
+        assertEquals(3, registry.get("expression.evaluation").tag("id", "other").timer().count());
+        assertEquals(3, registry.find("expression.evaluation").meters().stream().map(Meter::getId).count());
+    }
+}
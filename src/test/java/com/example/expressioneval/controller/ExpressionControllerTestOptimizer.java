@@ -0,0 +1,116 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.AstStore;
+import com.example.expressioneval.service.SerializationService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestOptimizer {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private SerializationService serializationService;
+
+    @Autowired
+    private AstStore astStore;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long createExpression(String value) throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some expression")
+                        .param("value", value))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.value").value(value))
+                .andReturn();
+        return Long.valueOf(JsonPath.read(result.getResponse().getContentAsString(), "$.id").toString());
+    }
+
+    // the stored AST, as JSON for readable assertions
+    private String storedAst(Long id) {
+        return serializationService.serialize(astStore.read(repository.findById(id).orElseThrow()));
+    }
+
+    private void evaluate(Long id, String json, boolean expected) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expected));
+    }
+
+    @Test
+    public void createExpressionWithLiteralComparison_storesFoldedConstant() throws Exception {
+        Long id = createExpression("5 == 5 AND null == null");
+
+        assertEquals("{\"type\":\"booleanNode\",\"value\":true}", storedAst(id));
+        evaluate(id, "{}", true);
+    }
+
+    @Test
+    public void createExpressionWithBooleanIdentities_dropsThem() throws Exception {
+        Long id = createExpression("true AND (customer.age > 25 OR false)");
+
+        assertEquals("{\"type\":\"binaryOp\",\"op\":\">\",\"left\":{\"type\":\"value\",\"value\":\"customer.age\"},"
+                + "\"right\":{\"type\":\"number\",\"value\":25}}", storedAst(id));
+        evaluate(id, "{\"customer\": {\"age\": 30}}", true);
+    }
+
+    @Test
+    public void createExpressionWithNestedChain_storesCanonicalNaryNode() throws Exception {
+        Long id = createExpression("(customer.tier == \"gold\" AND \"DE\" == customer.country) AND (customer.tier == \"gold\" AND customer.active == true)");
+
+        assertEquals("{\"type\":\"naryOp\",\"op\":\"AND\",\"operands\":["
+                + "{\"type\":\"binaryOp\",\"op\":\"==\",\"left\":{\"type\":\"value\",\"value\":\"customer.active\"},\"right\":{\"type\":\"booleanNode\",\"value\":true}},"
+                + "{\"type\":\"binaryOp\",\"op\":\"==\",\"left\":{\"type\":\"value\",\"value\":\"customer.country\"},\"right\":{\"type\":\"string\",\"value\":\"DE\"}},"
+                + "{\"type\":\"binaryOp\",\"op\":\"==\",\"left\":{\"type\":\"value\",\"value\":\"customer.tier\"},\"right\":{\"type\":\"string\",\"value\":\"gold\"}}]}",
+                storedAst(id));
+        evaluate(id, "{\"customer\": {\"tier\": \"gold\", \"country\": \"DE\", \"active\": true}}", true);
+        evaluate(id, "{\"customer\": {\"tier\": \"gold\", \"country\": \"FR\", \"active\": true}}", false);
+    }
+
+    @Test
+    public void createExpressionWithOperandThatCanFail_keepsEvaluationOrder() throws Exception {
+        Long id = createExpression("customer.age > 25 AND false");
+
+        // the comparison still raises its error on a missing field
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content("{}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Numeric value is null"));
+        evaluate(id, "{\"customer\": {\"age\": 30}}", false);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestParser {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    @Autowired
+    private Parser parser;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void performRequestAndAssertError(String value, String message, int position) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some invalid expression")
+                        .param("value", value))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value(message))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.position").value(position));
+    }
+
+    @Test
+    public void invalidExpressions_reportMessageAndPosition() throws Exception {
+        performRequestAndAssertError("customer.age > 25 AND", "Unexpected token type at index 4", 4);
+        performRequestAndAssertError("(customer.age > 25", "Expected token of type T_RPAREN but found null", 4);
+        performRequestAndAssertError("customer.age > 25)", "Unexpected token T_RPAREN at index 3", 3);
+        performRequestAndAssertError("customer.age customer.name", "Unexpected token T_VAR at index 1", 1);
+        performRequestAndAssertError("5 AND customer.active", "Invalid operand for AND at index 2", 2);
+        performRequestAndAssertError("customer.active OR 5", "Invalid operand for OR at index 3", 3);
+        performRequestAndAssertError("\"a\" == 1", "Incompatible types for comparison at index 3", 3);
+        performRequestAndAssertError("customer.age > 99999999999999999999", "Number out of range at index 3", 3);
+        performRequestAndAssertError("42", "Unexpected token type at index 1", 1);
+        performRequestAndAssertError("()", "Unexpected token type at index 1", 1);
+    }
+
+    @Test
+    public void parser_isASharedThreadSafeSingleton() throws Exception {
+        assertSame(parser, context.getBean(Parser.class));
+
+        String expression = "a == 1 AND (b.c != \"x\" OR d <= 2.5) OR e == null AND f == true";
+        String expected = parser.parse(tokenizer.scan(expression)).toString();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futures.add(executor.submit(() -> parser.parse(tokenizer.tokenize(expression)).toString()));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void deeplyNestedExpressions_parseWithoutRecursion() {
+        int depth = 20_000;
+        String parenthesized = "(".repeat(depth) + "a == 1" + ")".repeat(depth);
+        assertEquals("a == 1", parser.parse(tokenizer.scan(parenthesized)).toString());
+
+        // a == 1 AND (a == 1 AND (... AND a == 1))
+        String nested = "a == 1 AND (".repeat(depth) + "a == 1" + ")".repeat(depth);
+        Parser.ASTNode node = parser.parse(tokenizer.tokenize(nested));
+        int levels = 0;
+        while (node instanceof Parser.BinaryOpNode binaryNode && "AND".equals(binaryNode.getOp())) {
+            assertEquals("a == 1", binaryNode.getLeft().toString());
+            node = binaryNode.getRight();
+            levels++;
+        }
+        assertEquals(depth, levels);
+        assertInstanceOf(Parser.BinaryOpNode.class, node);
+    }
+}
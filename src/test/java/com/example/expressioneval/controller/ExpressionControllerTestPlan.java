@@ -0,0 +1,115 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.example.expressioneval.service.SerializationService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.contains;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestPlan {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private SerializationService serializationService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long saveExpression(String expression, EvaluationMode mode) {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode node = service.parseExpression(service.tokenizeExpression(processedInput));
+        LogicalExpression logicalExpression = service.save("some expression", processedInput, serializationService.serialize(node), mode);
+        return logicalExpression.getId();
+    }
+
+    private void evaluate(Long id, String json, boolean expected) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expected));
+    }
+
+    @Test
+    public void adaptivePlan_movesSelectiveOperandFirst() throws Exception {
+        Long id = saveExpression("customer.country == \"DE\" AND customer.tier == \"gold\"", EvaluationMode.ADAPTIVE);
+        for (int i = 0; i < 40; i++) {
+            evaluate(id, "{\"customer\": {\"country\": \"DE\", \"tier\": \"silver\"}}", false);
+        }
+        evaluate(id, "{\"customer\": {\"country\": \"DE\", \"tier\": \"gold\"}}", true);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/expression/plan")
+                        .param("id", String.valueOf(id)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluations").value(41))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.replans").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.plan.op").value("AND"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.plan.order", contains(1, 0)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.plan.operands[1].operand").value("customer.tier == \"gold\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.plan.operands[1].samples").value(41));
+    }
+
+    @Test
+    public void adaptivePlan_keepsOperandsThatCanFailInPlace() throws Exception {
+        Long id = saveExpression("customer.age > 30 AND customer.tier == \"gold\"", EvaluationMode.ADAPTIVE);
+        for (int i = 0; i < 40; i++) {
+            evaluate(id, "{\"customer\": {\"age\": 40, \"tier\": \"silver\"}}", false);
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/expression/plan")
+                        .param("id", String.valueOf(id)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.plan.order", contains(0, 1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.plan.operands[0].reorderable").value(false));
+
+        // the original order still decides which error is raised
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content("{\"customer\": {\"tier\": \"silver\"}}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Numeric value is null"));
+    }
+
+    @Test
+    public void planOfNonAdaptiveExpression_returnsBadRequest() throws Exception {
+        Long id = saveExpression("customer.age > 30", EvaluationMode.PREPARED);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/expression/plan")
+                        .param("id", String.valueOf(id)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+}
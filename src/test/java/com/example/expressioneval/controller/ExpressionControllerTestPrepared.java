@@ -0,0 +1,129 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Evaluator;
+import com.example.expressioneval.analysis.ExpressionPredicate;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.analysis.prepared.ExpressionPreparer;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class ExpressionControllerTestPrepared {
+
+    private static final String DOCUMENT = "{\"age\": 30, \"height\": 1.85, \"zero\": 0, \"name\": \"Ann\", "
+            + "\"count\": \"30\", \"active\": true, \"flag\": \"TRUE\", \"nothing\": null, \"nested\": {\"age\": 30}}";
+
+    private static final String[] OPERATORS = {"==", "!=", "<", "<=", ">", ">=", "AND", "OR", "~"};
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private Evaluator evaluator;
+
+    @Autowired
+    private ExpressionPreparer preparer;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static String outcome(Supplier<Boolean> evaluation) {
+        try {
+            return String.valueOf(evaluation.get());
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage()
+                    + (e.getCause() != null ? " / " + e.getCause().getMessage() : "");
+        }
+    }
+
+    // paths to numbers, decimals, numeric and other strings, booleans, null and missing fields, and every literal type
+    private static List<Supplier<Parser.ASTNode>> operands() {
+        List<Supplier<Parser.ASTNode>> operands = new ArrayList<>();
+        for (String path : new String[]{"age", "height", "zero", "name", "count", "active", "flag", "nothing", "missing",
+                "nested.age", "nested.missing"}) {
+            operands.add(() -> new Parser.ValueNode(path));
+        }
+        operands.add(() -> new Parser.NumberNode(30));
+        operands.add(() -> new Parser.NumberNode(2));
+        operands.add(() -> new Parser.StringNode("30"));
+        operands.add(() -> new Parser.StringNode("Ann"));
+        operands.add(() -> new Parser.StringNode("true"));
+        operands.add(Parser.NullNode::new);
+        operands.add(() -> new Parser.BooleanNode(true));
+        operands.add(() -> new Parser.BooleanNode(false));
+        return operands;
+    }
+
+    @Test
+    public void operatorAndTypeMatrix_matchesTheInterpreter() {
+        JsonNode root = evaluator.readDocument(DOCUMENT);
+        List<Supplier<Parser.ASTNode>> operands = operands();
+        int compared = 0;
+        for (String op : OPERATORS) {
+            for (Supplier<Parser.ASTNode> left : operands) {
+                for (Supplier<Parser.ASTNode> right : operands) {
+                    Parser.ASTNode ast = new Parser.BinaryOpNode(op, left.get(), right.get());
+                    ExpressionPredicate prepared = preparer.prepare(ast);
+                    assertEquals(outcome(() -> evaluator.evaluate(ast, root)), outcome(() -> prepared.test(root)),
+                            op + " " + ast);
+                    compared++;
+                }
+            }
+        }
+        // stand-alone operands and comparisons with a comparison as operand
+        Parser.ASTNode comparison = new Parser.BinaryOpNode(">", new Parser.ValueNode("age"), new Parser.NumberNode(2));
+        List<Parser.ASTNode> others = new ArrayList<>();
+        operands.forEach(operand -> others.add(operand.get()));
+        others.add(new Parser.BinaryOpNode("==", comparison, new Parser.BooleanNode(true)));
+        others.add(new Parser.BinaryOpNode("<", new Parser.NumberNode(1), comparison));
+        for (Parser.ASTNode ast : others) {
+            ExpressionPredicate prepared = preparer.prepare(ast);
+            assertEquals(outcome(() -> evaluator.evaluate(ast, root)), outcome(() -> prepared.test(root)), ast.toString());
+            compared++;
+        }
+        assertEquals(OPERATORS.length * operands.size() * operands.size() + others.size(), compared);
+    }
+
+    @Test
+    public void pathsAndLiterals_areResolvedWhenPrepared() {
+        JsonNode root = evaluator.readDocument(DOCUMENT);
+        Parser.ValueNode path = new Parser.ValueNode("nested.age");
+        Parser.NumberNode number = new Parser.NumberNode(18);
+        Parser.StringNode string = new Parser.StringNode("Ann");
+        Parser.ASTNode ast = new Parser.BinaryOpNode("AND",
+                new Parser.BinaryOpNode(">=", path, number),
+                new Parser.BinaryOpNode("==", new Parser.ValueNode("name"), string));
+        ExpressionPredicate prepared = preparer.prepare(ast);
+        assertTrue(prepared.test(root));
+
+        // the prepared tree holds its own pointer and converted literals, later changes to the AST do not reach it
+        path.setValue("zero");
+        number.setValue(99);
+        string.setValue("Bob");
+        assertFalse(evaluator.evaluate(ast, root));
+        assertTrue(prepared.test(root));
+        assertFalse(prepared.test(evaluator.readDocument("{\"nested\": {\"age\": 17}, \"name\": \"Ann\"}")));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.example.expressioneval.service.SerializationService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.contains;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestRules {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private SerializationService serializationService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long saveRule(String expression, String tags, Integer priority) {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode node = service.parseExpression(service.tokenizeExpression(processedInput));
+        LogicalExpression logicalExpression = service.save("some rule", processedInput, serializationService.serialize(node),
+                EvaluationMode.PREPARED, tags, priority);
+        return logicalExpression.getId();
+    }
+
+    private static final String EVENT = "{\"customer\": {\"age\": 30, \"country\": \"DE\"}, \"order\": {\"amount\": 120}}";
+
+    @Test
+    public void evaluateRulesAll_returnsMatchingIdsByPriority() throws Exception {
+        Long low = saveRule("customer.age > 25", null, null);
+        Long high = saveRule("order.amount >= 100 AND customer.country == \"DE\"", null, 10);
+        saveRule("customer.age > 40", null, 5);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches", contains(high.intValue(), low.intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluated").value(3));
+    }
+
+    @Test
+    public void evaluateRulesFirst_stopsAtHighestPriorityMatch() throws Exception {
+        saveRule("customer.age > 25", null, 1);
+        Long first = saveRule("order.amount > 100", null, 7);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .param("mode", "FIRST")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches", contains(first.intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluated").value(1));
+    }
+
+    @Test
+    public void evaluateRulesCountWithTag_onlyEvaluatesTaggedRules() throws Exception {
+        saveRule("customer.age > 25", "fraud, kyc", null);
+        saveRule("order.amount > 100", "billing", null);
+        saveRule("customer.country == \"FR\"", "kyc", null);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .param("mode", "COUNT")
+                        .param("tag", "kyc")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluated").value(2));
+    }
+
+    @Test
+    public void evaluateRulesWithFailingRule_reportsErrorAndContinues() throws Exception {
+        Long failing = saveRule("customer.score > 10", null, 1);
+        Long matching = saveRule("customer.age == 30", null, null);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches", contains(matching.intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors", aMapWithSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors." + failing).value("Numeric value is null"));
+    }
+
+    @Test
+    public void evaluateRulesWithSharedComparisons_evaluatesEachPredicateOnce() throws Exception {
+        saveRule("customer.country == \"DE\" AND order.amount > 100", null, null);
+        saveRule("\"DE\" == customer.country OR customer.age < 18", null, null);
+        saveRule("100 < order.amount AND customer.age >= 30", null, null);
+        saveRule("customer.country == \"DE\"", null, null);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.predicates").value(3));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/rules/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rules").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.predicates").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.references").value(7));
+    }
+
+    @Test
+    public void evaluateRulesAfterSave_includesNewRule() throws Exception {
+        Long first = saveRule("customer.age > 25", null, null);
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches", contains(first.intValue())));
+
+        Long second = saveRule("customer.age > 25 AND order.amount == 120", null, 3);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches", contains(second.intValue(), first.intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.predicates").value(2));
+    }
+
+    @Test
+    public void evaluateRulesWithTagAfterSaves_includesNewTaggedRules() throws Exception {
+        Long kyc = saveRule("customer.age > 25", "kyc", null);
+        saveRule("order.amount > 100", "billing", null);
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .param("tag", "kyc")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches", contains(kyc.intValue())));
+
+        // several saves between two evaluations, the tagged selection picks up the new rule and its new path
+        Long country = saveRule("customer.country == \"DE\"", "kyc, billing", 2);
+        saveRule("order.amount < 100", "billing", null);
+        Long amount = saveRule("order.amount == 120", "kyc", 1);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .param("tag", "kyc")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.matches",
+                        contains(country.intValue(), amount.intValue(), kyc.intValue())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluated").value(3));
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/rules")
+                        .param("mode", "COUNT")
+                        .content(EVENT)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.evaluated").value(5));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.AstBlobRepository;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.AstStorageMigration;
+import com.example.expressioneval.service.AstStore;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.example.expressioneval.service.SerializationService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestStorage {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private SerializationService serializationService;
+
+    @Autowired
+    private AstStorageMigration astStorageMigration;
+
+    @Autowired
+    private AstStore astStore;
+
+    @Autowired
+    private AstBlobRepository astBlobRepository;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Parser.ASTNode parse(String expression) {
+        String processedInput = service.preProcessInput(expression);
+        return service.parseExpression(service.tokenizeExpression(processedInput));
+    }
+
+    // a row as it was stored before the binary format
+    private Long saveLegacyExpression(String expression) {
+        LogicalExpression logicalExpression = new LogicalExpression();
+        logicalExpression.setName("some expression");
+        logicalExpression.setExpressionValue(expression);
+        logicalExpression.setAstJson(serializationService.serialize(parse(expression)));
+        logicalExpression.setEvaluationMode(EvaluationMode.PREPARED);
+        return repository.save(logicalExpression).getId();
+    }
+
+    // a row as it was stored before ASTs were shared
+    private Long saveLegacyBinaryExpression(String expression) {
+        LogicalExpression logicalExpression = new LogicalExpression();
+        logicalExpression.setName("some expression");
+        logicalExpression.setExpressionValue(expression);
+        logicalExpression.setAstBinary(serializationService.encode(parse(expression)));
+        logicalExpression.setEvaluationMode(EvaluationMode.PREPARED);
+        return repository.save(logicalExpression).getId();
+    }
+
+    private Long createExpression(String value, EvaluationMode mode) throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some expression")
+                        .param("value", value)
+                        .param("mode", mode.name()))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn();
+        return Long.valueOf(JsonPath.read(result.getResponse().getContentAsString(), "$.id").toString());
+    }
+
+    private void evaluate(Long id, String json, boolean expected) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content(json)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(expected));
+    }
+
+    @Test
+    public void binaryEncoding_roundTripsAndIsSmallerThanJson() {
+        Parser.ASTNode node = service.optimizeExpression(parse("(customer.age >= 18 AND customer.age < 65.5) "
+                + "OR (customer.address.city == \"Seattle\" AND customer.address.city != null AND customer.score > 12000000000)"));
+
+        String json = serializationService.serialize(node);
+        byte[] binary = serializationService.encode(node);
+
+        assertEquals(json, serializationService.serialize(serializationService.decode(binary)));
+        assertArrayEquals(binary, serializationService.encode(serializationService.decode(binary)));
+        assertTrue(binary.length * 4 < json.length(), binary.length + " bytes vs " + json.length() + " characters");
+    }
+
+    @Test
+    public void createExpression_storesSharedAst() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some expression")
+                        .param("value", "customer.age > 25"))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+
+        LogicalExpression stored = repository.findAll().iterator().next();
+        assertNull(stored.getAstJson());
+        assertNull(stored.getAstBinary());
+        assertTrue(astBlobRepository.existsById(stored.getAstHash()));
+        assertEquals("customer.age > 25", astStore.read(stored).toString());
+    }
+
+    @Test
+    public void equivalentExpressions_shareOneStoredAstAndCompiledForm() throws Exception {
+        long blobs = astBlobRepository.count();
+        Long first = createExpression("customer.age > 25 AND customer.tier == \"gold\"", EvaluationMode.PREPARED);
+        Long second = createExpression("(customer.age>25) && customer.tier == \"gold\"", EvaluationMode.PREPARED);
+        Long compiled = createExpression("customer.age > 25 AND customer.tier == \"gold\"", EvaluationMode.COMPILED);
+        Long adaptive = createExpression("customer.age > 25 AND customer.tier == \"gold\"", EvaluationMode.ADAPTIVE);
+        Long otherAdaptive = createExpression("customer.age > 25 AND customer.tier == \"gold\"", EvaluationMode.ADAPTIVE);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(blobs + 1, astBlobRepository.count());
+        assertEquals(1, Stream.of(first, second, compiled, adaptive, otherAdaptive)
+                .map(id -> repository.findById(id).orElseThrow().getAstHash())
+                .distinct().count());
+
+        CompiledExpression firstForm = expressionCache.get(first);
+        CompiledExpression secondForm = expressionCache.get(second);
+        assertEquals(first, firstForm.getId());
+        assertEquals(second, secondForm.getId());
+        assertEquals("(customer.age>25) AND customer.tier == \"gold\"", secondForm.getExpressionValue());
+        assertSame(firstForm.getPredicate(), secondForm.getPredicate());
+        assertSame(firstForm.getAst(), secondForm.getAst());
+        assertSame(firstForm.getAst(), expressionCache.get(compiled).getAst());
+        assertNotSame(firstForm.getPredicate(), expressionCache.get(compiled).getPredicate());
+        // adaptive plans keep per-expression statistics
+        assertNotSame(expressionCache.get(adaptive).getPredicate(), expressionCache.get(otherAdaptive).getPredicate());
+
+        evaluate(first, "{\"customer\": {\"age\": 30, \"tier\": \"gold\"}}", true);
+        evaluate(second, "{\"customer\": {\"age\": 20, \"tier\": \"gold\"}}", false);
+    }
+
+    @Test
+    public void importedDuplicates_storeOneAst() throws Exception {
+        long blobs = astBlobRepository.count();
+        String body = "{\"name\": \"a\", \"value\": \"order.total >= 100\"}\n"
+                + "{\"name\": \"b\", \"value\": \"order.total>=100\"}\n"
+                + "{\"name\": \"c\", \"value\": \"((order.total >= 100))\", \"mode\": \"COMPILED\"}\n";
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression/import")
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(3));
+
+        assertEquals(blobs + 1, astBlobRepository.count());
+    }
+
+    @Test
+    public void legacyJsonRow_isEvaluatedAndMigrated() throws Exception {
+        Long id = saveLegacyExpression("customer.age > 25 AND customer.address.city == \"Seattle\"");
+        evaluate(id, "{\"customer\": {\"age\": 30, \"address\": {\"city\": \"Seattle\"}}}", true);
+
+        assertEquals(1, astStorageMigration.migrate());
+        assertEquals(0, astStorageMigration.migrate());
+        entityManager.flush();
+        entityManager.clear();
+
+        LogicalExpression migrated = repository.findById(id).orElseThrow();
+        assertNull(migrated.getAstJson());
+        assertNull(migrated.getAstBinary());
+        assertEquals("customer.age > 25 AND customer.address.city == \"Seattle\"", astStore.read(migrated).toString());
+        evaluate(id, "{\"customer\": {\"age\": 20, \"address\": {\"city\": \"Seattle\"}}}", false);
+    }
+
+    @Test
+    public void legacyBinaryRows_areMigratedToOneSharedAst() throws Exception {
+        long blobs = astBlobRepository.count();
+        Long first = saveLegacyBinaryExpression("order.total >= 100 OR customer.vip == true");
+        Long second = saveLegacyBinaryExpression("order.total >= 100 || customer.vip == true");
+        evaluate(first, "{\"order\": {\"total\": 150}}", true);
+
+        assertEquals(2, astStorageMigration.migrate());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(blobs + 1, astBlobRepository.count());
+        LogicalExpression migrated = repository.findById(second).orElseThrow();
+        assertNull(migrated.getAstBinary());
+        assertEquals(repository.findById(first).orElseThrow().getAstHash(), migrated.getAstHash());
+        evaluate(second, "{\"order\": {\"total\": 50}, \"customer\": {\"vip\": true}}", true);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.ExpressionMetrics;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.example.expressioneval.service.StreamEvaluationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestStream {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long saveExpression(String expression, EvaluationMode mode) {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode ast = service.parseExpression(service.tokenizeExpression(processedInput));
+        return service.save("some expression", processedInput, ast, mode, null, null).getId();
+    }
+
+    @Test
+    public void evaluateStream_returnsResultsPerEventForEveryExpression() throws Exception {
+        Long adult = saveExpression("customer.age >= 18", EvaluationMode.PREPARED);
+        Long rich = saveExpression("customer.balance > 1000", EvaluationMode.COMPILED);
+        Long named = saveExpression("customer.name == \"Ann\"", EvaluationMode.STREAMING);
+        String body = "{\"customer\": {\"age\": 30, \"balance\": 5000, \"name\": \"Ann\"}}\n"
+                + "\n"
+                + "{\"customer\": {\"age\": 12, \"name\": \"Bob\"}}\n"
+                + "{\"customer\": {\"name\": \"Ann\"}, oops}\n";
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/stream")
+                        .param("id", String.valueOf(adult), String.valueOf(rich), String.valueOf(named), String.valueOf(adult))
+                        .content(body)
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "{\"line\":1,\"results\":{\"" + adult + "\":true,\"" + rich + "\":true,\"" + named + "\":true}}\n"
+                                + "{\"line\":3,\"results\":{\"" + adult + "\":false,\"" + named + "\":false},"
+                                + "\"errors\":{\"" + rich + "\":\"Numeric value is null\"}}\n"
+                                // the selective reader stops once the name has been read
+                                + "{\"line\":4,\"results\":{\"" + named + "\":true},"
+                                + "\"errors\":{\"" + adult + "\":\"Failed to parse JSON\",\"" + rich + "\":\"Failed to parse JSON\"}}\n"
+                                + "{\"events\":3,\"errors\":2}\n"));
+    }
+
+    @Test
+    public void evaluateStream_writesServerSentEventsWhenAccepted() throws Exception {
+        Long id = saveExpression("order.amount >= 500", EvaluationMode.PREPARED);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/stream")
+                        .param("id", String.valueOf(id))
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content("{\"order\": {\"amount\": 700}}\n{\"order\": {\"amount\": 70}}")
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("text/event-stream;charset=UTF-8"))
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "no-cache"))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "event: result\nid: 1\ndata: {\"line\":1,\"results\":{\"" + id + "\":true}}\n\n"
+                                + "event: result\nid: 2\ndata: {\"line\":2,\"results\":{\"" + id + "\":false}}\n\n"
+                                + "event: end\ndata: {\"events\":2,\"errors\":0}\n\n"));
+    }
+
+    @Test
+    public void evaluateStream_unknownIdFailsBeforeStreaming() throws Exception {
+        Long id = saveExpression("order.amount >= 500", EvaluationMode.PREPARED);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate/stream")
+                        .param("id", String.valueOf(id), "987654321")
+                        .content("{}\n")
+                        .contentType("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void evaluateStream_flushesBeforeWaitingForTheNextEventAndSkipsOversizedEvents() throws Exception {
+        CompiledExpression expression = expressionCache.get(saveExpression("a > 1", EvaluationMode.PREPARED));
+        StreamEvaluationService streamService = new StreamEvaluationService(new ExpressionMetrics(new SimpleMeterRegistry(), 10), 16);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        OutputStream client = new OutputStream() {
+            private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+            @Override
+            public void write(int b) {
+                pending.write(b);
+            }
+
+            @Override
+            public void flush() {
+                received.writeBytes(pending.toByteArray());
+                pending.reset();
+            }
+        };
+        // every part is only handed out once the previous results have been flushed to the client
+        List<String> parts = List.of("{\"a\": 2}\n", "{\"a\": 1, \"padding\": \"xxxxxxxx\"}\n", "{\"a\": 0}\n");
+        List<String> seenBeforeRead = new ArrayList<>();
+        Iterator<String> remaining = parts.iterator();
+        InputStream producer = new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return remaining.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                seenBeforeRead.add(received.toString(StandardCharsets.UTF_8));
+                return new ByteArrayInputStream(remaining.next().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        streamService.evaluate(List.of(expression), producer, client, StreamEvaluationService.Format.NDJSON);
+
+        String first = "{\"line\":1,\"results\":{\"" + expression.getId() + "\":true}}\n";
+        String second = "{\"line\":2,\"error\":\"Event exceeds the maximum size of 16 characters\"}\n";
+        String third = "{\"line\":3,\"results\":{\"" + expression.getId() + "\":false}}\n";
+        assertEquals(List.of("", first, first + second), seenBeforeRead);
+        assertEquals(first + second + third + "{\"events\":3,\"errors\":1}\n", received.toString(StandardCharsets.UTF_8));
+    }
+}
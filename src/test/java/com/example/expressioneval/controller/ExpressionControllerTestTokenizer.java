@@ -0,0 +1,129 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.analysis.Tokenizer;
+import com.example.expressioneval.exception.exceptions.TokenizerException;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.LogicalExpressionService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestTokenizer {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private Tokenizer tokenizer;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void assertTokens(String input, String expected) {
+        assertEquals(expected, tokenizer.tokenize(input).toString());
+    }
+
+    private void assertTokenizerError(String input, int position) {
+        TokenizerException e = assertThrows(TokenizerException.class, () -> tokenizer.tokenize(input));
+        assertEquals("Unexpected character sequence in input starting at position: " + position, e.getMessage());
+    }
+
+    @Test
+    public void keywords_areWholeWords() {
+        assertTokens("a AND b OR c", "[(T_VAR, a), (T_AND, AND), (T_VAR, b), (T_OR, OR), (T_VAR, c)]");
+        assertTokens("ANDD == true_x", "[(T_VAR, ANDD), (T_EQ, ==), (T_VAR, true_x)]");
+        assertTokens("a.b.c != null", "[(T_VAR, a.b.c), (T_NEQ, !=), (T_NULL, null)]");
+    }
+
+    @Test
+    public void inlineOperators_areReadWithoutSpaces() throws Exception {
+        assertTokens("a==1&&b.c!=\"x\"||d",
+                "[(T_VAR, a), (T_EQ, ==), (T_NUM, 1), (T_AND, &&), (T_VAR, b.c), (T_NEQ, !=), (T_STRING, x), (T_OR, ||), (T_VAR, d)]");
+        assertTokens("(a<1)&&(b>=2)", "[(T_LPAREN, (), (T_VAR, a), (T_LT, <), (T_NUM, 1), (T_RPAREN, )), (T_AND, &&), "
+                + "(T_LPAREN, (), (T_VAR, b), (T_GEQ, >=), (T_NUM, 2), (T_RPAREN, ))]");
+
+        // rewritten to keywords that do not run into their neighbours, string literals are left alone
+        assertEquals("a==1 AND b==\"x&&y\"OR c", service.preProcessInput("a==1&&b==\"x&&y\"||c"));
+        assertEquals("(a)AND(b)", service.preProcessInput("(a)&&(b)"));
+        assertEquals("a == 1 AND b", service.preProcessInput("a == 1 AND b"));
+
+        String created = mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "inline operators")
+                        .param("value", "customer.age>25&&customer.name==\"a||b\""))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.value").value("customer.age>25 AND customer.name==\"a||b\""))
+                .andReturn().getResponse().getContentAsString();
+        Number id = JsonPath.read(created, "$.id");
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(id))
+                        .content("{\"customer\": {\"age\": 30, \"name\": \"a||b\"}}")
+                        .contentType("application/json"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(true));
+    }
+
+    @Test
+    public void decimals_nextToOperators() {
+        assertTokens("x>=1.5&&y<2.25", "[(T_VAR, x), (T_GEQ, >=), (T_NUM, 1.5), (T_AND, &&), (T_VAR, y), (T_LT, <), (T_NUM, 2.25)]");
+        assertTokens("(x==10.0)||y!=0.5", "[(T_LPAREN, (), (T_VAR, x), (T_EQ, ==), (T_NUM, 10.0), (T_RPAREN, )), (T_OR, ||), "
+                + "(T_VAR, y), (T_NEQ, !=), (T_NUM, 0.5)]");
+        // a keyword right after a number is still a keyword, a dot without digits is not part of the number
+        assertTokens("x>1.5AND y", "[(T_VAR, x), (T_GT, >), (T_NUM, 1.5), (T_AND, AND), (T_VAR, y)]");
+        assertTokenizerError("x > 1.)", 5);
+        assertTokenizerError("x > .5", 4);
+        assertTokenizerError("x > 1.5.5", 7);
+    }
+
+    @Test
+    public void negativeNumbers_areRejectedAtTheMinusSign() throws Exception {
+        assertTokenizerError("x>-1", 2);
+        assertTokenizerError("x >= -1.5", 5);
+        assertTokenizerError("(x<1)&&y==-2", 10);
+        mockMvc.perform(MockMvcRequestBuilders.post("/expression")
+                        .param("name", "some invalid expression")
+                        .param("value", "customer.age > -1"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message")
+                        .value("Unexpected character sequence in input starting at position: 15"));
+    }
+
+    @Test
+    public void tokenizerErrors_reportTheOffsetOfTheCharacter() {
+        assertTokenizerError("# a", 0);
+        assertTokenizerError("a == 1 # b", 7);
+        assertTokenizerError("a = 1", 2);
+        assertTokenizerError("a == 1 & b", 7);
+        assertTokenizerError("a == 1 | b", 7);
+        assertTokenizerError("!a", 0);
+        assertTokenizerError("a == \"unterminated", 5);
+        assertTokenizerError("a == \"x\" AND b == ü", 18);
+        assertTokenizerError("a\t==\n1 @", 7);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.VirtualThreadConfiguration;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.exception.exceptions.ExpressionNotFoundException;
+import com.example.expressioneval.model.CompiledExpression;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+public class ExpressionControllerTestVirtualThreads {
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void virtualThreadExecutor_needsJava21() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThrows(IllegalStateException.class, () -> VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor("test-"));
+            return;
+        }
+        ExecutorService executor = VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor("test-");
+        try {
+            String name = executor.submit(() -> Thread.currentThread().toString()).get();
+            assertTrue(name.startsWith("VirtualThread[#") && name.contains("test-0"), name);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void cacheMiss_isLoadedOnceAndShared() {
+        String processedInput = service.preProcessInput("customer.age > 25");
+        Parser.ASTNode ast = service.parseExpression(service.tokenizeExpression(processedInput));
+        Long id = service.save("adult", processedInput, ast, EvaluationMode.PREPARED, null, null).getId();
+        long misses = (long) expressionCache.stats().get("misses");
+
+        CompiledExpression first = expressionCache.get(id);
+        assertSame(first, expressionCache.get(id));
+        assertEquals(misses + 1, expressionCache.stats().get("misses"));
+    }
+
+    @Test
+    public void failedLoad_isNotCached() throws Exception {
+        long size = (long) expressionCache.stats().get("size");
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<CompiledExpression>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return expressionCache.get(987654321L);
+                }));
+            }
+            start.countDown();
+            for (Future<CompiledExpression> future : futures) {
+                ExecutionException e = assertThrows(ExecutionException.class, future::get);
+                assertInstanceOf(ExpressionNotFoundException.class, e.getCause());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThrows(ExpressionNotFoundException.class, () -> expressionCache.get(987654321L));
+        assertEquals(size, expressionCache.stats().get("size"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.expressioneval.controller;
+
+import com.example.expressioneval.ExpressionWarmUp;
+import com.example.expressioneval.analysis.Parser;
+import com.example.expressioneval.model.EvaluationMode;
+import com.example.expressioneval.model.LogicalExpression;
+import com.example.expressioneval.repository.LogicalExpressionRepository;
+import com.example.expressioneval.service.ExpressionCache;
+import com.example.expressioneval.service.LogicalExpressionService;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ExpressionControllerTestWarmUp {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LogicalExpressionRepository repository;
+
+    @Autowired
+    private LogicalExpressionService service;
+
+    @Autowired
+    private ExpressionCache expressionCache;
+
+    @Autowired
+    private ExpressionWarmUp expressionWarmUp;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @AfterEach
+    public void clearDatabase() {
+        repository.deleteAll();
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private LogicalExpression save(String name, String expression, EvaluationMode mode) {
+        String processedInput = service.preProcessInput(expression);
+        Parser.ASTNode ast = service.parseExpression(service.tokenizeExpression(processedInput));
+        return service.save(name, processedInput, ast, mode, null, null);
+    }
+
+    @Test
+    public void warmUp_compilesStoredExpressionsIntoTheCache() throws Exception {
+        LogicalExpression adult = save("adult", "customer.age >= 18 AND customer.active == true", EvaluationMode.COMPILED);
+        save("seattle", "customer.address.city == \"Seattle\" OR 100 < order.total", EvaluationMode.PREPARED);
+        save("adaptive", "customer.age > 30 AND customer.name != \"x\"", EvaluationMode.ADAPTIVE);
+
+        LogicalExpression broken = new LogicalExpression();
+        broken.setName("broken");
+        broken.setExpressionValue("customer.age > 1");
+        broken.setAstBinary(new byte[]{(byte) 0x7F});
+        repository.save(broken);
+
+        Map<String, Object> stats = expressionWarmUp.warmUp();
+        assertEquals(ExpressionWarmUp.State.COMPLETED, stats.get("state"));
+        assertEquals(3L, stats.get("expressions"));
+        assertEquals(1L, stats.get("failed"));
+        // the adaptive expression is compiled, but not evaluated
+        assertEquals(40L, stats.get("evaluations"));
+
+        long hits = (Long) expressionCache.stats().get("hits");
+        mockMvc.perform(MockMvcRequestBuilders.post("/evaluate")
+                        .param("id", String.valueOf(adult.getId()))
+                        .content("{\"customer\": {\"age\": 20, \"active\": true}}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.result").value(true));
+        assertEquals(hits + 1, expressionCache.stats().get("hits"));
+    }
+
+    @Test
+    public void warmUpEndpoint_reportsTimings() throws Exception {
+        save("adult", "customer.age >= 18", EvaluationMode.PREPARED);
+        expressionWarmUp.warmUp();
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/warmup"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.state").value("COMPLETED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.expressions").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.totalMillis").isNumber());
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/expression.warmup").param("tag", "phase:total"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    @Test
+    public void readinessProbe_isUpOnceTheApplicationIsReady() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/health/readiness"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value("UP"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.expressioneval.controller;
+
+import java.util.Random;
+
+/**
+ * Random conditions and documents over the same few fields, for comparing an evaluation engine with the
+ * interpreter. Conditions mix every comparison, stand-alone fields and booleans, and are not always valid; documents
+ * leave fields out and hold every value type, including a {@code c} that is not an object.
+ */
+final class RandomExpressions {
+
+    private static final String[] FIELDS = {"a", "b", "c.d", "e"};
+
+    private static final String[] VALUES = {"1", "2", "-3", "2.0", "0.5", "\"2\"", "\"x\"", "\"true\"", "true",
+            "false", "null", "[1]", "{\"d\": 2}", "12345678901234567890"};
+
+    private RandomExpressions() {
+    }
+
+    static String condition(Random random, int depth) {
+        int choice = random.nextInt(depth > 0 ? 10 : 6);
+        if (choice < 4) {
+            String[] ops = {"==", "!=", "<", "<=", ">", ">="};
+            String left = operand(random);
+            String right = operand(random);
+            return left + " " + ops[random.nextInt(ops.length)] + " " + right;
+        }
+        if (choice == 4) {
+            return FIELDS[random.nextInt(FIELDS.length)];
+        }
+        if (choice == 5) {
+            return random.nextBoolean() ? "true" : "false";
+        }
+        String op = random.nextBoolean() ? " AND " : " OR ";
+        int operands = 2 + random.nextInt(2);
+        StringBuilder condition = new StringBuilder("(");
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) {
+                condition.append(op);
+            }
+            condition.append(condition(random, depth - 1));
+        }
+        return condition.append(')').toString();
+    }
+
+    private static String operand(Random random) {
+        return switch (random.nextInt(9)) {
+            case 0, 1, 2, 3 -> FIELDS[random.nextInt(FIELDS.length)];
+            case 4 -> String.valueOf(random.nextInt(4));
+            case 5 -> random.nextInt(3) + ".5";
+            case 6 -> random.nextBoolean() ? "\"2\"" : "\"x\"";
+            case 7 -> random.nextBoolean() ? "true" : "false";
+            default -> "null";
+        };
+    }
+
+    static String document(Random random) {
+        StringBuilder document = new StringBuilder("{");
+        boolean first = true;
+        for (String field : new String[]{"a", "b", "e"}) {
+            if (random.nextInt(5) == 0) {
+                continue;
+            }
+            document.append(first ? "" : ", ").append('"').append(field).append("\": ")
+                    .append(VALUES[random.nextInt(VALUES.length)]);
+            first = false;
+        }
+        if (random.nextInt(4) != 0) {
+            document.append(first ? "" : ", ").append("\"c\": ")
+                    .append(random.nextBoolean() ? "{\"d\": " + VALUES[random.nextInt(VALUES.length)] + "}" : VALUES[random.nextInt(VALUES.length)]);
+        }
+        return document.append('}').toString();
+    }
+}
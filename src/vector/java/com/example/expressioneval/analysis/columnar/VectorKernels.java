@@ -0,0 +1,130 @@
+package com.example.expressioneval.analysis.columnar;
+
+import com.example.expressioneval.analysis.Operator;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the incubating Vector API, only compiled with the {@code vector} profile and only used when the JVM
+ * runs with {@code --add-modules jdk.incubator.vector}, see {@link Kernels#get()}.
+ * <p>
+ * Each step compares one vector of the preferred species with the constant and ORs the lane mask into the bitmap.
+ * The lane count is a power of two of at most 64, so the lanes of one step always fall into a single bitmap word.
+ * Rows after the last full vector are compared one by one.
+ */
+final class VectorKernels extends Kernels {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    private static final LongVector ZERO = LongVector.zero(LONGS);
+
+    // lane n holds 1 << n
+    private static final LongVector LANE_BITS = LongVector.broadcast(LONGS, 1L)
+            .lanewise(VectorOperators.LSHL, ZERO.addIndex(1));
+
+    @Override
+    public String name() {
+        return "vector-" + DOUBLES.vectorBitSize();
+    }
+
+    @Override
+    void compare(long[] values, int size, Operator op, long constant, long[] out) {
+        LongVector broadcast = LongVector.broadcast(LONGS, constant);
+        int bound = LONGS.loopBound(size);
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            out[i >>> 6] |= bits(compare(LongVector.fromArray(LONGS, values, i), op, broadcast)) << i;
+        }
+        for (; i < size; i++) {
+            out[i >>> 6] |= (test(op, Long.compare(values[i], constant)) ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    void compare(double[] values, int size, Operator op, double constant, long[] out) {
+        DoubleVector broadcast = DoubleVector.broadcast(DOUBLES, constant);
+        int bound = DOUBLES.loopBound(size);
+        int i = 0;
+        for (; i < bound; i += DOUBLES.length()) {
+            out[i >>> 6] |= bits(compare(DoubleVector.fromArray(DOUBLES, values, i), op, broadcast).cast(LONGS)) << i;
+        }
+        for (; i < size; i++) {
+            out[i >>> 6] |= (test(op, values[i], constant) ? 1L : 0L) << i;
+        }
+    }
+
+    @Override
+    void compareAsDouble(long[] values, int size, Operator op, double constant, long[] out) {
+        DoubleVector broadcast = DoubleVector.broadcast(DOUBLES, constant);
+        // longs and doubles have the same lane count in vectors of the same shape
+        int bound = LONGS.loopBound(size);
+        int i = 0;
+        for (; i < bound; i += LONGS.length()) {
+            DoubleVector converted = (DoubleVector) LongVector.fromArray(LONGS, values, i).convert(VectorOperators.L2D, 0);
+            out[i >>> 6] |= bits(compare(converted, op, broadcast).cast(LONGS)) << i;
+        }
+        for (; i < size; i++) {
+            out[i >>> 6] |= (test(op, (double) values[i], constant) ? 1L : 0L) << i;
+        }
+    }
+
+    // every branch names its comparison, C2 only intrinsifies a comparison that is a constant where it is compiled
+    private static VectorMask<Long> compare(LongVector vector, Operator op, LongVector broadcast) {
+        return switch (op) {
+            case EQ -> vector.compare(VectorOperators.EQ, broadcast);
+            case NEQ -> vector.compare(VectorOperators.NE, broadcast);
+            case LT -> vector.compare(VectorOperators.LT, broadcast);
+            case LEQ -> vector.compare(VectorOperators.LE, broadcast);
+            case GT -> vector.compare(VectorOperators.GT, broadcast);
+            case GEQ -> vector.compare(VectorOperators.GE, broadcast);
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        };
+    }
+
+    private static VectorMask<Double> compare(DoubleVector vector, Operator op, DoubleVector broadcast) {
+        return switch (op) {
+            case EQ -> vector.compare(VectorOperators.EQ, broadcast);
+            case NEQ -> vector.compare(VectorOperators.NE, broadcast);
+            case LT -> vector.compare(VectorOperators.LT, broadcast);
+            case LEQ -> vector.compare(VectorOperators.LE, broadcast);
+            case GT -> vector.compare(VectorOperators.GT, broadcast);
+            case GEQ -> vector.compare(VectorOperators.GE, broadcast);
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        };
+    }
+
+    // on JDK 17 VectorMask.toLong is no intrinsic and materializes the mask on every step, a blend and a reduction are
+    private static long bits(VectorMask<Long> mask) {
+        return ZERO.blend(LANE_BITS, mask).reduceLanes(VectorOperators.OR);
+    }
+
+    private static boolean test(Operator op, int comparison) {
+        return switch (op) {
+            case EQ -> comparison == 0;
+            case NEQ -> comparison != 0;
+            case LT -> comparison < 0;
+            case LEQ -> comparison <= 0;
+            case GT -> comparison > 0;
+            case GEQ -> comparison >= 0;
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        };
+    }
+
+    // not via Double.compare, which orders NaN and -0.0 unlike the primitive operators
+    private static boolean test(Operator op, double value, double constant) {
+        return switch (op) {
+            case EQ -> value == constant;
+            case NEQ -> value != constant;
+            case LT -> value < constant;
+            case LEQ -> value <= constant;
+            case GT -> value > constant;
+            case GEQ -> value >= constant;
+            default -> throw new IllegalArgumentException("Not a comparison: " + op);
+        };
+    }
+}